@@ -0,0 +1,105 @@
+package org.example.benchmark;
+
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.listsAA.LinkedListAAMF;
+import org.example.utils.listsAA.LinkedListHashAA;
+
+/*
+ * Benchmark simples (sem dependências) comparando a LinkedListAAMF, usada pela cache até então,
+ * com a LinkedListHashAA (lista + índice hash) nas operações que a cache faz:
+ * busca com move-to-front, alteração e despejo do último + inserção no início.
+ *
+ * Como a LinkedListAAMF é O(n) por operação, o número de operações medidas é reduzido
+ * conforme o tamanho cresce, para que cada rodada leve poucos segundos. O resultado é em ns/op.
+ *
+ * Uso: java org.example.benchmark.CacheBenchmark [tamanho ...]   (padrão: 30 10000 1000000)
+ */
+
+public class CacheBenchmark {
+    private static final long NODE_VISITS_BUDGET = 200_000_000L;    // Limita o trabalho da lista linear por rodada
+    private static final int MAX_OPS = 1_000_000;
+    private static final int MIN_OPS = 200;
+
+    private static int cursor = 0;                                  // Cada medição usa um trecho novo da sequência de códigos
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{30, 10_000, 1_000_000} : parseSizes(args);
+
+        System.out.printf("%-10s %-18s %15s %15s %15s%n", "tamanho", "estrutura", "busca ns/op", "altera ns/op", "despejo ns/op");
+
+        for (int size : sizes) {
+            int linearOps = (int) Math.max(MIN_OPS, Math.min(MAX_OPS, NODE_VISITS_BUDGET / size));
+
+            LinkedListAAMF linear = new LinkedListAAMF();
+            LinkedListHashAA indexed = new LinkedListHashAA(size);
+            for (int code = 0; code < size; code++) {
+                linear.insertLast(order(code));
+                indexed.insertLast(order(code));
+            }
+
+            int[] codes = randomCodes(size, MAX_OPS, 42);
+
+            // Aquecimento do JIT antes das medições
+            measure(codes, Math.min(linearOps, 1_000), linear::search);
+            measure(codes, MAX_OPS, indexed::search);
+
+            report(size, "LinkedListAAMF",
+                    measure(codes, linearOps, linear::search),
+                    measure(codes, linearOps, code -> linear.alter(order(code))),
+                    measure(codes, linearOps, code -> linear.insertFirst(renew(linear.removeLast()))));
+
+            report(size, "LinkedListHashAA",
+                    measure(codes, MAX_OPS, indexed::search),
+                    measure(codes, MAX_OPS, code -> indexed.alter(order(code))),
+                    measure(codes, MAX_OPS, code -> indexed.insertFirst(renew(indexed.removeLast()))));
+        }
+    }
+
+    private static double measure(int[] codes, int ops, IntConsumer operation) {
+        int offset = cursor;
+        cursor = (cursor + ops) % codes.length;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            operation.accept(codes[(offset + i) % codes.length]);
+        }
+        return (System.nanoTime() - start) / (double) ops;
+    }
+
+    private static void report(int size, String name, double search, double alter, double evict) {
+        System.out.printf("%-10d %-18s %15.1f %15.1f %15.1f%n", size, name, search, alter, evict);
+    }
+
+    private static OrderService order(int code) {
+        OrderService os = new OrderService();
+        os.setCode(code);
+        os.setName("Nome" + code);
+        os.setDescription("Descrição" + code);
+        return os;
+    }
+
+    // Reinsere o elemento despejado, mantendo o tamanho da lista constante entre as operações
+    private static OrderService renew(OrderService evicted) {
+        return order(evicted.getCode());
+    }
+
+    private static int[] randomCodes(int size, int count, long seed) {
+        Random random = new Random(seed);
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = random.nextInt(size);
+        }
+        return codes;
+    }
+
+    private static int[] parseSizes(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.example.server.wal.CheckpointFile;
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.tree.PersistentTreeAVL;
+
+/*
+ * Tempo de início a frio do Servidor a partir de um checkpoint: grava N OS num CheckpointFile, lê de volta
+ * (arquivo mapeado) e monta a árvore em O(n) com load(), comparando com montar a mesma árvore com N inserções.
+ *
+ * Uso: java org.example.benchmark.CheckpointBenchmark [quantidade] [diretório]   (padrão: 1000000 temporário)
+ */
+
+public class CheckpointBenchmark {
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = args.length > 1 ? Files.createDirectories(Path.of(args[1])) : Files.createTempDirectory("checkpoint-benchmark");
+        Path file = dir.resolve("benchmark.ckp");
+
+        PersistentTreeAVL source = new PersistentTreeAVL();
+        OrderService[] orders = new OrderService[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new OrderService(i, "Nome" + i, "Descrição da OS " + i);
+        }
+        source.load(orders);
+
+        long start = System.nanoTime();
+        PersistentTreeAVL.Snapshot snapshot = source.snapshot();
+        CheckpointFile.write(file, count, snapshot.size(), snapshot);
+        System.out.printf("gravação:           %8d ms (%d MiB)%n", millis(start), Files.size(file) >> 20);
+
+        start = System.nanoTime();
+        CheckpointFile.Contents contents = CheckpointFile.read(file);
+        long readMillis = millis(start);
+        PersistentTreeAVL loaded = new PersistentTreeAVL();
+        loaded.load(contents.orders());
+        System.out.printf("leitura + load O(n): %8d ms (leitura %d ms, altura %d)%n", millis(start), readMillis, loaded.getHeight());
+
+        start = System.nanoTime();
+        PersistentTreeAVL inserted = new PersistentTreeAVL();
+        for (OrderService os : contents.orders()) {
+            try {
+                inserted.insert(os);
+            } catch (NodeAlreadyExistsException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        System.out.printf("n inserções:        %8d ms (altura %d)%n", millis(start), inserted.getHeight());
+
+        Files.delete(file);
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
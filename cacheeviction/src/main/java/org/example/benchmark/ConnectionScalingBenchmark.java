@@ -0,0 +1,179 @@
+package org.example.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.utils.Command;
+import org.example.utils.common.BinaryMessageHandler;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.ConnectionDispatcher;
+import org.example.utils.common.TransportMode;
+import org.example.utils.common.interfaces.ConnectionHandler;
+import org.example.utils.common.nio.NioConnection;
+import org.example.utils.common.nio.NioTransport;
+
+/*
+ * Quantas threads e quanta memória o NioTransport usa com muitas conexões abertas: sobe um transporte no próprio
+ * processo que responde QUANTITY, abre N conexões (HELLO binário), faz uma requisição em cada uma e deixa todas
+ * abertas e ociosas. Com uma thread por conexão seriam N threads; aqui são os laços mais os trabalhadores.
+ *
+ * Com -Dtransport=virtual mede o outro caminho: ServerSocket + ConnectionDispatcher, o mesmo código bloqueante
+ * do handleClient numa thread virtual por conexão. As threads do sistema ficam nas portadoras do ForkJoinPool.
+ *
+ * Cada conexão usa dois descritores neste processo (cliente e servidor): confira o ulimit -n.
+ *
+ * Uso: java org.example.benchmark.ConnectionScalingBenchmark [conexões] [porta]   (padrão: 20000 15600)
+ */
+
+public class ConnectionScalingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 15600;
+
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+
+        if (TransportMode.preferred() == TransportMode.VIRTUAL) {
+            virtualThreads(count, port, threadsBefore, heapBefore);
+            return;
+        }
+
+        NioTransport transport = NioTransport.fromSystemProperties("benchmark", "127.0.0.1", port, new ConnectionHandler() {
+            @Override
+            public void opened(NioConnection connection) {
+            }
+
+            @Override
+            public void request(NioConnection connection) {
+                connection.getCommunicator().receiveJsonMessage(Command.class);
+                connection.getCommunicator().sendTextMessage("0");
+            }
+
+            @Override
+            public void closed(NioConnection connection) {
+            }
+        });
+
+        List<Socket> sockets = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            hello(socket);
+            sockets.add(socket);
+        }
+        long connected = System.nanoTime();
+
+        for (Socket socket : sockets) {
+            quantity(socket);
+        }
+        long requested = System.nanoTime();
+
+        System.gc();
+        System.out.printf("%n%-28s %12d%n", "conexões abertas", transport.getConnections());
+        System.out.printf("%-28s %12d%n", "laços + trabalhadores", transport.getLoopCount() + transport.getWorkerCount());
+        report(count, threadsBefore, heapBefore, start, connected, requested);
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        transport.close();
+    }
+
+    private static void virtualThreads(int count, int port, int threadsBefore, long heapBefore) throws Exception {
+        ConnectionDispatcher dispatcher = ConnectionDispatcher.fromSystemProperties("benchmark");
+        ServerSocket server = new ServerSocket(port, dispatcher.getBacklog(), InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    dispatcher.dispatch(server.accept(), ConnectionScalingBenchmark::handleClient);
+                } catch (IOException e) {
+                    return; // Servidor fechado
+                }
+            }
+        }, "benchmark-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        List<Socket> sockets = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            hello(socket);
+            sockets.add(socket);
+        }
+        long connected = System.nanoTime();
+
+        for (Socket socket : sockets) {
+            quantity(socket);
+        }
+        long requested = System.nanoTime();
+
+        System.gc();
+        System.out.printf("%n%-28s %12d%n", "conexões abertas", dispatcher.getConnections());
+        System.out.printf("%-28s %12d%n", "conexões recusadas", dispatcher.getRejected());
+        report(count, threadsBefore, heapBefore, start, connected, requested);
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        server.close();
+        dispatcher.close();
+    }
+
+    // O laço do handleClient: cada conexão bloqueia no próprio socket
+    private static void handleClient(Socket client) {
+        Communicator communicator = new Communicator(client, "benchmark");
+        while (communicator.isConnected() && communicator.receiveJsonMessage(Command.class) != null) {
+            communicator.sendTextMessage("0");
+        }
+        communicator.disconnect();
+    }
+
+    private static void report(int count, int threadsBefore, long heapBefore, long start, long connected, long requested) {
+        System.out.printf("%-28s %12d%n", "threads a mais no processo",
+                ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore);
+        System.out.printf("%-28s %12.1f%n", "KB de heap por conexão", (usedHeap() - heapBefore) / 1024.0 / count);
+        System.out.printf("%-28s %12.1f%n", "µs por conexão + HELLO", (connected - start) / 1_000.0 / count);
+        System.out.printf("%-28s %12.1f%n", "µs por requisição", (requested - connected) / 1_000.0 / count);
+    }
+
+    private static void hello(Socket socket) throws IOException {
+        socket.getOutputStream().write("HELLO binary\n".getBytes(StandardCharsets.UTF_8));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1);
+        String reply = reader.readLine();
+        if (!"HELLO binary".equals(reply)) {
+            throw new IllegalStateException("HELLO inesperado: " + reply);
+        }
+    }
+
+    private static void quantity(Socket socket) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(2);
+        out.writeByte(BinaryMessageHandler.COMMAND);
+        out.writeByte(Command.QUANTITY.getOpcode());
+        out.flush();
+
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.benchmark;
+
+import java.util.Random;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.eviction.EvictionPolicyType;
+import org.example.utils.common.interfaces.EvictionPolicy;
+
+/*
+ * Simulação para escolher a política de cache eviction: reproduz uma carga sintética parecida com a do Proxy
+ * (buscas com distribuição Zipf sobre os códigos, intercaladas com varreduras sequenciais de listagem/paginação)
+ * em cada política e mostra os HITs, MISSes e o hit ratio. Num MISS a OS é inserida, como o Proxy faz.
+ *
+ * Uso: java org.example.benchmark.EvictionBenchmark [capacidade] [códigos] [requisições] [expoente zipf]
+ *      (padrão: 1000 100000 2000000 0.99)
+ */
+
+public class EvictionBenchmark {
+    private static final int SCAN_EVERY = 20_000;      // A cada N buscas acontece uma varredura
+    private static final int SCAN_LENGTH = 5_000;      // Quantidade de códigos lidos em sequência na varredura
+
+    public static void main(String[] args) {
+        int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 0.99;
+
+        int[] trace = buildTrace(keys, requests, exponent, 7);
+
+        System.out.printf("capacidade=%d códigos=%d requisições=%d zipf=%.2f%n", capacity, keys, trace.length, exponent);
+        System.out.printf("%-10s %12s %12s %10s%n", "política", "hits", "misses", "hit ratio");
+
+        for (EvictionPolicyType type : EvictionPolicyType.values()) {
+            EvictionPolicy policy = type.create(capacity);
+            long hits = 0;
+            long misses = 0;
+
+            for (int code : trace) {
+                if (policy.get(code) != null) {
+                    hits++;
+                } else {
+                    misses++;
+                    OrderService os = new OrderService();
+                    os.setCode(code);
+                    policy.put(os);
+                }
+            }
+
+            System.out.printf("%-10s %12d %12d %9.2f%%%n", policy.getName(), hits, misses, 100.0 * hits / (hits + misses));
+        }
+    }
+
+    private static int[] buildTrace(int keys, int requests, double exponent, long seed) {
+        Random random = new Random(seed);
+        double[] cdf = zipfCdf(keys, exponent);
+        int[] trace = new int[requests + (requests / SCAN_EVERY) * SCAN_LENGTH];
+        int n = 0;
+
+        for (int i = 1; i <= requests; i++) {
+            trace[n++] = rank(cdf, random.nextDouble());
+
+            if (i % SCAN_EVERY == 0) {
+                int start = random.nextInt(keys);
+                for (int j = 0; j < SCAN_LENGTH; j++) {
+                    trace[n++] = (start + j) % keys;
+                }
+            }
+        }
+
+        return trace;
+    }
+
+    private static double[] zipfCdf(int keys, double exponent) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < keys; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    // Busca binária do primeiro rank cuja probabilidade acumulada cobre 'u'
+    private static int rank(double[] cdf, double u) {
+        int lo = 0, hi = cdf.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cdf[mid] < u) lo = mid + 1;
+            else hi = mid;
+        }
+        // Espalha os códigos quentes para que não coincidam com o início das varreduras
+        return (int) ((lo * 2654435761L) % cdf.length);
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+import org.example.utils.index.OrderIndex;
+import org.example.utils.index.OrderIndexType;
+
+/*
+ * Compara os índices do Servidor (OrderIndexType) com o mesmo conjunto de OS:
+ *
+ *  - insert: inserções em ordem aleatória, em milhões por segundo;
+ *  - search: buscas aleatórias numa thread só, em milhões por segundo;
+ *  - range: páginas de 100 OS a partir de códigos aleatórios (listRange), em milhares de páginas por segundo;
+ *  - mixed: 95% buscas e 5% remoções/reinserções com todas as threads da máquina, em milhões por segundo;
+ *  - bytes/OS: memória do índice em si (as OS são as mesmas para todos e não entram na conta).
+ *
+ * Uso: java org.example.benchmark.OrderIndexBenchmark [registros] [segundos por medida]   (padrão: 1000000 2)
+ */
+
+public class OrderIndexBenchmark {
+    private static final int WRITE_PERCENT = 5;
+    private static final int PAGE_SIZE = 100;
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        OrderService[] orders = new OrderService[records];
+        for (int i = 0; i < records; i++) {
+            orders[i] = new OrderService(i, "Nome" + i, "Descrição" + i);
+        }
+        int[] shuffled = new int[records];
+        for (int i = 0; i < records; i++) {
+            shuffled[i] = i;
+        }
+        for (int i = records - 1; i > 0; i--) {
+            int j = ThreadLocalRandom.current().nextInt(i + 1);
+            int aux = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = aux;
+        }
+
+        System.out.printf("%d OS, %d threads na carga mista%n", records, threads);
+        System.out.printf("%-16s %10s %10s %10s %10s %10s%n", "índice", "insert", "search", "range", "mixed", "bytes/OS");
+        for (OrderIndexType type : OrderIndexType.values()) {
+            long before = usedMemory();
+            OrderIndex index = type.create();
+
+            long begin = System.nanoTime();
+            for (int code : shuffled) {
+                index.insert(orders[code]);
+            }
+            double insert = records / ((System.nanoTime() - begin) / 1e9) / 1e6;
+            double bytes = (double) (usedMemory() - before) / records;
+
+            double search = searches(index, records, seconds);
+            double range = ranges(index, records, seconds);
+            double mixed = mixed(index, orders, threads, seconds);
+
+            System.out.printf("%-16s %10.2f %10.2f %10.1f %10.2f %10.1f%n",
+                    index.getName(), insert, search, range, mixed, bytes);
+            index = null;
+        }
+    }
+
+    private static double searches(OrderIndex index, int records, int seconds) throws NodeNotFoundException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long begin = System.nanoTime();
+        long done = 0;
+        while ((done & 1023) != 0 || System.nanoTime() < deadline) {
+            index.search(random.nextInt(records));
+            done++;
+        }
+        return done / ((System.nanoTime() - begin) / 1e9) / 1e6;
+    }
+
+    private static double ranges(OrderIndex index, int records, int seconds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long begin = System.nanoTime();
+        long done = 0;
+        long sink = 0;
+        while ((done & 63) != 0 || System.nanoTime() < deadline) {
+            List<OrderService> page = index.listRange(random.nextInt(records), Integer.MAX_VALUE, PAGE_SIZE);
+            sink += page.size();
+            done++;
+        }
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return done / ((System.nanoTime() - begin) / 1e9) / 1e3;
+    }
+
+    private static double mixed(OrderIndex index, OrderService[] orders, int threads, int seconds) throws Exception {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while ((done & 1023) != 0 || System.nanoTime() < deadline) {
+                    int code = random.nextInt(orders.length);
+                    operate(index, orders[code], random.nextInt(100) < WRITE_PERCENT);
+                    done++;
+                }
+                ops.add(done);
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1e9) / 1e6;
+    }
+
+    private static void operate(OrderIndex index, OrderService order, boolean write) {
+        try {
+            if (!write) {
+                index.search(order.getCode());
+                return;
+            }
+            try {
+                index.remove(order.getCode());
+            } catch (InvalidOperationException e) {
+                index.insert(order);
+            }
+        } catch (NodeNotFoundException | NodeAlreadyExistsException | InvalidOperationException e) {
+            // Removida pela carga mista de outra thread
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
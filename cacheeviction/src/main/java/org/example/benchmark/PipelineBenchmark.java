@@ -0,0 +1,197 @@
+package org.example.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.example.utils.Command;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.MultiplexedSession;
+import org.example.utils.common.OrderService;
+
+/*
+ * Requisição a requisição contra pipelining num enlace com latência: um responde-SEARCH no próprio processo (o
+ * mesmo MultiplexedSession do Servidor e do Proxy) atrás de um relé que atrasa cada pedaço de bytes em meio RTT
+ * para cada lado. A mesma sequência de SEARCH roda:
+ *
+ *  - requisição a requisição: envia o comando e a OS, espera a resposta, envia a próxima (uma ida e volta cada);
+ *  - pipelining: Communicator.pipeline() e um request() por busca, sem esperar; no fim espera todos os futuros.
+ *
+ * No primeiro o tempo cresce com requisições x RTT; no segundo fica perto de um RTT mais o tempo de transmitir.
+ *
+ * Uso: java org.example.benchmark.PipelineBenchmark [requisições] [RTT ms] [porta]   (padrão: 2000 20 15610)
+ */
+
+public class PipelineBenchmark {
+    private static final int IN_FLIGHT = 256;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long rttMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 15610;
+
+        ServerSocket backend = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ServerSocket relay = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        daemon("backend", () -> acceptLoop(backend));
+        daemon("relay", () -> relayLoop(relay, backend.getLocalPort(), rttMillis / 2));
+
+        // Poucas requisições no modo sequencial: cada uma custa um RTT inteiro
+        int lockstepRequests = (int) Math.min(requests, Math.max(20, 2_000 / Math.max(1, rttMillis)));
+        Communicator lockstep = connect(port);
+        long start = System.nanoTime();
+        for (int i = 0; i < lockstepRequests; i++) {
+            lockstep.sendJsonMessage(Command.SEARCH);
+            lockstep.sendJsonMessage(order(i));
+            lockstep.receiveJsonMessage(OrderService.class);
+        }
+        long lockstepNanos = System.nanoTime() - start;
+        lockstep.disconnect();
+
+        Communicator pipelined = connect(port);
+        if (!pipelined.pipeline()) {
+            throw new IllegalStateException("O responde-SEARCH não aceitou o MULTIPLEX");
+        }
+        start = System.nanoTime();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            responses[i] = pipelined.request(Command.SEARCH, order(i))
+                    .thenApply(response -> response.receiveJsonMessage(OrderService.class));
+        }
+        CompletableFuture.allOf(responses).get(5, TimeUnit.MINUTES);
+        long pipelinedNanos = System.nanoTime() - start;
+        pipelined.disconnect();
+
+        System.out.println("RTT " + rttMillis + "ms, protocolo " + pipelined.getProtocol());
+        report("requisição a requisição", lockstepRequests, lockstepNanos);
+        report("pipelining (" + IN_FLIGHT + " em andamento)", requests, pipelinedNanos);
+        System.exit(0);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Responde-SEARCH: menu, depois SEARCH avulsos ou um MULTIPLEX
+
+    private static void acceptLoop(ServerSocket backend) {
+        while (true) {
+            try {
+                Socket client = backend.accept();
+                daemon("backend-client", () -> serve(new Communicator(client, "benchmark")));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private static void serve(Communicator communicator) {
+        communicator.sendTextMessage(List.of(Command.SEARCH, Command.MULTIPLEX).toString());
+        Command command;
+        while ((command = communicator.receiveJsonMessage(Command.class)) != null) {
+            if (command == Command.MULTIPLEX) {
+                communicator.sendJsonMessage(Command.SUCCESS);
+                new MultiplexedSession(communicator, IN_FLIGHT, request -> {
+                    request.receiveJsonMessage(Command.class);
+                    search(request);
+                }).serve();
+                break;
+            }
+            search(communicator);
+        }
+        communicator.disconnect();
+    }
+
+    private static void search(Communicator communicator) {
+        OrderService order = communicator.receiveJsonMessage(OrderService.class);
+        communicator.sendJsonMessage(order);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Relé com atraso: cada pedaço lido só é repassado 'delay' ms depois, na ordem em que chegou
+
+    private static void relayLoop(ServerSocket relay, int backendPort, long delayMillis) {
+        while (true) {
+            try {
+                Socket client = relay.accept();
+                Socket server = new Socket(InetAddress.getLoopbackAddress(), backendPort);
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                pipe(client.getInputStream(), server.getOutputStream(), delayMillis);
+                pipe(server.getInputStream(), client.getOutputStream(), delayMillis);
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private record Chunk(long dueNanos, byte[] bytes) {
+    }
+
+    private static void pipe(InputStream in, OutputStream out, long delayMillis) {
+        BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+        daemon("relay-in", () -> {
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    queue.put(new Chunk(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                            Arrays.copyOf(buffer, read)));
+                }
+            } catch (IOException | InterruptedException e) {
+                // Fim da conexão
+            }
+            queue.add(new Chunk(0, new byte[0]));
+        });
+        daemon("relay-out", () -> {
+            try {
+                Chunk chunk;
+                while ((chunk = queue.take()).bytes().length > 0) {
+                    long wait = chunk.dueNanos() - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    out.write(chunk.bytes());
+                    out.flush();
+                }
+                out.close();
+            } catch (IOException | InterruptedException e) {
+                // Fim da conexão
+            }
+        });
+    }
+
+    // --------------------------------------------------------------------------------
+
+    private static Communicator connect(int port) {
+        Communicator communicator = new Communicator("benchmark");
+        communicator.connect(InetAddress.getLoopbackAddress().getHostAddress(), port);
+        communicator.receiveTextMessage(); // Menu
+        return communicator;
+    }
+
+    private static OrderService order(int code) {
+        OrderService order = new OrderService();
+        order.setCode(code);
+        order.setName("Nome" + code);
+        order.setDescription("Descrição" + code);
+        return order;
+    }
+
+    private static void daemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void report(String label, int requests, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-32s %6d requisições em %8.1f ms  %10.0f req/s%n",
+                label, requests, nanos / 1e6, requests / seconds);
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+import org.example.utils.tree.TreeAVL;
+
+/*
+ * Vazão da TreeAVL sob carga mista (95% buscas, 5% escritas) com 1, 2, 4, ... threads, comparando:
+ *
+ *  - global: todas as operações serializadas num único lock (o que seria proteger as leituras com o treeLock);
+ *  - stamped: a TreeAVL direto, com buscas otimistas e escritas no lock de escrita.
+ *
+ * As escritas alternam remoção e reinserção de códigos do próprio conjunto, então o tamanho fica estável.
+ * O resultado é em milhões de operações por segundo.
+ *
+ * Uso: java org.example.benchmark.TreeConcurrencyBenchmark [registros] [segundos por rodada]   (padrão: 100000 2)
+ */
+
+public class TreeConcurrencyBenchmark {
+    private static final int WRITE_PERCENT = 5;
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%-8s %-9s %12s%n", "threads", "modo", "Mops/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.printf("%-8d %-9s %12.2f%n", threads, "global", run(records, threads, seconds, true));
+            System.out.printf("%-8d %-9s %12.2f%n", threads, "stamped", run(records, threads, seconds, false));
+        }
+    }
+
+    private static double run(int records, int threads, int seconds, boolean globalLock) throws Exception {
+        TreeAVL tree = new TreeAVL();
+        for (int i = 0; i < records; i++) {
+            tree.insert(new OrderService(i, "Nome" + i, "Descrição" + i));
+        }
+
+        Object global = new Object();
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while ((done & 1023) != 0 || System.nanoTime() < deadline) {
+                    int code = random.nextInt(records);
+                    boolean write = random.nextInt(100) < WRITE_PERCENT;
+                    if (globalLock) {
+                        synchronized (global) {
+                            operate(tree, code, write);
+                        }
+                    } else {
+                        operate(tree, code, write);
+                    }
+                    done++;
+                }
+                ops.add(done);
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1e9) / 1e6;
+    }
+
+    private static void operate(TreeAVL tree, int code, boolean write) {
+        try {
+            if (!write) {
+                tree.search(code);
+                return;
+            }
+            try {
+                tree.remove(code);
+            } catch (InvalidOperationException e) {
+                tree.insert(new OrderService(code, "Nome" + code, "Descrição" + code));
+            }
+        } catch (NodeNotFoundException | NodeAlreadyExistsException | InvalidOperationException e) {
+            // Outra thread removeu ou reinseriu o mesmo código no meio tempo
+        }
+    }
+}
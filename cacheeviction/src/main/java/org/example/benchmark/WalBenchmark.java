@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.server.wal.DurabilityMode;
+import org.example.server.wal.WalRecord;
+import org.example.server.wal.WriteAheadLog;
+import org.example.utils.common.OrderService;
+
+/*
+ * Custo do WAL em cada modo de durabilidade: várias threads fazem escritas (append + awaitDurable, como o Servidor)
+ * por alguns segundos, e o resultado mostra escritas por segundo e quantos fsyncs foram feitos por escrita.
+ * Com group commit (BATCHED), o número de fsyncs por escrita cai conforme a concorrência aumenta.
+ *
+ * Uso: java org.example.benchmark.WalBenchmark [threads] [segundos por modo] [diretório]   (padrão: 16 3 temporário)
+ */
+
+public class WalBenchmark {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path base = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("wal-benchmark");
+
+        System.out.printf("%-8s %14s %14s%n", "modo", "escritas/s", "fsyncs/escrita");
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            Path dir = Files.createDirectories(base.resolve(mode.name().toLowerCase()));
+            WriteAheadLog wal = new WriteAheadLog(dir, mode, 64L * 1024 * 1024, Duration.ofMillis(100));
+            wal.replay(0, _ -> { });
+
+            LongAdder writes = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            Thread[] workers = new Thread[threads];
+
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                workers[t] = new Thread(() -> {
+                    byte[] payload = WalRecord.orderPayload(new OrderService(id, "Nome" + id, "Descrição da OS " + id));
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (System.nanoTime() < deadline) {
+                        wal.awaitDurable(wal.append(WalRecord.Type.UPDATE, payload));
+                        writes.increment();
+                    }
+                });
+                workers[t].start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double elapsed = (System.nanoTime() - begin) / 1e9;
+            wal.close();
+
+            System.out.printf("%-8s %14.0f %14.4f%n", mode, writes.sum() / elapsed, (double) wal.getFsyncs() / writes.sum());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.example.utils.Command;
+import org.example.utils.common.AbstractMessageHandler;
+import org.example.utils.common.BinaryMessageHandler;
+import org.example.utils.common.OrderService;
+import org.example.utils.common.WireProtocol;
+import org.example.utils.common.interfaces.MessageHandler;
+
+/*
+ * Custo de cada WireProtocol nas duas trocas mais comuns entre Proxy e Servidor, sem rede (fluxos em memória):
+ *  - SEARCH: comando + OS só com o código, resposta com a OS;
+ *  - LIST: comando, resposta com a lista de OS (o JSON antigo mandava a lista como texto dentro de JSON).
+ *
+ * O resultado mostra bytes por troca e o tempo para escrever e para ler todas as mensagens. Os tempos incluem
+ * o log de cada mensagem (Loggable.message), que é igual nos dois protocolos.
+ *
+ * A troca fica cerca de 2x menor (SEARCH 91 contra 180 bytes; LIST de 1000 OS, 63 KB contra 108 KB), e não 10x:
+ * o binário tira os nomes dos campos e as aspas, mas o nome e a descrição de cada OS continuam em UTF-8 e são a
+ * maior parte dos bytes. O ganho maior é no tempo de escrita e de leitura.
+ *
+ * Uso: java org.example.benchmark.WireProtocolBenchmark [tamanho da lista] [trocas]   (padrão: 1000 2000)
+ */
+
+public class WireProtocolBenchmark {
+    public static void main(String[] args) {
+        int listSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int exchanges = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        List<OrderService> orders = new ArrayList<>(listSize);
+        for (int code = 0; code < listSize; code++) {
+            orders.add(order(code));
+        }
+        OrderService query = new OrderService();
+        query.setCode(listSize / 2);
+        OrderService found = orders.get(listSize / 2);
+
+        Exchange search = new Exchange("SEARCH",
+                handler -> {
+                    handler.sendJsonMessage(Command.SEARCH);
+                    handler.sendJsonMessage(query);
+                    handler.sendJsonMessage(found);
+                },
+                handler -> {
+                    handler.receiveJsonMessage(Command.class);
+                    handler.receiveJsonMessage(OrderService.class);
+                    handler.receiveJsonMessage(OrderService.class);
+                });
+        Exchange list = new Exchange("LIST(" + listSize + ")",
+                handler -> {
+                    handler.sendJsonMessage(Command.LIST);
+                    handler.sendOrders(orders);
+                },
+                handler -> {
+                    handler.receiveJsonMessage(Command.class);
+                    handler.receiveOrders();
+                });
+
+        System.out.printf("%-12s %-8s %14s %14s %14s%n", "troca", "formato", "bytes/troca", "escrita µs", "leitura µs");
+        for (Exchange exchange : List.of(search, list)) {
+            int rounds = exchange == list ? Math.max(1, exchanges / 20) : exchanges;
+            for (WireProtocol protocol : WireProtocol.values()) {
+                measure(exchange, protocol, Math.max(1, rounds / 10)); // Aquecimento do JIT
+                measure(exchange, protocol, rounds).report(exchange.name, protocol);
+            }
+        }
+    }
+
+    private record Exchange(String name, Consumer<MessageHandler> write, Consumer<MessageHandler> read) {
+    }
+
+    private record Result(double bytes, double writeMicros, double readMicros) {
+        void report(String exchange, WireProtocol protocol) {
+            System.out.printf("%-12s %-8s %14.0f %14.1f %14.1f%n",
+                    exchange, protocol.name().toLowerCase(), bytes, writeMicros, readMicros);
+        }
+    }
+
+    private static Result measure(Exchange exchange, WireProtocol protocol, int rounds) {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        MessageHandler writer = handler(protocol, wire, InputStream.nullInputStream());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            exchange.write().accept(writer);
+        }
+        long written = System.nanoTime() - start;
+
+        byte[] bytes = wire.toByteArray();
+        MessageHandler reader = handler(protocol, OutputStream.nullOutputStream(), new ByteArrayInputStream(bytes));
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            exchange.read().accept(reader);
+        }
+        long read = System.nanoTime() - start;
+
+        return new Result(bytes.length / (double) rounds, written / 1_000.0 / rounds, read / 1_000.0 / rounds);
+    }
+
+    private static MessageHandler handler(WireProtocol protocol, OutputStream out, InputStream in) {
+        return protocol == WireProtocol.BINARY
+                ? new BinaryMessageHandler(out, in, "benchmark")
+                : new AbstractMessageHandler(out, in, "benchmark");
+    }
+
+    private static OrderService order(int code) {
+        OrderService os = new OrderService();
+        os.setCode(code);
+        os.setName("Nome" + code);
+        os.setDescription("Descrição da ordem de serviço " + code);
+        os.setRequestTime(LocalTime.of(10, 30));
+        return os;
+    }
+}
@@ -4,7 +4,10 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.Getter;
 import org.example.utils.*;
 import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderPage;
 import org.example.utils.common.OrderService;
+import org.example.utils.common.RangeRequest;
+import org.example.utils.common.stats.CacheStatsReport;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -158,10 +161,9 @@ public class Client extends Communicator implements Loggable, JsonSerializable {
         sendJsonMessage(LIST); // Envia a ação de listagem
 
         printSeparator();
-        List<OrderService> osList = JsonSerializable.fromJson(receiveTextMessage(), new TypeReference<>() {
-        });
+        List<OrderService> osList = receiveOrders();
         System.out.println("Lista de OS:\n");
-        if (osList.isEmpty()) {
+        if (osList == null || osList.isEmpty()) { // null: conexão encerrada ou quadro inválido
             System.out.println("Nenhuma OS encontrada!");
         } else {
             osList.forEach(System.out::println);
@@ -169,6 +171,63 @@ public class Client extends Communicator implements Loggable, JsonSerializable {
         printSeparator();
     }
 
+    private void listRangeOS() {
+        printSeparator();
+        System.out.print("Código inicial: ");
+        int from = scanner.nextInt();
+        System.out.print("Código final: ");
+        int to = scanner.nextInt();
+        System.out.print("OS por página: ");
+        int pageSize = scanner.nextInt();
+        scanner.nextLine(); // Limpa o buffer
+
+        String cursor = null;
+        int pageNumber = 1;
+        do {
+            sendJsonMessage(LIST_RANGE); // Envia a ação de listagem por faixa
+            sendJsonMessage(new RangeRequest(from, to, pageSize, cursor));
+
+            OrderPage page = receiveJsonMessage(OrderPage.class);
+            if (page == null) {
+                erro("Erro ao receber página do servidor.");
+                break;
+            }
+
+            System.out.println("\nPágina " + pageNumber++ + ":");
+            if (page.getOrders().isEmpty()) {
+                System.out.println("Nenhuma OS encontrada!");
+            } else {
+                page.getOrders().forEach(System.out::println);
+            }
+
+            cursor = page.getNextCursor();
+            if (cursor != null) {
+                System.out.print("\nPróxima página? (s/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("s")) {
+                    break;
+                }
+            }
+        } while (cursor != null);
+        printSeparator();
+    }
+
+    private void searchTextOS() {
+        sendJsonMessage(SEARCH_TEXT); // Envia a ação de busca por texto
+
+        printSeparator();
+        System.out.print("Digite as palavras do nome ou da descrição: ");
+        sendTextMessage(scanner.nextLine());
+
+        List<OrderService> osList = receiveOrders();
+        if (osList == null || osList.isEmpty()) {
+            System.out.println("\nNenhuma OS encontrada!");
+        } else {
+            System.out.println("\nOS encontradas (" + osList.size() + "):\n");
+            osList.forEach(System.out::println);
+        }
+        printSeparator();
+    }
+
     private void updateOS() {
         sendJsonMessage(UPDATE); // Envia a ação de alteração
 
@@ -208,12 +267,36 @@ public class Client extends Communicator implements Loggable, JsonSerializable {
         printSeparator();
     }
 
-    private void authenticate() {
-        sendJsonMessage(AUTHENTICATE);
+    private void showStats() {
+        sendJsonMessage(STATS);
 
+        printSeparator();
+        CacheStatsReport stats = receiveJsonMessage(CacheStatsReport.class); // Estatísticas da cache do Proxy
+
+        if (stats == null) {
+            System.out.println("Não foi possível obter as estatísticas da cache.");
+        } else {
+            System.out.printf("Política: %s | Ocupação: %d/%d | Fora do heap: %d%n",
+                    stats.getPolicy(), stats.getSize(), stats.getCapacity(), stats.getOffHeapSize());
+            System.out.printf("HIT: %d | MISS: %d | Hit ratio: %.2f%% (1m %.2f%% | 5m %.2f%% | 15m %.2f%%)%n",
+                    stats.getHits(), stats.getMisses(), stats.getHitRatio() * 100, stats.getHitRatio1m() * 100,
+                    stats.getHitRatio5m() * 100, stats.getHitRatio15m() * 100);
+            System.out.printf("Inserções: %d | Despejos: %d | Invalidações: %d | Expirações: %d | HIT fora do heap: %d%n",
+                    stats.getInserts(), stats.getEvictions(), stats.getInvalidations(), stats.getExpirations(),
+                    stats.getOffHeapHits());
+            System.out.printf("Buscas no servidor: %d | Não encontradas/falhas: %d | Tempo médio: %.2fms%n",
+                    stats.getLoads(), stats.getLoadFailures(), stats.getAverageLoadMillis());
+            System.out.println("Latência da cache:    " + stats.getLookupLatency());
+            System.out.println("Latência do servidor: " + stats.getFetchLatency());
+        }
+        printSeparator();
+    }
+
+    private void authenticate() {
         Command response = INVALID;
 
         while (response != SUCCESS && response != ERROR) {
+            sendJsonMessage(AUTHENTICATE); // Cada tentativa é uma requisição
             sendCredentials();
 
             response = receiveJsonMessage(Command.class);
@@ -277,15 +360,18 @@ public class Client extends Communicator implements Loggable, JsonSerializable {
     }
 
     private void updateMenuAndActions(List<Command> menuOptions) {
-        Map<Command, Runnable> actionsMap = Map.of(
-            SEARCH, this::searchOS,
-            REGISTER, this::registerOS,
-            LIST, this::listOS,
-            UPDATE, this::updateOS,
-            REMOVE, this::removeOS,
-            QUANTITY, this::getOSCount,
-            DISCONECT, this::disconnectClient,
-            AUTHENTICATE, this::authenticate
+        Map<Command, Runnable> actionsMap = Map.ofEntries( // Map.of só aceita até 10 pares
+            Map.entry(SEARCH, this::searchOS),
+            Map.entry(REGISTER, this::registerOS),
+            Map.entry(LIST, this::listOS),
+            Map.entry(LIST_RANGE, this::listRangeOS),
+            Map.entry(SEARCH_TEXT, this::searchTextOS),
+            Map.entry(UPDATE, this::updateOS),
+            Map.entry(REMOVE, this::removeOS),
+            Map.entry(QUANTITY, this::getOSCount),
+            Map.entry(STATS, this::showStats),
+            Map.entry(DISCONECT, this::disconnectClient),
+            Map.entry(AUTHENTICATE, this::authenticate)
         );
 
         actions.clearMenu();
@@ -10,6 +10,11 @@ import java.util.Scanner;
 import org.example.utils.Loggable;
 import org.example.utils.ProxyInfo;
 import org.example.utils.common.Communicator;
+import org.example.utils.common.ConnectionDispatcher;
+import org.example.utils.common.TransportMode;
+import org.example.utils.common.interfaces.ConnectionHandler;
+import org.example.utils.common.nio.NioConnection;
+import org.example.utils.common.nio.NioTransport;
 
 import lombok.Data;
 
@@ -18,6 +23,8 @@ public class LocalizerServer implements Loggable {
     private final int port;
     private String host;
     private ServerSocket serverSocket;
+    private NioTransport transport;                     // Com -Dtransport=nio
+    private final ConnectionDispatcher dispatcher = ConnectionDispatcher.fromSystemProperties("Localizador");
     private volatile boolean running = true;
     private final ProxyInfo proxyInfo;
 
@@ -38,8 +45,12 @@ public class LocalizerServer implements Loggable {
     }
 
     private void createServerSocket() {
+        if (TransportMode.preferred() == TransportMode.NIO) {
+            createNioTransport();
+            return;
+        }
         try {
-            serverSocket = new ServerSocket(port, 50, InetAddress.getByName(host)); // RemoteHost
+            serverSocket = new ServerSocket(port, dispatcher.getBacklog(), InetAddress.getByName(host)); // RemoteHost
             //serverSocket = new ServerSocket(port); // LocalHost
             info("Servidor Localizador rodando na porta: " + serverSocket.getLocalPort());
 
@@ -49,7 +60,7 @@ public class LocalizerServer implements Loggable {
                     startCommandListener();
                     Socket client = serverSocket.accept();
 
-                    new Thread(() -> handleClient(client)).start();
+                    dispatcher.dispatch(client, this::handleClient);
                 } catch (IOException e) {
                     erro("Erro ao tentar conectar com o Cliente: " + e.getMessage());
                 }
@@ -62,16 +73,45 @@ public class LocalizerServer implements Loggable {
         }
     }
 
+    // Laço de eventos no lugar do accept com uma thread por conexão; o construtor fica preso aqui até o stop
+    private void createNioTransport() {
+        try {
+            transport = NioTransport.fromSystemProperties("Localizador", host, port, new ConnectionHandler() {
+                @Override
+                public void opened(NioConnection connection) {
+                    // O cliente fala primeiro (GET_PROXY)
+                }
+
+                @Override
+                public void request(NioConnection connection) {
+                    try {
+                        answer(connection.getCommunicator());
+                    } finally {
+                        connection.getCommunicator().disconnect();
+                    }
+                }
+
+                @Override
+                public void closed(NioConnection connection) {
+                }
+            });
+            info("Servidor Localizador rodando na porta: " + transport.getPort() + " (NIO)");
+            startCommandListener();
+            transport.awaitTermination();
+        } catch (IOException e) {
+            erro("Erro ao tentar criar o Servidor Localizador!");
+            throw new RuntimeException("Erro ao tentar criar o Servidor Localizador!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopServer();
+        }
+    }
+
     private void handleClient(Socket client) {
         Communicator communicator = new Communicator(client, "Localizador");
         try {
-            String message = communicator.receiveTextMessage();
-
-            if (message.equals("GET_PROXY")) {
-                communicator.sendJsonMessage(proxyInfo);
-            } else {
-                communicator.sendTextMessage("Mensagem inválida!");
-            }
+            answer(communicator);
         } finally {
             try {
                 communicator.disconnect();
@@ -84,6 +124,18 @@ public class LocalizerServer implements Loggable {
         }
     }
 
+    private void answer(Communicator communicator) {
+        String message = communicator.receiveTextMessage();
+
+        dispatcher.admit(() -> {
+            if ("GET_PROXY".equals(message)) {
+                communicator.sendJsonMessage(proxyInfo);
+            } else {
+                communicator.sendTextMessage("Mensagem inválida!");
+            }
+        });
+    }
+
     private void startCommandListener() {
         new Thread(() -> {
             Scanner scanner = new Scanner(System.in);
@@ -101,6 +153,10 @@ public class LocalizerServer implements Loggable {
 
     public void stopServer() {
         running = false;
+        if (transport != null) {
+            transport.close();
+        }
+        dispatcher.close();
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
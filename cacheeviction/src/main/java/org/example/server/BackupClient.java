@@ -0,0 +1,117 @@
+package org.example.server;
+
+import static org.example.utils.Command.REPLICATE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderService;
+
+/*
+ * Lado do backup na replicação: conecta no primário como um cliente qualquer, pede o log com REPLICATE a partir
+ * do último LSN que já tem e aplica o que chega no próprio índice e no próprio WAL (com os mesmos LSNs).
+ * Se a conexão cair, tenta de novo a cada RETRY_MILLIS até ser promovido ou encerrado.
+ *
+ * Atraso (lagMillis): tempo desde a última mensagem depois da qual o backup tinha tudo que o primário tinha
+ * quando a enviou. Com o primário ocioso isso é o intervalo dos sinais de vida; desconectado, só cresce.
+ */
+
+public class BackupClient implements Loggable {
+    private static final long RETRY_MILLIS = 1_000;
+
+    private final Server server;
+    private final ProxyInfo primary;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Communicator connection;
+    private volatile long caughtUpAt;                   // 0 = ainda não alcançou o primário
+
+    public BackupClient(Server server, ProxyInfo primary) {
+        this.server = server;
+        this.primary = primary;
+        this.thread = new Thread(this::run, "server-replication");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public long lagMillis() {
+        long at = caughtUpAt;
+        return at == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - at;
+    }
+
+    public ProxyInfo getPrimary() {
+        return primary;
+    }
+
+    // Para de seguir o primário (promoção ou encerramento)
+    public void close() {
+        running = false;
+        Communicator current = connection;
+        if (current != null) {
+            current.disconnect();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            Communicator communicator = new Communicator("Backup & Primário");
+            connection = communicator;
+            try {
+                communicator.connect(primary.getHost(), primary.getPort());
+                if (communicator.isConnected() && communicator.receiveTextMessage() != null) { // Menu do primário
+                    communicator.sendJsonMessage(REPLICATE);
+                    communicator.sendTextMessage(String.valueOf(server.appliedLsn()));
+                    follow(communicator);
+                }
+            } catch (RuntimeException | IOException e) {
+                warn("Replicação: erro ao seguir o primário " + primary.getHost() + ":" + primary.getPort() + ": " + e.getMessage());
+            } finally {
+                communicator.disconnect();
+            }
+
+            if (running) {
+                warn("Replicação: sem conexão com o primário, nova tentativa em " + RETRY_MILLIS + "ms");
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void follow(Communicator communicator) throws IOException {
+        List<OrderService> snapshot = new ArrayList<>();
+
+        while (running) {
+            ReplicationBatch batch = communicator.receiveJsonMessage(ReplicationBatch.class);
+            if (batch == null) {
+                return; // Primário desconectou
+            }
+
+            long applied;
+            if (batch.isSnapshot()) {
+                snapshot.addAll(batch.getOrders());
+                if (batch.isLastChunk()) {
+                    server.installSnapshot(batch.getSnapshotLsn(), snapshot);
+                    snapshot = new ArrayList<>();
+                }
+                applied = server.appliedLsn();
+            } else {
+                applied = server.applyReplicated(batch.getRecords());
+                if (applied >= batch.getPrimaryLsn()) {
+                    caughtUpAt = System.currentTimeMillis();
+                }
+            }
+            communicator.sendTextMessage(String.valueOf(applied));
+        }
+    }
+}
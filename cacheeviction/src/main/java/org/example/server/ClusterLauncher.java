@@ -0,0 +1,134 @@
+package org.example.server;
+
+import static org.example.utils.Command.DISCONECT;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.example.utils.Loggable;
+import org.example.utils.common.Communicator;
+
+/*
+ * Sobe um cluster completo na mesma máquina: N Servidores, cada um no seu processo, na sua porta e com o seu
+ * diretório de dados (cacheeviction/server-data/shard-i), e depois o Proxy, também num processo próprio, já
+ * configurado com os N shards. Os processos filhos herdam o classpath e as opções da JVM deste (ex.: -D).
+ *
+ * Uso: java org.example.server.ClusterLauncher [shards] [porta inicial]   (padrão: 3 15553)
+ * Digite 'stop' para encerrar: o Proxy e cada Servidor recebem 'stop' (e gravam snapshot/checkpoint).
+ */
+
+public class ClusterLauncher implements Loggable {
+    private static final long START_TIMEOUT_MS = 30_000;
+
+    private final List<Process> processes = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int basePort = args.length > 1 ? Integer.parseInt(args[1]) : 15553;
+        new ClusterLauncher().run(shards, basePort);
+    }
+
+    private void run(int shards, int basePort) throws Exception {
+        String host = InetAddress.getLocalHost().getHostAddress();
+        List<String> addresses = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            addresses.add(host + ":" + (basePort + shard));
+        }
+        String cluster = String.join(",", addresses);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::destroyAll));
+
+        for (int shard = 0; shard < shards; shard++) {
+            start("org.example.server.Server", "-Dcluster.shards=" + cluster,
+                    "-Dserver.shard=" + shard, "-Dserver.port=" + (basePort + shard));
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            awaitPort(host, basePort + shard);
+        }
+        info("Cluster com " + shards + " Servidores no ar: " + cluster);
+
+        start("org.example.serverproxy.Proxy", "-Dcluster.shards=" + cluster);
+        info("Proxy iniciado. Digite 'stop' para encerrar o cluster");
+
+        Scanner scanner = new Scanner(System.in);
+        while (scanner.hasNextLine()) {
+            if (scanner.nextLine().trim().equalsIgnoreCase("stop")) {
+                break;
+            }
+        }
+        stopAll();
+    }
+
+    private void start(String mainClass, String... properties) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments()); // -D, --enable-preview, -Xmx...
+        command.addAll(List.of(properties));                                         // O último -D vale
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();   // A entrada fica com o launcher, que repassa o 'stop'
+        processes.add(process);
+        info("Processo " + process.pid() + ": " + mainClass + " " + String.join(" ", properties));
+    }
+
+    private void awaitPort(String host, int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(host, port), 500);
+                Communicator probe = new Communicator(socket, "Launcher"); // Encerra a sessão como um cliente normal
+                probe.receiveTextMessage();
+                probe.sendJsonMessage(DISCONECT);
+                probe.disconnect();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("Servidor na porta " + port + " não subiu em " + START_TIMEOUT_MS + "ms");
+    }
+
+    // O Proxy sai primeiro (envia o write-behind pendente), depois os Servidores
+    private void stopAll() {
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            Process process = processes.get(i);
+            try {
+                OutputStream input = process.getOutputStream();
+                input.write("stop\n".getBytes(StandardCharsets.UTF_8));
+                input.flush();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy(); // Já parou de atender; só as threads do console seguram o processo
+                }
+            } catch (IOException e) {
+                process.destroy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+        info("Cluster encerrado.");
+    }
+
+    private void destroyAll() {
+        for (Process process : processes) {
+            if (process.isAlive()) {
+                process.destroy();
+            }
+        }
+    }
+}
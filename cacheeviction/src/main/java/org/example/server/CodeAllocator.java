@@ -0,0 +1,52 @@
+package org.example.server;
+
+import org.example.utils.cluster.HashRing;
+
+/*
+ * Gera os códigos das OS cadastradas neste shard.
+ *
+ * O shard arrenda um bloco inteiro do anel (HashRing.BLOCK_SIZE códigos) que seja dele e entrega os códigos
+ * do bloco em sequência; quando o bloco acaba, arrenda o próximo bloco acima que também seja dele. Como cada
+ * bloco tem um único dono, dois shards nunca geram o mesmo código e todo código gerado cai no shard que o
+ * Proxy vai procurar depois. Com um shard só, todos os blocos são dele e os códigos são os de sempre: 100, 101...
+ *
+ * Não precisa ser persistido: na recuperação o Servidor recomeça do maior código que já está no índice.
+ */
+
+public class CodeAllocator {
+    private final HashRing ring;
+    private final int shard;
+    private long next;              // Próximo código a entregar
+    private long blockEnd;          // Fim (exclusivo) do bloco arrendado
+
+    public CodeAllocator(HashRing ring, int shard, int start) {
+        this.ring = ring;
+        this.shard = shard;
+        this.next = start;
+        lease();
+    }
+
+    public synchronized int next() {
+        if (next >= blockEnd) {
+            lease();
+        }
+        return (int) next++;
+    }
+
+    public boolean owns(int code) {
+        return ring.shardOf(code) == shard;
+    }
+
+    // Arrenda o primeiro bloco deste shard a partir de 'next'
+    private void lease() {
+        long block = next / HashRing.BLOCK_SIZE;
+        while (block * HashRing.BLOCK_SIZE <= Integer.MAX_VALUE && ring.ownerOfBlock(block) != shard) {
+            block++;
+        }
+        if (block * HashRing.BLOCK_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Os códigos do shard " + shard + " acabaram");
+        }
+        next = Math.max(next, block * HashRing.BLOCK_SIZE);
+        blockEnd = Math.min((block + 1) * HashRing.BLOCK_SIZE, Integer.MAX_VALUE + 1L);
+    }
+}
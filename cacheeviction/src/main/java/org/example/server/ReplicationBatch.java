@@ -0,0 +1,26 @@
+package org.example.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.server.wal.WalRecord;
+import org.example.utils.JsonSerializable;
+import org.example.utils.common.OrderService;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Mensagem do primário para um backup: registros do WAL em ordem de LSN, ou um pedaço de snapshot.
+// O backup responde cada mensagem com o último LSN que aplicou (texto)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationBatch implements JsonSerializable {
+    private long primaryLsn;                                    // Último LSN do primário quando a mensagem saiu
+    private boolean snapshot;                                   // Pedaço de um snapshot que contém tudo até snapshotLsn
+    private long snapshotLsn;
+    private boolean lastChunk;                                  // Último pedaço do snapshot
+    private List<OrderService> orders = new ArrayList<>();      // Pedaço do snapshot, em ordem de código
+    private List<WalRecord> records = new ArrayList<>();        // Vazio e fora de snapshot: só um sinal de vida
+}
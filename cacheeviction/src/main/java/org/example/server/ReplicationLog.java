@@ -0,0 +1,180 @@
+package org.example.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.server.wal.WalRecord;
+
+/*
+ * Registros recentes do WAL guardados em memória para os backups (backlog da replicação) e as confirmações deles.
+ *
+ * Toda escrita do Servidor é publicada aqui logo depois de entrar no WAL, dentro do mesmo lock, então a ordem
+ * daqui é a ordem dos LSNs. Um backup que conecta dizendo o último LSN que aplicou recebe o que veio depois,
+ * se ainda estiver no backlog (covers); senão recebe um snapshot inteiro e continua do LSN do snapshot.
+ * O backlog guarda no máximo 'capacity' registros, os mais antigos saem primeiro.
+ *
+ * Confirmação síncrona: cada backup confirma o último LSN que aplicou e gravou no disco dele (acknowledge);
+ * awaitAcks espera até N backups confirmarem um LSN, com limite de tempo.
+ */
+
+public class ReplicationLog {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();          // Registro novo, confirmação ou reinício
+    private final ArrayDeque<WalRecord> backlog = new ArrayDeque<>();
+    private final Map<String, Long> acks = new HashMap<>();        // Backup -> último LSN confirmado
+    private long floorLsn;                                           // Registros até aqui não estão mais no backlog
+    private long lastLsn;
+
+    public ReplicationLog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    // Esvazia o backlog: o log passa a começar depois de 'lsn' (recuperação, snapshot recebido, promoção)
+    public void restart(long lsn) {
+        lock.lock();
+        try {
+            backlog.clear();
+            floorLsn = lsn;
+            lastLsn = lsn;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void publish(WalRecord record) {
+        lock.lock();
+        try {
+            if (backlog.size() == capacity) {
+                floorLsn = backlog.removeFirst().lsn();
+            }
+            backlog.addLast(record);
+            lastLsn = record.lsn();
+            changed.signalAll(); // Acorda os envios que esperam registros novos
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Se um backup que aplicou até 'lsn' consegue continuar só com o backlog
+    public boolean covers(long lsn) {
+        lock.lock();
+        try {
+            return lsn >= floorLsn && lsn <= lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Até 'max' registros com LSN > lsn, esperando até 'waitMillis' se ainda não houver nenhum.
+    // Lista vazia: nada novo no tempo dado. null: o backlog não cobre mais 'lsn'
+    public List<WalRecord> readAfter(long lsn, int max, long waitMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + waitMillis;
+            while (lsn == lastLsn && covers(lsn)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return List.of();
+                }
+                changed.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            if (!covers(lsn)) {
+                return null;
+            }
+
+            List<WalRecord> records = new ArrayList<>(Math.min(max, backlog.size()));
+            for (WalRecord record : backlog) { // Do mais antigo para o mais novo; o backlog é limitado
+                if (record.lsn() > lsn) {
+                    records.add(record);
+                    if (records.size() == max) {
+                        break;
+                    }
+                }
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Confirmações dos backups
+
+    public void acknowledge(String backup, long lsn) {
+        lock.lock();
+        try {
+            acks.merge(backup, lsn, Math::max);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String backup) {
+        lock.lock();
+        try {
+            acks.remove(backup);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBackups() {
+        lock.lock();
+        try {
+            return acks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Espera 'count' backups confirmarem 'lsn'; false se o tempo acabou antes
+    public boolean awaitAcks(long lsn, int count, long timeoutMillis) {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (acknowledged(lsn) < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                changed.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Chamado com 'lock'
+    private int acknowledged(long lsn) {
+        int count = 0;
+        for (long acked : acks.values()) {
+            if (acked >= lsn) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.example.server.wal.WalRecord;
+import org.example.utils.Loggable;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderService;
+import org.example.utils.index.OrderIndex;
+
+/*
+ * Lado do primário na replicação: roda na thread da conexão que o backup abriu com REPLICATE e envia o log
+ * para ele até a conexão cair.
+ *
+ * Cada mensagem espera a confirmação do backup antes da próxima, então o backup nunca fica com mais de um lote
+ * em trânsito; com escritas chegando rápido os lotes crescem (até MAX_RECORDS) e o custo da ida e volta se
+ * divide entre eles. Sem escritas, uma mensagem vazia a cada HEARTBEAT_MILLIS mostra ao backup que ele está em
+ * dia. Se o backup ficar para trás além do backlog, recebe um snapshot do índice e continua dali.
+ */
+
+public class ReplicationSender implements Loggable {
+    private static final int MAX_RECORDS = 512;
+    private static final int SNAPSHOT_CHUNK = 1000;
+    private static final long HEARTBEAT_MILLIS = 200;
+
+    // Versão do índice e o LSN que ela contém, tirados no mesmo instante
+    public record Snapshot(OrderIndex.View orders, long lsn) {
+    }
+
+    private final ReplicationLog log;
+    private final Supplier<Snapshot> snapshots;
+    private final BooleanSupplier running;
+    private final Communicator backup;
+    private final String name;
+
+    public ReplicationSender(ReplicationLog log, Supplier<Snapshot> snapshots, BooleanSupplier running,
+                             Communicator backup, String name) {
+        this.log = log;
+        this.snapshots = snapshots;
+        this.running = running;
+        this.backup = backup;
+        this.name = name;
+    }
+
+    // Envia tudo depois de 'appliedLsn' (o último LSN que o backup já tem) e segue enviando as escritas novas
+    public void run(long appliedLsn) {
+        long next = appliedLsn;
+        info("Replicação: " + name + " conectado no LSN " + appliedLsn + (log.covers(appliedLsn) ? "" : ", vai receber um snapshot"));
+        try {
+            while (running.getAsBoolean() && backup.isConnected()) {
+                List<WalRecord> records = log.readAfter(next, MAX_RECORDS, HEARTBEAT_MILLIS);
+                if (records == null) { // Ficou para trás do backlog (ou à frente do primário)
+                    next = sendSnapshot();
+                    continue;
+                }
+
+                ReplicationBatch batch = new ReplicationBatch();
+                batch.setPrimaryLsn(log.lastLsn());
+                batch.setRecords(records);
+                log.acknowledge(name, exchange(batch));
+                if (!records.isEmpty()) {
+                    next = records.get(records.size() - 1).lsn();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            warn("Replicação: conexão com " + name + " encerrada: " + e.getMessage());
+        } finally {
+            log.remove(name);
+        }
+    }
+
+    // Envia o índice inteiro em pedaços e devolve o LSN que ele contém
+    private long sendSnapshot() {
+        Snapshot snapshot = snapshots.get();
+        long start = System.nanoTime();
+        List<OrderService> chunk = new ArrayList<>(SNAPSHOT_CHUNK);
+
+        for (OrderService order : snapshot.orders()) {
+            chunk.add(order);
+            if (chunk.size() == SNAPSHOT_CHUNK) {
+                exchange(snapshotChunk(snapshot, chunk, false));
+                chunk = new ArrayList<>(SNAPSHOT_CHUNK);
+            }
+        }
+        log.acknowledge(name, exchange(snapshotChunk(snapshot, chunk, true))); // Só agora o backup tem esse LSN
+
+        info("Replicação: snapshot com " + snapshot.orders().size() + " OS até o LSN " + snapshot.lsn() + " enviado para "
+                + name + " em " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return snapshot.lsn();
+    }
+
+    private static ReplicationBatch snapshotChunk(Snapshot snapshot, List<OrderService> orders, boolean last) {
+        ReplicationBatch batch = new ReplicationBatch();
+        batch.setPrimaryLsn(snapshot.lsn());
+        batch.setSnapshot(true);
+        batch.setSnapshotLsn(snapshot.lsn());
+        batch.setLastChunk(last);
+        batch.setOrders(orders);
+        return batch;
+    }
+
+    // Envia uma mensagem e devolve o LSN que o backup confirmou
+    private long exchange(ReplicationBatch batch) {
+        backup.sendJsonMessage(batch);
+        String ack = backup.receiveTextMessage();
+        if (ack == null) {
+            throw new IllegalStateException("o backup desconectou");
+        }
+        return Long.parseLong(ack);
+    }
+}
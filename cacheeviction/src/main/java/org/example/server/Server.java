@@ -1,44 +1,102 @@
 package org.example.server;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import org.example.utils.Command;
 import static org.example.utils.Command.DISCONECT;
+import static org.example.utils.Command.ERROR;
 import static org.example.utils.Command.LIST;
+import static org.example.utils.Command.LIST_RANGE;
+import static org.example.utils.Command.MULTIPLEX;
+import static org.example.utils.Command.PROMOTE;
 import static org.example.utils.Command.QUANTITY;
 import static org.example.utils.Command.REGISTER;
 import static org.example.utils.Command.REMOVE;
+import static org.example.utils.Command.REPLICATE;
+import static org.example.utils.Command.REPLICA_STATUS;
 import static org.example.utils.Command.SEARCH;
+import static org.example.utils.Command.SEARCH_BATCH;
+import static org.example.utils.Command.SEARCH_TEXT;
+import static org.example.utils.Command.SUCCESS;
 import static org.example.utils.Command.UPDATE;
+import static org.example.utils.Command.UPDATE_BATCH;
+import org.example.server.wal.CheckpointFile;
+import org.example.server.wal.CheckpointStore;
+import org.example.server.wal.DurabilityMode;
+import org.example.server.wal.WalRecord;
+import org.example.server.wal.WriteAheadLog;
 import org.example.utils.JsonSerializable;
 import org.example.utils.Loggable;
 import org.example.utils.Menu;
+import org.example.utils.ProxyInfo;
+import org.example.utils.cluster.ClusterConfig;
 import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderPage;
 import org.example.utils.common.OrderService;
+import org.example.utils.common.PageCursor;
+import org.example.utils.common.RangeRequest;
+import org.example.utils.common.ReplicaStatus;
+import org.example.utils.common.ConnectionDispatcher;
+import org.example.utils.common.MultiplexedSession;
+import org.example.utils.common.TransportMode;
+import org.example.utils.common.interfaces.ConnectionHandler;
+import org.example.utils.common.nio.NioConnection;
+import org.example.utils.common.nio.NioTransport;
 import org.example.utils.exceptions.InvalidOperationException;
 import org.example.utils.exceptions.NodeAlreadyExistsException;
 import org.example.utils.exceptions.NodeNotFoundException;
-import org.example.utils.tree.TreeAVL;
+import org.example.utils.index.OrderIndex;
+import org.example.utils.index.OrderIndexType;
+import org.example.utils.index.TextIndex;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class Server implements Loggable, JsonSerializable {
     private String host;
     private final int port;                                                                      // Porta do servidor
     private final Menu actions;                                                                  // Menu de ações do servidor
-    private volatile TreeAVL treeAVL;                                                            // Árvore AVL de dados
+    private final OrderIndex index;                                                              // Índice de OS por código
+    private final TextIndex textIndex = new TextIndex();                                          // Termos do nome/descrição -> códigos
+    private final WriteAheadLog wal;                                                             // Durabilidade das escritas
+    private final ReentrantLock treeLock = new ReentrantLock();                                  // Mesma ordem de escritas na árvore e no WAL
+    private final CheckpointStore checkpoints;                                                   // Checkpoints da árvore
+    private final ReentrantLock checkpointLock = new ReentrantLock();                            // Um checkpoint por vez
+    private long lastCheckpointLsn = -1;
+    private ScheduledExecutorService checkpointer;                                               // Checkpoints periódicos
     private ServerSocket serverSocket;                                                           // Socket do servidor
-    private final Object treeLock = new Object();                                                // Lock para sincronização da árvore
+    private NioTransport transport;                                                              // Com -Dtransport=nio
+    private final ConnectionDispatcher dispatcher = ConnectionDispatcher.fromSystemProperties("Servidor X Proxy");
     private volatile AtomicBoolean running = new AtomicBoolean(true);               // Flag de controle de execução
     private static final ThreadLocal<Communicator> clientCommunicator = new ThreadLocal<>();     // Comunicador do cliente
-    private int lastCode = 100;
+    private static final int MAX_PAGE_SIZE = 1000;                                               // Limite de OS por página do LIST_RANGE
+    private final ClusterConfig cluster;                                                         // Shards e anel de hash
+    private final int shard;                                                                     // Número deste Servidor no cluster
+    private CodeAllocator codes;                                                                 // Códigos dos blocos deste shard
+    private final ReplicationLog replication;                                                    // Backlog e confirmações dos backups
+    private final int replicationAcks;                                                           // Backups que confirmam cada escrita
+    private final long ackTimeoutMillis;
+    private final AtomicInteger backupConnections = new AtomicInteger();
+    private final int multiplexInFlight;                                                         // Por conexão do pool do Proxy
+    private volatile BackupClient backup;                                                        // Não nulo enquanto for backup
 
     public Server() {
         try {
@@ -47,37 +105,372 @@ public class Server implements Loggable, JsonSerializable {
             erro("Erro ao obter o endereço IP do host: " + e.getMessage());
             this.host = "26.137.178.91";
         }
-        this.port = 15553;
-        this.treeAVL = new TreeAVL();
+        this.port = Integer.getInteger("server.port", 15553);                                   // -Dserver.port=N
+        this.cluster = ClusterConfig.fromSystemProperties(host, port);
+        this.shard = Integer.getInteger("server.shard", 0);                                     // -Dserver.shard=N (posição em cluster.shards)
+        if (shard < 0 || shard >= cluster.size()) {
+            throw new IllegalArgumentException("Shard " + shard + " fora do cluster de " + cluster.size() + " Servidores");
+        }
+        // Cada shard tem o seu diretório de dados, para rodar vários na mesma máquina
+        String dataDir = "cacheeviction/server-data" + (cluster.isSharded() ? "/shard-" + shard : "");
+        this.index = OrderIndexType.fromName(System.getProperty("server.index", "persistent-avl")).create();  // -Dserver.index=avl|persistent-avl|b+tree|skip-list
         this.actions = new Menu();
-        initializerTree();
+        this.replication = new ReplicationLog(Integer.getInteger("server.replication.backlog", 100_000));  // -Dserver.replication.backlog=N registros
+        this.replicationAcks = Integer.getInteger("server.replication.acks", 0);               // -Dserver.replication.acks=N (0 = assíncrona)
+        this.ackTimeoutMillis = Long.getLong("server.replication.ack.timeout", 1_000);          // -Dserver.replication.ack.timeout=ms
+        this.multiplexInFlight = Integer.getInteger("server.multiplex.inflight", 256);          // -Dserver.multiplex.inflight=N requisições
+        String primary = System.getProperty("server.primary");                                  // -Dserver.primary=host:porta (sobe como backup)
+        if (primary != null && !primary.isBlank()) {
+            String[] parts = primary.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Endereço do primário inválido (esperado host:porta): " + primary);
+            }
+            this.backup = new BackupClient(this, new ProxyInfo(parts[0], Integer.parseInt(parts[1])));
+        }
+        try {
+            this.wal = new WriteAheadLog(Path.of(System.getProperty("server.wal.dir", dataDir + "/wal")),  // -Dserver.wal.dir=caminho
+                    DurabilityMode.fromName(System.getProperty("server.wal.durability", "batched")),    // -Dserver.wal.durability=per-op|batched|async
+                    Long.getLong("server.wal.segment.mb", 64) * 1024 * 1024,                           // -Dserver.wal.segment.mb=N
+                    Duration.ofMillis(Long.getLong("server.wal.async.interval", 100)));                // -Dserver.wal.async.interval=ms
+            this.checkpoints = new CheckpointStore(Path.of(System.getProperty("server.checkpoint.dir", dataDir + "/checkpoint")));  // -Dserver.checkpoint.dir=caminho
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao abrir o WAL do Servidor!", e);
+        }
+        recover();
+        if (backup != null) {
+            backup.start();
+        }
+        startCheckpointer(Duration.ofMillis(Long.getLong("server.checkpoint.interval", 300_000)));  // -Dserver.checkpoint.interval=ms (0 = só no stop)
         initializerDefaultActions();
         createServerSocket();
     }
 
+    // Carrega o último checkpoint e reaplica o WAL a partir dele; os dados de exemplo só entram num servidor
+    // que nunca gravou nada
+    private void recover() {
+        long start = System.nanoTime();
+        long checkpointLsn = 0;
+        long replayed;
+        try {
+            CheckpointFile.Contents checkpoint = checkpoints.loadLatest();
+            if (checkpoint != null) {
+                index.load(checkpoint.orders()); // Já vem ordenado: árvore montada em O(n)
+                textIndex.addAll(checkpoint.orders());
+                checkpointLsn = checkpoint.lsn();
+                lastCheckpointLsn = checkpointLsn;
+                info("Checkpoint carregado: " + checkpoint.orders().length + " OS até o LSN " + checkpointLsn
+                        + " em " + (System.nanoTime() - start) / 1_000_000 + "ms");
+            }
+            replayed = wal.replay(checkpointLsn, this::apply);
+            replication.restart(wal.lastLsn());
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao recuperar os dados do Servidor!", e);
+        }
+
+        if (checkpointLsn == 0 && replayed == 0 && backup == null) { // O backup recebe tudo do primário
+            initializerTree();
+        }
+
+        int size = index.getQuantityRecords();
+        codes = new CodeAllocator(cluster.getRing(), shard, Math.max(100, index.highestCode() + 1));
+
+        info("WAL reaplicado: " + replayed + " registros em " + (System.nanoTime() - start) / 1_000_000 + "ms, "
+                + size + " OS no índice " + index.getName() + ", shard " + shard + " de " + cluster.size()
+                + ", durabilidade " + wal.getMode() + (backup == null ? ", primário" : ", backup de "
+                + backup.getPrimary().getHost() + ":" + backup.getPrimary().getPort()));
+        info("Índice de texto: " + textIndex.getTermCount() + " termos, " + textIndex.getSizeInBytes() / 1024 + " KB");
+    }
+
+    // Grava um checkpoint do índice e apaga o WAL que ele cobre. Com a AVL persistente o snapshot é O(1) e as
+    // requisições não esperam; os outros índices são copiados com as escritas paradas
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            OrderIndex.View snapshot;
+            long lsn;
+            treeLock.lock(); // Versão e LSN do mesmo instante; a gravação é feita fora do lock
+            try {
+                snapshot = index.snapshot();
+                lsn = wal.lastLsn();
+            } finally {
+                treeLock.unlock();
+            }
+            if (lsn == lastCheckpointLsn) {
+                return; // Nada mudou desde o último
+            }
+
+            long start = System.nanoTime();
+            try {
+                Path file = checkpoints.save(lsn, snapshot.size(), snapshot);
+                lastCheckpointLsn = lsn;
+                int deleted = wal.deleteSegmentsUpTo(lsn);
+                info("Checkpoint gravado: " + file.getFileName() + " com " + snapshot.size() + " OS em "
+                        + (System.nanoTime() - start) / 1_000_000 + "ms, " + deleted + " segmentos do WAL apagados");
+            } catch (IOException e) {
+                erro("Erro ao gravar checkpoint: " + e.getMessage());
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void startCheckpointer(Duration interval) {
+        if (interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "server-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
     public void initializerTree() {
+        long lsn = 0;
+        treeLock.lock();
         try {
             for (int i = 0; i < 100; i++) {
-                OrderService os = new OrderService("Nome" + i, "Descrição" + i);
-                treeAVL.insert(os);
+                if (cluster.shardOf(i) != shard) {
+                    continue; // Cada shard só recebe os dados de exemplo dos blocos dele
+                }
+                OrderService os = new OrderService(i, "Nome" + i, "Descrição" + i);
+                try {
+                    requireAbsent(os.getCode());
+                    lsn = appendLog(WalRecord.Type.REGISTER, WalRecord.orderPayload(os)); // No WAL antes de ficar visível
+                    insertOrder(os);
+                } catch (NodeAlreadyExistsException e) {
+                }
             }
-        } catch (NodeAlreadyExistsException e) {
+        } finally {
+            treeLock.unlock();
+        }
+        wal.awaitDurable(lsn);
+    }
+
+    // Anexa a escrita ao WAL e ao backlog da replicação, na mesma ordem (chamado com o treeLock, antes de mudar o
+    // índice: se o WAL falhar aqui, nenhum leitor viu a escrita)
+    private long appendLog(WalRecord.Type type, byte[] payload) {
+        long lsn = wal.append(type, payload);
+        replication.publish(new WalRecord(lsn, type, payload));
+        return lsn;
+    }
+
+    // Espera a escrita 'lsn' estar no disco e, com server.replication.acks > 0, aplicada nos backups. Se os backups
+    // não confirmarem a tempo, a escrita é confirmada assim mesmo (o primário não para por causa de um backup).
+    // Se o disco falhar aqui a escrita já está no índice sem garantia de estar no WAL: quem pediu recebe ERROR
+    // (resultado incerto, como num timeout) e o WAL recusa as próximas escritas até o Servidor ser reiniciado
+    private void commit(long lsn) {
+        wal.awaitDurable(lsn);
+        if (replicationAcks > 0 && lsn > 0 && !replication.awaitAcks(lsn, replicationAcks, ackTimeoutMillis)) {
+            warn("Replicação: LSN " + lsn + " sem confirmação de " + replicationAcks + " backup(s) em "
+                    + ackTimeoutMillis + "ms, seguindo sem esperar");
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Replicação
+
+    // Último LSN aplicado neste Servidor
+    long appliedLsn() {
+        return wal.lastLsn();
+    }
+
+    // Aplica registros recebidos do primário no índice e no WAL, com os LSNs de lá, e devolve o último aplicado
+    // depois de gravado no disco. Registros que já estão aqui (reenvio depois de reconectar) são ignorados
+    long applyReplicated(List<WalRecord> records) {
+        long lsn;
+        treeLock.lock();
+        try {
+            if (backup == null) {
+                throw new IllegalStateException("Servidor promovido, registros do antigo primário ignorados");
+            }
+            for (WalRecord record : records) {
+                if (record.lsn() <= wal.lastLsn()) {
+                    continue;
+                }
+                apply(record);
+                wal.append(record);
+                replication.publish(record); // Continua valendo se este backup for promovido
+            }
+            lsn = wal.lastLsn();
+        } finally {
+            treeLock.unlock();
+        }
+        wal.awaitDurable(lsn);
+        return lsn;
+    }
+
+    // Troca todo o conteúdo pelo snapshot do primário. O checkpoint é gravado antes de descartar o WAL: uma queda
+    // no meio recomeça do snapshot, e não do estado antigo. O checkpointLock segura o promote() do começo ao fim,
+    // para um Servidor promovido nunca gravar o snapshot do antigo primário como checkpoint dele
+    void installSnapshot(long lsn, List<OrderService> orders) throws IOException {
+        long start = System.nanoTime();
+        OrderService[] sorted = orders.toArray(new OrderService[0]);
+
+        checkpointLock.lock();
+        try {
+            if (backup == null) {
+                throw new IllegalStateException("Servidor promovido, snapshot do antigo primário ignorado");
+            }
+            checkpoints.save(lsn, sorted.length, orders);
+            treeLock.lock();
+            try {
+                index.load(sorted);
+                textIndex.clear();
+                textIndex.addAll(sorted);
+                wal.reset(lsn);
+                replication.restart(lsn);
+                lastCheckpointLsn = lsn;
+            } finally {
+                treeLock.unlock();
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+        info("Replicação: snapshot do primário instalado, " + sorted.length + " OS até o LSN " + lsn + " em "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    // Versão do índice e LSN do mesmo instante, para um backup que ficou para trás do backlog
+    private ReplicationSender.Snapshot replicationSnapshot() {
+        treeLock.lock();
+        try {
+            return new ReplicationSender.Snapshot(index.snapshot(), wal.lastLsn());
+        } finally {
+            treeLock.unlock();
+        }
+    }
+
+    // Backup vira primário: para de seguir o antigo e passa a aceitar escritas com o índice e o WAL que já tem,
+    // sem reconstruir nada. Os códigos novos continuam depois do maior que ele recebeu.
+    // Não há fencing do antigo primário: se ele voltar, sobe de novo como primário e aceita as escritas de quem
+    // ainda o tiver como primário (outro Proxy, ou um Proxy reiniciado com o cluster.shards antigo), e os outros
+    // backups, que seguem o -Dserver.primary, voltam a replicar dele. Ele precisa voltar como backup do novo
+    // primário (-Dserver.primary) e a configuração dos Proxies precisa ser atualizada (ver ReplicaMonitor)
+    public boolean promote() {
+        BackupClient previous = backup;
+        if (previous == null) {
+            return false;
+        }
+        previous.close();
+        checkpointLock.lock(); // Espera um installSnapshot em andamento terminar
+        try {
+            treeLock.lock();
+            try {
+                if (backup == null) {
+                    return false; // Promovido por outra thread
+                }
+                backup = null;
+                codes = new CodeAllocator(cluster.getRing(), shard, Math.max(100, index.highestCode() + 1));
+            } finally {
+                treeLock.unlock();
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+        info("Promovido a primário no LSN " + wal.lastLsn() + " com " + index.getQuantityRecords() + " OS");
+        return true;
+    }
+
+    // Escrita não confirmada porque o WAL falhou (ou foi fechado no stop)
+    private void sendWriteError(Communicator communicator, String operation, RuntimeException e) {
+        erro("WAL indisponível, " + operation + " não confirmado: " + e.getMessage());
+        refuseWrite(communicator, "WAL do Servidor indisponível: " + e.getMessage());
+    }
+
+    // ERROR e o motivo no lugar da resposta de sempre, para o Proxy não esperar nem confundir com
+    // "já existe"/"não encontrado"
+    private void refuseWrite(Communicator communicator, String reason) {
+        communicator.sendJsonMessage(ERROR);
+        communicator.sendTextMessage(reason);
+    }
+
+    // Recusa escritas enquanto for backup: elas só chegam pelo log do primário
+    private boolean rejectWriteOnBackup(Communicator communicator) {
+        BackupClient current = backup;
+        if (current != null) {
+            String reason = "Servidor backup de " + current.getPrimary().getHost() + ":" + current.getPrimary().getPort()
+                    + " não aceita escritas";
+            warn("Escrita recusada: " + reason);
+            refuseWrite(communicator, reason);
+            return true;
+        }
+        return false;
+    }
+
+    // Reaplica um registro do WAL; as escritas que falharam na época não foram registradas, então não falham aqui
+    private void apply(WalRecord record) {
+        try {
+            switch (record.type()) {
+                case REGISTER -> insertOrder(record.order());
+                case UPDATE -> alterOrder(record.order());
+                case REMOVE -> removeOrder(record.code());
+            }
+        } catch (NodeAlreadyExistsException | NodeNotFoundException | InvalidOperationException e) {
+            warn("WAL: registro " + record.lsn() + " (" + record.type() + ") não se aplica mais: " + e.getMessage());
+        }
+    }
+
+    // Confere antes de anexar ao WAL que o cadastro vai se aplicar (chamado com o treeLock)
+    private void requireAbsent(int code) throws NodeAlreadyExistsException {
+        try {
+            index.search(code);
+        } catch (NodeNotFoundException e) {
+            return;
+        }
+        throw new NodeAlreadyExistsException("Código " + code + " já existe no índice");
+    }
+
+    // As escritas passam pelo índice de código e pelo de texto juntas (sempre dentro do treeLock ou na recuperação)
+    private void insertOrder(OrderService data) throws NodeAlreadyExistsException {
+        index.insert(data);
+        textIndex.add(data);
+    }
+
+    private void alterOrder(OrderService data) throws NodeNotFoundException {
+        OrderService previous = index.search(data.getCode());
+        index.alter(data);
+        textIndex.replace(previous, data);
+    }
+
+    private void removeOrder(int code) throws InvalidOperationException {
+        OrderService previous;
+        try {
+            previous = index.search(code);
+        } catch (NodeNotFoundException e) {
+            throw new InvalidOperationException("Árvore vazia ou nó não encontrado.");
         }
+        index.remove(code);
+        textIndex.remove(previous);
     }
 
     private void initializerDefaultActions() {
         actions.put(SEARCH, ()      -> searchOS(clientCommunicator.get()));
         actions.put(REGISTER, ()    -> registerOS(clientCommunicator.get()));
         actions.put(LIST, ()        -> listOS(clientCommunicator.get()));
+        actions.put(LIST_RANGE, ()  -> listRangeOS(clientCommunicator.get()));
         actions.put(UPDATE, ()      -> updateOS(clientCommunicator.get()));
         actions.put(REMOVE, ()      -> removeOS(clientCommunicator.get()));
         actions.put(QUANTITY, ()    -> quantityRecords(clientCommunicator.get()));
+        actions.put(UPDATE_BATCH, () -> updateBatchOS(clientCommunicator.get()));
+        actions.put(SEARCH_BATCH, () -> searchBatchOS(clientCommunicator.get()));
+        actions.put(SEARCH_TEXT, () -> searchTextOS(clientCommunicator.get()));
+        actions.put(REPLICATE, ()   -> replicate(clientCommunicator.get()));
+        actions.put(REPLICA_STATUS, () -> replicaStatus(clientCommunicator.get()));
+        actions.put(PROMOTE, ()     -> clientCommunicator.get().sendJsonMessage(promote() ? SUCCESS : ERROR));
+        actions.put(MULTIPLEX, ()   -> multiplex(clientCommunicator.get()));
         actions.put(DISCONECT, ()   -> clearSpacesAndDisconnect());
     }
 
     private void createServerSocket() {
+        if (TransportMode.preferred() == TransportMode.NIO) {
+            createNioTransport();
+            return;
+        }
         try {
-            serverSocket = new ServerSocket(port, 50, InetAddress.getByName(host)); // RemoteHost
+            serverSocket = new ServerSocket(port, dispatcher.getBacklog(), InetAddress.getByName(host)); // RemoteHost
             //serverSocket = new ServerSocket(port); // LocalHost
             info("Servidor Principal rodando na porta: " + serverSocket.getLocalPort());
             info("Digite 'stop' a qualquer momento para encerrar o Servidor ServerMain");
@@ -88,7 +481,7 @@ public class Server implements Loggable, JsonSerializable {
                     startCommandListener();
                     Socket client = serverSocket.accept();
 
-                    new Thread(() -> handleClient(client)).start();
+                    dispatcher.dispatch(client, this::handleClient);
                 } catch (IOException e) {
                     erro("Erro ao tentar conectar com o Cliente: " + e.getMessage());
                 }
@@ -101,6 +494,25 @@ public class Server implements Loggable, JsonSerializable {
         }
     }
 
+    // Laços de eventos no lugar do accept com uma thread por conexão; o construtor fica preso aqui até o stop
+    private void createNioTransport() {
+        try {
+            transport = NioTransport.fromSystemProperties("Servidor X Proxy", host, port, new NioHandler());
+            info("Servidor Principal rodando na porta: " + transport.getPort() + " (NIO, " + transport.getLoopCount()
+                    + " laços de eventos, " + transport.getWorkerCount() + " trabalhadores)");
+            info("Digite 'stop' a qualquer momento para encerrar o Servidor ServerMain");
+            startCommandListener();
+            transport.awaitTermination();
+        } catch (IOException e) {
+            erro("Erro ao tentar criar o Servidor ServerMain!");
+            throw new RuntimeException("Erro ao tentar criar o Servidor ServerMain!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopServer();
+        }
+    }
+
     private void handleClient(Socket client) {
         if (client == null) {
             erro("Cliente nulo, não é possível continuar!");
@@ -114,13 +526,7 @@ public class Server implements Loggable, JsonSerializable {
             sendMenuServer(communicator);
 
             while (running.get() && communicator.isConnected()) {
-                Command option = communicator.receiveJsonMessage(Command.class);
-
-                if (actions.get(option) != null) {
-                    actions.get(option).run();
-                } else {
-                    erro("Cliente enviou uma opção inválida para o ServerMain!");
-                }
+                handleRequest(communicator);
             }
         } catch (Exception e) {
             erro("Erro com a conexão do Cliente: " + e.getMessage());
@@ -129,6 +535,69 @@ public class Server implements Loggable, JsonSerializable {
         }
     }
 
+    // Uma requisição: o comando e o que a ação dele ler (com o clientCommunicator da thread definido)
+    private void handleRequest(Communicator communicator) {
+        handleRequest(communicator, null);
+    }
+
+    // 'connection' não nulo no transporte NIO: a sessão multiplexada ou de replicação sai do pool de trabalho (handOff)
+    private void handleRequest(Communicator communicator, NioConnection connection) {
+        Command option = communicator.receiveJsonMessage(Command.class);
+
+        if (option == MULTIPLEX || option == REPLICATE) {
+            // A sessão dura a conexão toda, então não ocupa vaga do limite nem worker do NIO: cada requisição
+            // multiplexada passa pelo limite, e a replicação para um backup só envia o log
+            Runnable session = actions.get(option);
+            if (connection == null) {
+                session.run();
+            } else {
+                connection.handOff(() -> {
+                    clientCommunicator.set(communicator);
+                    try {
+                        session.run();
+                    } finally {
+                        clientCommunicator.remove();
+                    }
+                });
+            }
+        } else if (actions.get(option) != null) {
+            dispatcher.admit(communicator, option, actions.get(option)); // A espera pelo comando e pelos dados fica fora do limite
+        } else {
+            erro("Cliente enviou uma opção inválida para o ServerMain!");
+        }
+    }
+
+    // O mesmo atendimento do handleClient, uma requisição por vez no pool do transporte NIO
+    private class NioHandler implements ConnectionHandler {
+        @Override
+        public void opened(NioConnection connection) {
+            clientCommunicator.set(connection.getCommunicator());
+            try {
+                sendMenuServer(connection.getCommunicator());
+            } finally {
+                clientCommunicator.remove();
+            }
+        }
+
+        @Override
+        public void request(NioConnection connection) {
+            clientCommunicator.set(connection.getCommunicator());
+            try {
+                handleRequest(connection.getCommunicator(), connection);
+            } catch (Exception e) {
+                erro("Erro com a conexão do Cliente: " + e.getMessage());
+                clearSpacesAndDisconnect();
+            } finally {
+                clientCommunicator.remove();
+            }
+        }
+
+        @Override
+        public void closed(NioConnection connection) {
+            // Nenhum estado por conexão no Servidor
+        }
+    }
+
     private void clearSpacesAndDisconnect() {
         try {
             if (clientCommunicator.get() != null) {
@@ -160,7 +629,7 @@ public class Server implements Loggable, JsonSerializable {
     public void searchOS(Communicator communicator) {
         OrderService order = communicator.receiveJsonMessage(OrderService.class);
         try {
-            order = treeAVL.search(order.getCode());
+            order = index.search(order.getCode());
             communicator.sendJsonMessage(order);
             info("Os dados foram encontrados e enviados!");
         } catch (NodeNotFoundException e) {
@@ -169,56 +638,255 @@ public class Server implements Loggable, JsonSerializable {
         }
     }
 
+    // Recebe uma lista de códigos (aquecimento da cache do proxy) e responde com as OS encontradas, na mesma ordem
+    public void searchBatchOS(Communicator communicator) {
+        List<Integer> codes = JsonSerializable.fromJson(communicator.receiveTextMessage(), new TypeReference<>() {});
+        List<OrderService> found = new ArrayList<>();
+
+        if (codes != null) {
+            for (int code : codes) {
+                try {
+                    found.add(index.search(code));
+                } catch (NodeNotFoundException e) {
+                    // Removida depois que o Proxy gravou o hot set (cada código é buscado na versão atual do índice,
+                    // sem um instante único para o lote), simplesmente não volta
+                }
+            }
+            info("Busca em lote: " + found.size() + " de " + codes.size() + " OS encontradas");
+        }
+
+        communicator.sendOrders(found);
+    }
+
+    // Busca pelo índice invertido: OS que têm todos os termos do texto, em ordem de código, até MAX_PAGE_SIZE
+    public void searchTextOS(Communicator communicator) {
+        String query = communicator.receiveTextMessage();
+        List<OrderService> found = new ArrayList<>();
+
+        for (int code : textIndex.search(query)) {
+            try {
+                OrderService order = index.search(code);
+                if (TextIndex.matches(order, query)) { // Alterada ou removida entre os dois índices
+                    found.add(order);
+                }
+            } catch (NodeNotFoundException e) {
+                // Removida depois da busca no índice de texto
+            }
+            if (found.size() == MAX_PAGE_SIZE) {
+                break;
+            }
+        }
+        info("Busca por texto \"" + query + "\": " + found.size() + " OS encontradas");
+
+        communicator.sendOrders(found);
+    }
+
     public void registerOS(Communicator communicator) {
         OrderService data = communicator.receiveJsonMessage(OrderService.class);
-        data.setCode(lastCode++);
+        if (rejectWriteOnBackup(communicator)) {
+            return;
+        }
         try {
-            synchronized (treeLock) { // Sincroniza o acesso à árvore que pode gerar inconsistência
-                treeAVL.insert(data);
+            long lsn;
+            treeLock.lock(); // Só ordena as escritas; o fsync é esperado fora do lock
+            try {
+                data.setCode(codes.next());
+                requireAbsent(data.getCode());
+                lsn = appendLog(WalRecord.Type.REGISTER, WalRecord.orderPayload(data)); // No WAL antes de ficar visível
+                insertOrder(data);
+            } finally {
+                treeLock.unlock();
             }
-            communicator.sendTextMessage("Dado cadastrado com sucesso!");
+            commit(lsn);
+            communicator.sendJsonMessage(data); // Devolve a OS cadastrada para o proxy saber o código gerado
+            info("Dado cadastrado com sucesso! Código: " + data.getCode());
         } catch (NodeAlreadyExistsException e) {
-            communicator.sendTextMessage("Dado já existe na árvore!");
+            warn("Dado já existe na árvore!");
+            communicator.sendJsonMessage(new OrderService());
+        } catch (UncheckedIOException | IllegalStateException e) {
+            sendWriteError(communicator, "cadastro", e);
         }
     }
 
     public void listOS(Communicator communicator) {
-        List<OrderService> found = treeAVL.list();
+        communicator.sendOrders(index.list());
+    }
+
+    // Uma página da faixa pedida; a próxima página começa depois do último código desta (cursor)
+    public void listRangeOS(Communicator communicator) {
+        RangeRequest request = communicator.receiveJsonMessage(RangeRequest.class);
+        OrderPage page = new OrderPage();
 
         try {
-            communicator.sendJsonMessage(JsonSerializable.objectMapper.writeValueAsString(found));
-        } catch (JsonProcessingException e) {
-            erro("Erro ao enviar lista para cliente (SERVER): " + e.getMessage());
-            clearSpacesAndDisconnect();
+            if (request == null) {
+                throw new IllegalArgumentException("Pedido de página nulo");
+            }
+            int pageSize = Math.max(1, Math.min(request.getPageSize(), MAX_PAGE_SIZE));
+            int start = request.getFrom();
+            boolean finished = request.getFrom() > request.getTo();
+
+            if (request.getCursor() != null) {
+                int lastCode = PageCursor.decode(request.getCursor(), request.getFrom(), request.getTo());
+                finished = lastCode >= request.getTo(); // Também evita o estouro de lastCode + 1
+                start = lastCode + 1;
+            }
+
+            if (!finished) {
+                List<OrderService> range = index.listRange(start, request.getTo(), pageSize + 1);
+                if (range.size() > pageSize) { // Só devolve cursor se ainda houver OS na faixa
+                    range = range.subList(0, pageSize);
+                    int last = range.get(pageSize - 1).getCode();
+                    page.setNextCursor(PageCursor.encode(last, request.getFrom(), request.getTo()));
+                }
+                page.getOrders().addAll(range);
+            }
+        } catch (IllegalArgumentException e) {
+            warn("Pedido de página inválido: " + e.getMessage());
         }
+
+        communicator.sendJsonMessage(page);
     }
 
     public void updateOS(Communicator communicator) {
         OrderService data = communicator.receiveJsonMessage(OrderService.class);
+        if (rejectWriteOnBackup(communicator)) {
+            return;
+        }
         try {
-            synchronized (treeLock) { // Sincroniza o acesso à árvore que pode gerar inconsistência
-                treeAVL.alter(data);
+            long lsn;
+            treeLock.lock();
+            try {
+                index.search(data.getCode()); // Só vai para o WAL o que vai se aplicar
+                lsn = appendLog(WalRecord.Type.UPDATE, WalRecord.orderPayload(data));
+                alterOrder(data);
+            } finally {
+                treeLock.unlock();
             }
-            communicator.sendTextMessage("Dado alterado com sucesso!");
+            commit(lsn);
+            communicator.sendJsonMessage(data); // Confirma devolvendo a OS alterada
+            info("Dado alterado com sucesso! Código: " + data.getCode());
         } catch (NodeNotFoundException e) {
-            communicator.sendTextMessage("Dado não encontrado na árvore!");
+            warn("Dado não encontrado na árvore!");
+            communicator.sendJsonMessage(new OrderService());
+        } catch (UncheckedIOException | IllegalStateException e) {
+            sendWriteError(communicator, "alteração", e);
+        }
+    }
+
+    // Recebe um lote de alterações (write-behind do proxy) e responde com os códigos que não existem na árvore
+    public void updateBatchOS(Communicator communicator) {
+        List<OrderService> batch = communicator.receiveOrders();
+        List<Integer> rejected = new ArrayList<>();
+
+        if (batch != null && rejectWriteOnBackup(communicator)) {
+            return; // O Proxy devolve o lote à fila
+        } else if (batch != null) {
+            long lsn = 0;
+            try {
+                treeLock.lock();
+                try {
+                    Map<Integer, OrderService> previous = new HashMap<>(); // Versão de antes de cada OS, para o índice de texto
+                    for (OrderService data : batch) {
+                        try {
+                            previous.putIfAbsent(data.getCode(), index.search(data.getCode()));
+                        } catch (NodeNotFoundException e) {
+                            rejected.add(data.getCode());
+                        }
+                    }
+                    List<OrderService> logged = new ArrayList<>();
+                    try {
+                        for (OrderService data : batch) {
+                            if (previous.containsKey(data.getCode())) {
+                                lsn = appendLog(WalRecord.Type.UPDATE, WalRecord.orderPayload(data));
+                                logged.add(data);
+                            }
+                        }
+                    } finally {
+                        // Só o que chegou ao WAL, mesmo se ele falhou no meio do lote, publicado numa única versão
+                        index.alterAll(logged);
+                        for (OrderService data : logged) {
+                            textIndex.replace(previous.put(data.getCode(), data), data); // Repetidas no lote seguem em ordem
+                        }
+                    }
+                } finally {
+                    treeLock.unlock();
+                }
+                commit(lsn); // Um único fsync (e uma confirmação dos backups) cobre o lote
+            } catch (UncheckedIOException | IllegalStateException e) {
+                sendWriteError(communicator, "lote de alterações", e);
+                return;
+            }
+            info("Lote de alterações aplicado: " + batch.size() + " OS, " + rejected.size() + " não encontradas");
+        }
+
+        try {
+            communicator.sendJsonMessage(objectMapper.writeValueAsString(rejected));
+        } catch (JsonProcessingException e) {
+            erro("Erro ao confirmar lote de alterações (SERVER): " + e.getMessage());
+            clearSpacesAndDisconnect();
         }
     }
 
     public void removeOS(Communicator communicator) {
         int code = Integer.parseInt(communicator.receiveTextMessage());
+        if (rejectWriteOnBackup(communicator)) {
+            return;
+        }
         try {
-            synchronized (treeLock) { // Sincroniza o acesso à árvore que pode gerar inconsistência
-                treeAVL.remove(code);
+            long lsn;
+            treeLock.lock();
+            try {
+                index.search(code); // Só vai para o WAL o que vai se aplicar
+                lsn = appendLog(WalRecord.Type.REMOVE, WalRecord.codePayload(code));
+                removeOrder(code);
+            } finally {
+                treeLock.unlock();
             }
+            commit(lsn);
             communicator.sendTextMessage("Dado removido com sucesso!");
-        } catch (InvalidOperationException e) {
+        } catch (NodeNotFoundException | InvalidOperationException e) {
             communicator.sendTextMessage("Dado não encontrado na árvore ou já removido!");
+        } catch (UncheckedIOException | IllegalStateException e) {
+            sendWriteError(communicator, "remoção", e);
         }
     }
 
     public void quantityRecords(Communicator communicator) {
-        communicator.sendTextMessage(String.valueOf(treeAVL.getQuantityRecords()));
+        communicator.sendTextMessage(String.valueOf(index.getQuantityRecords()));
+    }
+
+    // Conexão de um backup: daqui em diante esta thread só envia o log para ele, até a conexão cair
+    public void replicate(Communicator communicator) {
+        long appliedLsn = Long.parseLong(communicator.receiveTextMessage());
+        if (backup != null) {
+            warn("Pedido de replicação recusado: este Servidor também é backup");
+        } else {
+            new ReplicationSender(replication, this::replicationSnapshot, running::get, communicator,
+                    "backup-" + backupConnections.incrementAndGet()).run(appliedLsn);
+        }
+        clearSpacesAndDisconnect();
+    }
+
+    public void replicaStatus(Communicator communicator) {
+        BackupClient current = backup;
+        communicator.sendJsonMessage(new ReplicaStatus(current == null, wal.lastLsn(),
+                current == null ? 0 : current.lagMillis(), replication.getBackups()));
+    }
+
+    // Conexão do pool do Proxy (ou de um cliente com pipelining): daqui em diante só chegam Envelopes, atendidos ao mesmo tempo e respondidos fora
+    // de ordem. Cada um passa pelo handleRequest de sempre com o seu Communicator em memória na thread
+    private void multiplex(Communicator communicator) {
+        communicator.sendJsonMessage(SUCCESS);
+        long requests = new MultiplexedSession(communicator, multiplexInFlight, request -> {
+            clientCommunicator.set(request);
+            try {
+                handleRequest(request);
+            } finally {
+                clientCommunicator.remove();
+            }
+        }).serve();
+        info("Conexão multiplexada encerrada depois de " + requests + " requisições");
+        clearSpacesAndDisconnect(); // O Communicator da conexão ainda é o da thread
     }
 
     private void startCommandListener() {
@@ -230,6 +898,9 @@ public class Server implements Loggable, JsonSerializable {
                     Server.this.stopServer();
                     break;
                 }
+                if (command.equalsIgnoreCase("promote")) {
+                    promote();
+                }
             }
             scanner.close();
         }).start();
@@ -237,6 +908,18 @@ public class Server implements Loggable, JsonSerializable {
 
     public void stopServer() {
         running.set(false);
+        if (transport != null) {
+            transport.close(); // Para de atender antes do checkpoint final
+        }
+        dispatcher.close();
+        if (backup != null) {
+            backup.close();
+        }
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+        checkpoint(); // O próximo início só precisa carregar o checkpoint
+        wal.close();
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
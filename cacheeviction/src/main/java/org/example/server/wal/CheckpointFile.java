@@ -0,0 +1,173 @@
+package org.example.server.wal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import org.example.utils.common.OrderService;
+
+/*
+ * Checkpoint da árvore do Servidor: todas as OS de uma versão, ordenadas por código, num arquivo de layout fixo.
+ *
+ *   cabeçalho (32 bytes): int mágico | int versão | long LSN | int quantidade | int reservado | long início do heap
+ *   entradas (16 bytes cada, em ordem de código): int código | int hora (segundo do dia, -1 = null) | long offset no heap
+ *   heap: para cada OS, int tamanho + UTF-8 do nome | int tamanho + UTF-8 da descrição (-1 = null)
+ *   long CRC32C de tudo antes dele
+ *
+ * Como as entradas têm tamanho fixo, a leitura mapeia o arquivo (Foreign Memory API, sem o limite de 2 GB do
+ * MappedByteBuffer) e decodifica direto da memória para um array já ordenado, a partir do qual a árvore é
+ * montada balanceada em O(n), sem n inserções com rotação. O LSN diz até onde o WAL já está contido no checkpoint.
+ *
+ * A escrita percorre duas vezes a mesma versão imutável da árvore (entradas, depois heap) e grava num arquivo
+ * temporário que só é renomeado depois do fsync: uma queda no meio nunca deixa um checkpoint pela metade.
+ */
+public final class CheckpointFile {
+    private static final int MAGIC = 0x4F534350; // "OSCP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+    private static final long CRC_CHUNK = 1L << 30;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // Conteúdo lido de um checkpoint: as OS em ordem de código e o último LSN contido nelas
+    public record Contents(long lsn, OrderService[] orders) {
+    }
+
+    private CheckpointFile() {
+    }
+
+    // 'sorted' precisa devolver as OS em ordem de código e poder ser percorrido duas vezes com o mesmo resultado
+    public static void write(Path file, long lsn, int count, Iterable<OrderService> sorted) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temp), crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            out.writeInt(count);
+            out.writeInt(0);
+            out.writeLong(HEADER_BYTES + (long) count * ENTRY_BYTES);
+
+            long heapOffset = 0;
+            int written = 0;
+            for (OrderService os : sorted) { // 1ª passada: entradas de tamanho fixo
+                out.writeInt(os.getCode());
+                out.writeInt(os.getRequestTime() == null ? -1 : os.getRequestTime().toSecondOfDay());
+                out.writeLong(heapOffset);
+                heapOffset += stringBytes(os.getName()) + stringBytes(os.getDescription());
+                written++;
+            }
+            if (written != count) {
+                throw new IOException("A versão da árvore mudou durante o checkpoint (" + written + " != " + count + ")");
+            }
+
+            for (OrderService os : sorted) { // 2ª passada: nomes e descrições
+                writeString(out, os.getName());
+                writeString(out, os.getDescription());
+            }
+
+            out.flush();
+            out.writeLong(crc.getValue()); // Valor lido antes de o próprio CRC passar pelo CheckedOutputStream
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Contents read(Path file) throws IOException {
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Long.BYTES) {
+                throw new IOException("Checkpoint incompleto: " + file);
+            }
+
+            MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            long crcOffset = size - Long.BYTES;
+            if (crc(data, crcOffset) != data.get(LONG, crcOffset)) {
+                throw new IOException("Checkpoint corrompido (CRC inválido): " + file);
+            }
+            if (data.get(INT, 0) != MAGIC || data.get(INT, 4) != VERSION) {
+                throw new IOException("Checkpoint com formato desconhecido: " + file);
+            }
+
+            long lsn = data.get(LONG, 8);
+            int count = data.get(INT, 16);
+            long heap = data.get(LONG, 24);
+            OrderService[] orders = new OrderService[count];
+
+            for (int i = 0; i < count; i++) {
+                long entry = HEADER_BYTES + (long) i * ENTRY_BYTES;
+                int seconds = data.get(INT, entry + 4);
+                long offset = heap + data.get(LONG, entry + 8);
+
+                OrderService os = new OrderService();
+                os.setCode(data.get(INT, entry));
+                os.setRequestTime(seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds));
+                os.setName(readString(data, offset));
+                offset += stringBytes(data, offset);
+                os.setDescription(readString(data, offset));
+                orders[i] = os;
+            }
+
+            return new Contents(lsn, orders);
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private static long crc(MemorySegment data, long length) {
+        CRC32C crc = new CRC32C();
+        for (long offset = 0; offset < length; offset += CRC_CHUNK) {
+            crc.update(data.asSlice(offset, Math.min(CRC_CHUNK, length - offset)).asByteBuffer());
+        }
+        return crc.getValue();
+    }
+
+    private static int stringBytes(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static int stringBytes(MemorySegment data, long offset) {
+        return Integer.BYTES + Math.max(0, data.get(INT, offset));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MemorySegment data, long offset) {
+        int length = data.get(INT, offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, offset + Integer.BYTES, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
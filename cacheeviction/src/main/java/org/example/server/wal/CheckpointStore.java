@@ -0,0 +1,61 @@
+package org.example.server.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.example.utils.Loggable;
+import org.example.utils.common.OrderService;
+
+/*
+ * Diretório de checkpoints "checkpoint-<LSN>.ckp". Só o mais recente é mantido depois de uma gravação bem-sucedida;
+ * na leitura, um checkpoint corrompido é ignorado em favor do anterior (se ainda existir).
+ */
+public class CheckpointStore implements Loggable {
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".ckp";
+
+    private final Path dir;
+
+    public CheckpointStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    // Checkpoint válido mais recente, ou null se não houver nenhum
+    public CheckpointFile.Contents loadLatest() throws IOException {
+        for (Path file : checkpoints().reversed()) {
+            try {
+                return CheckpointFile.read(file);
+            } catch (IOException e) {
+                warn("Checkpoint ignorado: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    // Grava o checkpoint da versão 'sorted' (que contém o WAL até 'lsn') e apaga os anteriores
+    public Path save(long lsn, int count, Iterable<OrderService> sorted) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        CheckpointFile.write(file, lsn, count, sorted);
+
+        for (Path older : checkpoints()) {
+            if (!older.equals(file)) {
+                Files.delete(older);
+            }
+        }
+        return file;
+    }
+
+    private List<Path> checkpoints() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(Path::toString)) // LSN com largura fixa: ordem alfabética = ordem do LSN
+                    .toList();
+        }
+    }
+}
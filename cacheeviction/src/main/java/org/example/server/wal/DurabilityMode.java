@@ -0,0 +1,22 @@
+package org.example.server.wal;
+
+/*
+ * Quando uma escrita do Servidor é confirmada em relação ao fsync do WAL:
+ *  - PER_OP: cada escrita força o disco antes de responder (escritas concorrentes podem pegar carona no mesmo fsync);
+ *  - BATCHED: a escrita espera o próximo fsync da thread de group commit, que junta tudo que chegou enquanto o
+ *    fsync anterior estava em andamento. Mesma garantia do PER_OP, com muito menos fsyncs sob carga (padrão);
+ *  - ASYNC: responde sem esperar o disco; a thread grava periodicamente e uma queda perde o último intervalo.
+ */
+
+public enum DurabilityMode {
+    PER_OP, BATCHED, ASYNC;
+
+    public static DurabilityMode fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "per-op", "per_op", "perop", "sync" -> PER_OP;
+            case "batched", "group", "group-commit" -> BATCHED;
+            case "async" -> ASYNC;
+            default -> throw new IllegalArgumentException("Modo de durabilidade desconhecido: " + name);
+        };
+    }
+}
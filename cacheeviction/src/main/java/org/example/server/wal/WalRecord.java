@@ -0,0 +1,52 @@
+package org.example.server.wal;
+
+import java.nio.ByteBuffer;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.OrderServiceCodec;
+
+/*
+ * Um registro do WAL: número de sequência (LSN), tipo da operação e a carga.
+ * REGISTER e UPDATE carregam a OS inteira (OrderServiceCodec); REMOVE carrega só o código.
+ */
+public record WalRecord(long lsn, Type type, byte[] payload) {
+
+    public enum Type {
+        REGISTER((byte) 1), UPDATE((byte) 2), REMOVE((byte) 3);
+
+        private final byte code;
+
+        Type(byte code) {
+            this.code = code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static Type fromCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static byte[] orderPayload(OrderService orderService) {
+        return OrderServiceCodec.encode(orderService);
+    }
+
+    public static byte[] codePayload(int code) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(code).array();
+    }
+
+    public OrderService order() {
+        return OrderServiceCodec.decode(payload);
+    }
+
+    public int code() {
+        return ByteBuffer.wrap(payload).getInt();
+    }
+}
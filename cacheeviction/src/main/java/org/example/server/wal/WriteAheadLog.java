@@ -0,0 +1,531 @@
+package org.example.server.wal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.example.utils.Loggable;
+
+/*
+ * Log de escrita antecipada (WAL) do Servidor: toda escrita na árvore vira um registro binário anexado aqui
+ * antes de ser confirmada ao cliente, e na inicialização o log é reaplicado para reconstruir a árvore.
+ *
+ * Formato de cada registro (big-endian):
+ *
+ *   int tamanho (do LSN até o fim da carga) | int CRC32C (do LSN até o fim da carga) | long LSN | byte tipo | carga
+ *
+ * O log é dividido em segmentos "wal-<primeiro LSN>.log" de até segmentBytes, para que um checkpoint possa
+ * apagar os segmentos antigos inteiros. Na reaplicação, o primeiro registro incompleto ou com CRC inválido marca
+ * o fim do log (escrita interrompida por uma queda): o segmento é truncado ali e o que vem depois é descartado.
+ *
+ * Group commit: append() só copia o registro para um buffer em memória (rápido, chamado com o lock de escrita
+ * do Servidor para que a ordem dos LSNs seja a ordem das escritas na árvore). O fsync acontece depois, fora
+ * desse lock, em awaitDurable(): enquanto um fsync está em andamento os próximos registros se acumulam e vão
+ * todos juntos no seguinte. Ver DurabilityMode.
+ */
+
+public class WriteAheadLog implements Loggable, AutoCloseable {
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;     // tamanho + CRC
+    private static final int FIXED_BYTES = Long.BYTES + 1;          // LSN + tipo
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final DurabilityMode mode;
+    private final long segmentBytes;
+    private final long asyncIntervalMillis;
+    private final ReentrantLock ioLock = new ReentrantLock();   // Uma gravação + fsync por vez
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();      // Registro novo, fsync concluído, falha ou fechamento
+
+    // Protegidos por 'lock'
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long nextLsn = 1;
+    private long pendingFirstLsn;                   // 0 = nada pendente
+    private long durableLsn;
+    private IOException failure;
+    private boolean closed;
+
+    // Protegidos por ioLock
+    private FileChannel channel;
+    private long fsyncs;
+
+    private Thread committer;
+    private boolean replayed;
+
+    public WriteAheadLog(Path dir, DurabilityMode mode, long segmentBytes, Duration asyncInterval) throws IOException {
+        this.dir = dir;
+        this.mode = mode;
+        this.segmentBytes = segmentBytes;
+        this.asyncIntervalMillis = Math.max(1, asyncInterval.toMillis());
+        Files.createDirectories(dir);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Recuperação
+
+    // Reaplica os registros com LSN > afterLsn, em ordem, e deixa o log pronto para receber novos registros.
+    // Retorna quantos registros foram entregues ao consumidor.
+    public long replay(long afterLsn, Consumer<WalRecord> consumer) throws IOException {
+        lock.lock();
+        try {
+            return replayLocked(afterLsn, consumer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long replayLocked(long afterLsn, Consumer<WalRecord> consumer) throws IOException {
+        if (replayed) {
+            throw new IllegalStateException("O WAL já foi reaplicado");
+        }
+
+        List<Path> segments = segments();
+        long applied = 0;
+        long lastLsn = afterLsn;
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            long validBytes;
+
+            try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                CRC32C crc = new CRC32C();
+
+                while (true) {
+                    int start = buffer.position();
+                    WalRecord record = read(buffer, crc);
+                    if (record == null) {
+                        buffer.position(start);
+                        break;
+                    }
+                    lastLsn = Math.max(lastLsn, record.lsn());
+                    if (record.lsn() > afterLsn) {
+                        consumer.accept(record);
+                        applied++;
+                    }
+                }
+                validBytes = buffer.position();
+
+                if (validBytes < file.size()) {
+                    warn("WAL: registro incompleto ou corrompido em " + segment.getFileName() + " na posição "
+                            + validBytes + ", descartando o restante do log");
+                }
+            }
+
+            if (validBytes < Files.size(segment)) {
+                try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    file.truncate(validBytes);
+                    file.force(true);
+                }
+                for (Path later : segments.subList(i + 1, segments.size())) {
+                    Files.delete(later);
+                }
+                break;
+            }
+        }
+
+        nextLsn = lastLsn + 1;
+        durableLsn = lastLsn;
+        replayed = true;
+        openForAppend();
+        startCommitter();
+        return applied;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Escrita
+
+    // Anexa o registro ao buffer e devolve o seu LSN. Não espera o disco, ver awaitDurable
+    public long append(WalRecord.Type type, byte[] payload) {
+        lock.lock();
+        try {
+            checkOpen();
+            return appendAt(nextLsn, type, payload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Anexa um registro recebido do primário com o LSN que ele tem lá (replicação): o log do backup fica com os
+    // mesmos LSNs do primário, e depois de promovido ele continua a sequência de onde parou
+    public long append(WalRecord record) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (record.lsn() < nextLsn) {
+                throw new IllegalArgumentException("LSN " + record.lsn() + " fora de ordem, o último é " + (nextLsn - 1));
+            }
+            return appendAt(record.lsn(), record.type(), record.payload());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Chamado com 'lock'
+    private long appendAt(long lsn, WalRecord.Type type, byte[] payload) {
+        nextLsn = lsn + 1;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + FIXED_BYTES + payload.length);
+        record.putInt(FIXED_BYTES + payload.length);
+        record.putInt(0); // CRC, preenchido abaixo
+        record.putLong(lsn);
+        record.put(type.getCode());
+        record.put(payload);
+
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, FIXED_BYTES + payload.length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+
+        pending.write(record.array(), 0, record.capacity());
+        if (pendingFirstLsn == 0) {
+            pendingFirstLsn = lsn;
+        }
+        if (mode == DurabilityMode.BATCHED) {
+            changed.signalAll(); // Acorda a thread de group commit; no ASYNC ela grava por tempo
+        }
+        return lsn;
+    }
+
+    // Espera até o registro 'lsn' estar no disco, conforme o modo de durabilidade
+    public void awaitDurable(long lsn) {
+        switch (mode) {
+            case ASYNC -> checkFailure();
+            case PER_OP -> {
+                if (durableLsn() < lsn) {
+                    flush();
+                }
+                checkFailure();
+            }
+            case BATCHED -> {
+                lock.lock();
+                try {
+                    while (durableLsn < lsn && failure == null && !closed) {
+                        changed.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrompido esperando o WAL", e);
+                } finally {
+                    lock.unlock();
+                }
+                if (durableLsn() < lsn) {
+                    checkFailure();
+                    throw new IllegalStateException("WAL fechado antes de gravar o LSN " + lsn);
+                }
+            }
+        }
+    }
+
+    // Grava e força no disco tudo que está pendente
+    public void flush() {
+        ioLock.lock();
+        try {
+            ByteArrayOutputStream batch;
+            long firstLsn;
+            long lastLsn;
+
+            lock.lock();
+            try {
+                if (pendingFirstLsn == 0 || failure != null) {
+                    return;
+                }
+                batch = pending;
+                firstLsn = pendingFirstLsn;
+                lastLsn = nextLsn - 1;
+                pending = new ByteArrayOutputStream(Math.max(32, batch.size()));
+                pendingFirstLsn = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (channel.size() > 0 && channel.size() >= segmentBytes) { // Segmento vazio nunca é trocado
+                    rollSegment(firstLsn);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                fsyncs++;
+
+                lock.lock();
+                try {
+                    durableLsn = lastLsn;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                erro("WAL: erro ao gravar no disco, escritas suspensas: " + e.getMessage());
+                lock.lock();
+                try {
+                    failure = e;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Descarta o log inteiro e recomeça depois de 'lsn'. Usado quando o estado passa a vir de um checkpoint que já
+    // contém tudo até 'lsn' (snapshot recebido do primário); os registros pendentes também são descartados
+    public void reset(long lsn) throws IOException {
+        ioLock.lock();
+        try {
+            lock.lock();
+            try {
+                checkOpen();
+                pending = new ByteArrayOutputStream();
+                pendingFirstLsn = 0;
+                nextLsn = lsn + 1;
+                durableLsn = lsn;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            channel.close();
+            for (Path segment : segments()) {
+                Files.delete(segment);
+            }
+            channel = FileChannel.open(segmentPath(lsn + 1), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Apaga os segmentos cujos registros têm todos LSN <= lsn (já contidos num checkpoint).
+    // O segmento em uso nunca é apagado. Retorna quantos foram apagados
+    public int deleteSegmentsUpTo(long lsn) throws IOException {
+        List<Path> segments = segments();
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstLsnOf(segments.get(i + 1)) > lsn + 1) { // O próximo segmento começa depois: este tem LSN > lsn
+                break;
+            }
+            Files.delete(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Consultas
+
+    public long lastLsn() {
+        lock.lock();
+        try {
+            return nextLsn - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long durableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFsyncs() {
+        ioLock.lock();
+        try {
+            return fsyncs;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Encerramento
+
+    @Override
+    public void close() {
+        Thread thread;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = committer;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        flush(); // O que sobrou depois da última volta da thread
+        ioLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            erro("WAL: erro ao fechar o segmento: " + e.getMessage());
+        } finally {
+            ioLock.unlock();
+        }
+        lock.lock();
+        try {
+            changed.signalAll(); // Libera quem ainda esperava
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Lê um registro na posição atual; null se o buffer acabou ou o registro está incompleto/corrompido
+    private static WalRecord read(ByteBuffer buffer, CRC32C crc) {
+        if (buffer.remaining() < HEADER_BYTES + FIXED_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (length < FIXED_BYTES || length > buffer.remaining()) {
+            return null;
+        }
+
+        crc.reset();
+        crc.update(buffer.slice(buffer.position(), length));
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        long lsn = buffer.getLong();
+        WalRecord.Type type = WalRecord.Type.fromCode(buffer.get());
+        byte[] payload = new byte[length - FIXED_BYTES];
+        buffer.get(payload);
+
+        return type == null ? null : new WalRecord(lsn, type, payload);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()       // O LSN no nome tem largura fixa, a ordem alfabética é a ordem do log
+                    .toList();
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        List<Path> segments = segments();
+        Path last = segments.isEmpty() ? segmentPath(nextLsn) : segments.get(segments.size() - 1);
+        ioLock.lock();
+        try {
+            channel = FileChannel.open(last, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Chamado com ioLock
+    private void rollSegment(long firstLsn) throws IOException {
+        channel.close();
+        channel = FileChannel.open(segmentPath(firstLsn), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        message("WAL: novo segmento " + segmentPath(firstLsn).getFileName());
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX));
+    }
+
+    private static long firstLsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private void startCommitter() {
+        if (mode == DurabilityMode.PER_OP) {
+            return; // Cada escrita grava por conta própria
+        }
+        committer = new Thread(this::commitLoop, "wal-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    private void commitLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                if (mode == DurabilityMode.ASYNC) {
+                    changed.await(asyncIntervalMillis, TimeUnit.MILLISECONDS); // Grava por tempo, não por escrita
+                } else {
+                    while (pendingFirstLsn == 0 && !closed) {
+                        changed.await();
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            flush();
+        }
+    }
+
+    // Chamado com 'lock'
+    private void checkOpen() {
+        if (!replayed) {
+            throw new IllegalStateException("O WAL precisa ser reaplicado antes de receber registros");
+        }
+        if (closed) {
+            throw new IllegalStateException("WAL fechado");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("WAL indisponível", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
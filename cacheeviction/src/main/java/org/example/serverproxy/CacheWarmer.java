@@ -0,0 +1,163 @@
+package org.example.serverproxy;
+
+import static org.example.utils.Command.DISCONECT;
+import static org.example.utils.Command.SEARCH_BATCH;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.example.utils.JsonSerializable;
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.cluster.ClusterConfig;
+import org.example.utils.common.Cache;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.HotSetSnapshot;
+import org.example.utils.common.OrderService;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/*
+ * Reinício quente da cache do Proxy.
+ * Periodicamente (e no encerramento) grava os códigos quentes da cache num HotSetSnapshot. Na inicialização lê
+ * o snapshot e busca essas OS em lotes (comando SEARCH_BATCH) no shard dono de cada código, numa conexão própria,
+ * antes do Proxy aceitar clientes. Assim um restart sob carga não começa com a cache vazia e MISS em tudo.
+ *
+ * Se o snapshot não existir, estiver corrompido ou o servidor não responder, o Proxy sobe com a cache fria.
+ */
+
+public class CacheWarmer implements Loggable, JsonSerializable {
+    private final Cache cache;
+    private final Path file;
+    private final int maxCodes;
+    private final int batchSize;
+    private ScheduledExecutorService saver;
+
+    public CacheWarmer(Cache cache, Path file, int maxCodes, int batchSize) {
+        this.cache = cache;
+        this.file = file;
+        this.maxCodes = maxCodes;
+        this.batchSize = batchSize;
+    }
+
+    // Busca nos servidores as OS do snapshot e aquece a cache; devolve quantas entraram
+    public int warm(ClusterConfig cluster) {
+        int[] codes;
+        try {
+            codes = HotSetSnapshot.read(file);
+        } catch (IOException e) {
+            erro("Snapshot da cache ignorado: " + e.getMessage());
+            return 0;
+        }
+        if (codes.length == 0) {
+            return 0;
+        }
+        codes = Arrays.copyOf(codes, Math.min(codes.length, maxCodes));
+
+        // Cada código é buscado no shard dono dele
+        List<List<Integer>> byShard = new ArrayList<>();
+        for (int shard = 0; shard < cluster.size(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (int code : codes) {
+            byShard.get(cluster.shardOf(code)).add(code);
+        }
+
+        List<OrderService> found = new ArrayList<>(codes.length);
+        for (int shard = 0; shard < cluster.size(); shard++) {
+            int[] shardCodes = byShard.get(shard).stream().mapToInt(Integer::intValue).toArray();
+            if (shardCodes.length > 0) {
+                found.addAll(warmFrom(cluster.getShard(shard), shardCodes));
+            }
+        }
+
+        cache.warm(found);
+        info("Cache do Proxy aquecida: " + found.size() + " de " + codes.length + " OS do snapshot");
+        return found.size();
+    }
+
+    // Grava o snapshot a cada 'interval' (Duration.ZERO = só no encerramento)
+    public void start(Duration interval) {
+        if (interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        saver.scheduleWithFixedDelay(this::save, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void save() {
+        int[] codes = cache.hotCodes(maxCodes);
+        try {
+            HotSetSnapshot.write(file, codes);
+            message("Snapshot da cache gravado: " + codes.length + " códigos em " + file);
+        } catch (IOException e) {
+            erro("Erro ao gravar snapshot da cache: " + e.getMessage());
+        }
+    }
+
+    // Para a gravação periódica e grava o último snapshot
+    public void close() {
+        if (saver != null) {
+            saver.shutdownNow();
+            saver = null;
+        }
+        save();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private List<OrderService> warmFrom(ProxyInfo serverInfo, int[] codes) {
+        Communicator server = new Communicator("Proxy & Servidor (aquecimento)");
+        server.connect(serverInfo.getHost(), serverInfo.getPort());
+        if (!server.isConnected() || server.receiveTextMessage() == null) { // Descarta o menu do servidor
+            erro("Servidor " + serverInfo.getHost() + ":" + serverInfo.getPort() + " indisponível, "
+                    + codes.length + " OS do snapshot ficam de fora");
+            return List.of();
+        }
+
+        List<OrderService> found = new ArrayList<>(codes.length);
+        try {
+            for (int from = 0; from < codes.length; from += batchSize) {
+                int[] batch = Arrays.copyOfRange(codes, from, Math.min(codes.length, from + batchSize));
+                found.addAll(fetch(server, batch));
+            }
+        } catch (RuntimeException e) {
+            erro("Erro ao aquecer a cache, seguindo com " + found.size() + " OS: " + e.getMessage());
+        } finally {
+            if (server.isConnected()) {
+                server.sendJsonMessage(DISCONECT);
+                server.disconnect();
+            }
+        }
+        return found;
+    }
+
+    private List<OrderService> fetch(Communicator server, int[] codes) {
+        try {
+            server.sendJsonMessage(SEARCH_BATCH);
+            server.sendJsonMessage(objectMapper.writeValueAsString(codes));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar lote de códigos", e);
+        }
+
+        List<OrderService> found = server.receiveOrders();
+
+        if (found == null) {
+            throw new IllegalStateException("Servidor Principal não respondeu a busca em lote");
+        }
+        return found;
+    }
+}
@@ -5,6 +5,8 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -15,10 +17,14 @@ import static org.example.utils.Command.DISCONECT;
 import static org.example.utils.Command.ERROR;
 import static org.example.utils.Command.INVALID;
 import static org.example.utils.Command.LIST;
+import static org.example.utils.Command.LIST_RANGE;
+import static org.example.utils.Command.MULTIPLEX;
 import static org.example.utils.Command.QUANTITY;
 import static org.example.utils.Command.REGISTER;
 import static org.example.utils.Command.REMOVE;
 import static org.example.utils.Command.SEARCH;
+import static org.example.utils.Command.SEARCH_TEXT;
+import static org.example.utils.Command.STATS;
 import static org.example.utils.Command.SUCCESS;
 import static org.example.utils.Command.UPDATE;
 import org.example.utils.JsonSerializable;
@@ -26,9 +32,22 @@ import org.example.utils.Loggable;
 import org.example.utils.Menu;
 import org.example.utils.ProxyInfo;
 import org.example.utils.User;
+import org.example.utils.cluster.ClusterConfig;
 import org.example.utils.common.Cache;
 import org.example.utils.common.Communicator;
+import org.example.utils.common.MultiplexedSession;
+import org.example.utils.common.NegativeCache;
+import org.example.utils.common.OrderPage;
+import org.example.utils.common.PageCursor;
 import org.example.utils.common.OrderService;
+import org.example.utils.common.RangeRequest;
+import org.example.utils.common.SingleFlight;
+import org.example.utils.common.ConnectionDispatcher;
+import org.example.utils.common.TransportMode;
+import org.example.utils.common.interfaces.ConnectionHandler;
+import org.example.utils.common.nio.NioConnection;
+import org.example.utils.common.nio.NioTransport;
+import org.example.utils.common.eviction.EvictionPolicyType;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -39,18 +58,45 @@ public class Proxy implements Loggable, JsonSerializable {
     private final int port;                                                                 // Porta do servidor
     private final Menu actions;                                                             // Menu de ações do servidor
     private volatile Cache cache;                                                           // Cache de dados
+    private final NegativeCache negativeCache;                                              // Códigos inexistentes no servidor
+    private final SingleFlight<OrderService> searchesInFlight = new SingleFlight<>();       // Buscas em andamento no servidor
+    private final WriteMode writeMode;                                                      // Propagação das escritas
+    private final boolean debugCache = Boolean.getBoolean("cache.debug");                  // -Dcache.debug=true imprime a cache a cada operação
+    private WriteBehindQueue writeBehind;                                                   // Fila do modo WRITE_BEHIND
+    private final CacheWarmer warmer;                                                       // Snapshot e reinício quente
     Authenticator authenticator;                                                            // Autenticador
     private ServerSocket serverSocket;                                                      // Socket do servidor
-    private final ProxyInfo serverInfo;                                                     // Informações do servidor principal
-    private final Object cacheLock = new Object();                                          // Lock para sincronização da cache
+    private NioTransport transport;                                                         // Com -Dtransport=nio
+    private final ConnectionDispatcher dispatcher = ConnectionDispatcher.fromSystemProperties("Proxy & Cliente");
+    private final ServerPool pool = ServerPool.fromSystemProperties();                      // Conexões com os Servidores
+    private final int multiplexInFlight = Integer.getInteger("proxy.multiplex.inflight", 256); // -Dproxy.multiplex.inflight=N por cliente
+    private final ClusterConfig cluster;                                                    // Servidores principais (shards)
+    private ReplicaMonitor replicas;                                                        // Backups dos shards (leituras e failover)
     private final List<Command> commands = new ArrayList<>();                               // Lista de comandos
     private volatile AtomicBoolean running = new AtomicBoolean(true);          // Flag de controle de exec
     private static final ThreadLocal<Communicator> cliCommunicator = new ThreadLocal<>();   // Comunicador do cliente
-    private static final ThreadLocal<Communicator> serCommunicator = new ThreadLocal<>();   // Comunicador do servidor
+    private static final ThreadLocal<ShardConnections> serConnections = new ThreadLocal<>(); // Conexões com os shards
+    private static final ThreadLocal<Integer> authAttempts = new ThreadLocal<>();           // Tentativas de autenticação erradas
+
+    // cache.show() trava todos os segmentos e imprime a cache inteira: só com -Dcache.debug
+    private void showCache() {
+        if (debugCache) {
+            cache.show();
+        }
+    }
 
     public Proxy() {
         this.port = 15552;
-        cache = new Cache();
+        cache = new Cache(Integer.getInteger("cache.capacity", 30),    // -Dcache.capacity=N
+                EvictionPolicyType.fromName(System.getProperty("cache.policy", "lru")),  // -Dcache.policy=lru|lfu|arc|sieve|w-tinylfu
+                Integer.getInteger("cache.segments", Runtime.getRuntime().availableProcessors()),  // -Dcache.segments=N
+                Duration.ofMillis(Long.getLong("cache.ttl", 300_000)),   // -Dcache.ttl=ms (0 = sem expiração)
+                Long.getLong("cache.offheap.mb", 0) * 1024 * 1024);     // -Dcache.offheap.mb=N (0 = desativado)
+        info("Cache do Proxy: política " + cache.getPolicyName() + ", capacidade " + cache.capacity()
+                + ", segmentos " + cache.getSegments() + ", TTL " + cache.getDefaultTtl().toMillis() + "ms"
+                + ", fora do heap " + Long.getLong("cache.offheap.mb", 0) + "MiB");
+        negativeCache = new NegativeCache(Integer.getInteger("cache.negative.capacity", 10_000),   // -Dcache.negative.capacity=N
+                Duration.ofMillis(Long.getLong("cache.negative.ttl", 5_000)));                     // -Dcache.negative.ttl=ms
         this.actions = new Menu();
         try {
             this.host = InetAddress.getLocalHost().getHostAddress();
@@ -58,9 +104,31 @@ public class Proxy implements Loggable, JsonSerializable {
             erro("Erro ao obter o endereço IP do host: " + e.getMessage());
             this.host = "26.137.178.91";
         }
-        //this.serverInfo = new ProxyInfo("26.97.230.179", 15553);      // RemoteHost
-        this.serverInfo = new ProxyInfo(host, 15553);          // LocalHost
+        //this.cluster = new ClusterConfig(List.of(new ProxyInfo("26.97.230.179", 15553)), 64);      // RemoteHost
+        this.cluster = ClusterConfig.fromSystemProperties(host, 15553);          // LocalHost; -Dcluster.shards=host:porta,...
+        info("Cluster: " + cluster.size() + " Servidores " + cluster.getShards());
+        if (cluster.hasReplicas()) {
+            this.replicas = new ReplicaMonitor(cluster,
+                    Duration.ofMillis(Long.getLong("proxy.replica.poll", 500)),            // -Dproxy.replica.poll=ms
+                    Long.getLong("proxy.replica.max.lag", 1_000),                          // -Dproxy.replica.max.lag=ms (-1 = sem limite)
+                    Long.getLong("proxy.failover", 0));                                    // -Dproxy.failover=ms (0 = promoção manual)
+            info("Backups: " + cluster.getReplicas());
+        }
         this.authenticator = new Authenticator("cacheeviction/src/main/java/org/example/serverproxy/credenciais.txt");
+        this.writeMode = WriteMode.fromName(System.getProperty("cache.write", "through"));  // -Dcache.write=through|behind
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            this.writeBehind = new WriteBehindQueue(cluster,
+                    Duration.ofMillis(Long.getLong("cache.write.flush", 200)),      // -Dcache.write.flush=ms
+                    Integer.getInteger("cache.write.batch", 500),                   // -Dcache.write.batch=N
+                    code -> cache.remove(code));
+        }
+        info("Modo de escrita do Proxy: " + writeMode);
+        this.warmer = new CacheWarmer(cache,
+                Path.of(System.getProperty("cache.snapshot.file", "cacheeviction/cache-hotset.bin")),  // -Dcache.snapshot.file=caminho
+                Integer.getInteger("cache.snapshot.size", cache.capacity()),                          // -Dcache.snapshot.size=N
+                500);
+        warmer.warm(cluster); // Antes de aceitar clientes
+        warmer.start(Duration.ofMillis(Long.getLong("cache.snapshot.interval", 60_000)));           // -Dcache.snapshot.interval=ms (0 = só no stop)
         initializeDefaultActions();
         createServerSocket();
     }
@@ -68,19 +136,27 @@ public class Proxy implements Loggable, JsonSerializable {
     private void initializeDefaultActions() {
         commands.add(AUTHENTICATE);
         commands.add(DISCONECT);
-        actions.put(SEARCH, ()      -> searchOS(cliCommunicator.get(), serCommunicator.get()));
-        actions.put(REGISTER, ()    -> registerOS(cliCommunicator.get(), serCommunicator.get()));
-        actions.put(LIST, ()        -> listOS(cliCommunicator.get(), serCommunicator.get()));
-        actions.put(UPDATE, ()      -> updateOS(cliCommunicator.get(), serCommunicator.get()));
-        actions.put(REMOVE, ()      -> removeOS(cliCommunicator.get(), serCommunicator.get()));
-        actions.put(QUANTITY, ()    -> quantityRecords(cliCommunicator.get(), serCommunicator.get()));
+        actions.put(SEARCH, ()      -> searchOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(REGISTER, ()    -> registerOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(LIST, ()        -> listOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(LIST_RANGE, ()  -> listRangeOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(SEARCH_TEXT, () -> searchTextOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(UPDATE, ()      -> updateOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(REMOVE, ()      -> removeOS(cliCommunicator.get(), serConnections.get()));
+        actions.put(QUANTITY, ()    -> quantityRecords(cliCommunicator.get(), serConnections.get()));
+        actions.put(STATS, ()       -> sendStats(cliCommunicator.get()));
+        actions.put(MULTIPLEX, ()   -> multiplex(cliCommunicator.get()));
         actions.put(DISCONECT, ()   -> clearSpacesAndDisconnect());
         actions.put(AUTHENTICATE,() -> authenticate(cliCommunicator.get()));
     }
 
     private void createServerSocket() {
+        if (TransportMode.preferred() == TransportMode.NIO) {
+            createNioTransport();
+            return;
+        }
         try {
-            serverSocket = new ServerSocket(port, 50, InetAddress.getByName(host)); // RemoteHost
+            serverSocket = new ServerSocket(port, dispatcher.getBacklog(), InetAddress.getByName(host)); // RemoteHost
             //serverSocket = new ServerSocket(port); // LocalHost
             info("Servidor Proxy rodando na porta: " + serverSocket.getLocalPort());
             info("Digite 'stop' a qualquer momento para encerrar o Servidor Proxy");
@@ -91,7 +167,7 @@ public class Proxy implements Loggable, JsonSerializable {
                     startCommandListener();
 
                     Socket client = serverSocket.accept();
-                    new Thread(() -> handleClient(client)).start();
+                    dispatcher.dispatch(client, this::handleClient);
                 } catch (IOException e) {
                     erro("Erro ao tentar conectar com o Cliente: " + e.getMessage());
                 }
@@ -104,6 +180,25 @@ public class Proxy implements Loggable, JsonSerializable {
         }
     }
 
+    // Laços de eventos no lugar do accept com uma thread por conexão; o construtor fica preso aqui até o stop
+    private void createNioTransport() {
+        try {
+            transport = NioTransport.fromSystemProperties("Proxy & Cliente", host, port, new NioHandler());
+            info("Servidor Proxy rodando na porta: " + transport.getPort() + " (NIO, " + transport.getLoopCount()
+                    + " laços de eventos, " + transport.getWorkerCount() + " trabalhadores)");
+            info("Digite 'stop' a qualquer momento para encerrar o Servidor Proxy");
+            startCommandListener();
+            transport.awaitTermination();
+        } catch (IOException e) {
+            erro("Erro ao tentar criar o Servidor Proxy!");
+            throw new RuntimeException("Erro ao tentar criar o Servidor Proxy!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopServer();
+        }
+    }
+
     private void handleClient(Socket client) {
         if (client == null) {
             erro("Erro ao tentar conectar com o Cliente: Socket nulo!");
@@ -118,20 +213,7 @@ public class Proxy implements Loggable, JsonSerializable {
 
             // Intermediação de mensagens entre o cliente e o servidor principal
             while (running.get() && clientcommunicator.isConnected()) {
-                Command option = clientcommunicator.receiveJsonMessage(Command.class);
-
-                if (actions.get(option) != null) {
-                    if (option == AUTHENTICATE || option == DISCONECT) {
-                        actions.get(option).run();
-                    } else if (serCommunicator.get() != null && serCommunicator.get().isConnected()){
-                        actions.get(option).run();
-                    } else {
-                        erro("Servidor Principal não está conectado!");
-                        clearSpacesAndDisconnect();
-                    }
-                } else {
-                    erro("Cliente enviou uma opção inválida para o Proxy!");
-                }
+                handleRequest(clientcommunicator);
             }
             // Caso o cliente se desconecte abruptamente preciso capturar a exceção
         } catch (Exception e) {
@@ -141,6 +223,93 @@ public class Proxy implements Loggable, JsonSerializable {
         }
     }
 
+    // Uma requisição do cliente (com o cliCommunicator e o serConnections da thread definidos)
+    private void handleRequest(Communicator clientcommunicator) {
+        handleRequest(clientcommunicator, null);
+    }
+
+    // 'connection' não nulo no transporte NIO: a sessão de pipelining sai do pool de trabalho (handOff)
+    private void handleRequest(Communicator clientcommunicator, NioConnection connection) {
+        Command option = clientcommunicator.receiveJsonMessage(Command.class);
+
+        if (actions.get(option) != null) {
+            if (option == AUTHENTICATE || option == DISCONECT) {
+                actions.get(option).run();
+            } else if (serConnections.get() != null && serConnections.get().isConnected()){
+                if (option == MULTIPLEX) {
+                    Runnable session = actions.get(option); // A sessão dura a conexão toda; cada requisição dela passa pelo limite
+                    if (connection == null) {
+                        session.run();
+                    } else {
+                        ShardConnections servers = serConnections.get();
+                        connection.handOff(() -> {
+                            cliCommunicator.set(clientcommunicator);
+                            serConnections.set(servers);
+                            try {
+                                session.run();
+                            } finally {
+                                cliCommunicator.remove();
+                                serConnections.remove();
+                            }
+                        });
+                    }
+                } else {
+                    dispatcher.admit(clientcommunicator, option, actions.get(option)); // A espera pelo comando e pelos dados fica fora do limite
+                }
+            } else {
+                erro("Servidor Principal não está conectado!");
+                clearSpacesAndDisconnect();
+            }
+        } else {
+            erro("Cliente enviou uma opção inválida para o Proxy!");
+        }
+    }
+
+    // O mesmo atendimento do handleClient no pool do transporte NIO. As conexões com os shards de cada cliente
+    // (ou, antes de autenticar, as tentativas erradas) ficam na própria conexão entre uma requisição e outra, já
+    // que a thread muda
+    private class NioHandler implements ConnectionHandler {
+        @Override
+        public void opened(NioConnection connection) {
+            cliCommunicator.set(connection.getCommunicator());
+            try {
+                sendMenuProxy(connection.getCommunicator());
+            } finally {
+                cliCommunicator.remove();
+            }
+        }
+
+        @Override
+        public void request(NioConnection connection) {
+            cliCommunicator.set(connection.getCommunicator());
+            if (connection.getAttachment() instanceof ShardConnections servers) {
+                serConnections.set(servers);
+            } else if (connection.getAttachment() instanceof Integer attempts) {
+                authAttempts.set(attempts);
+            }
+            try {
+                handleRequest(connection.getCommunicator(), connection);
+            } catch (Exception e) {
+                erro("Erro ao tentar intermediar a comunicação entre o Cliente e o Servidor Principal: " + e.getMessage());
+                clearSpacesAndDisconnect();
+            } finally {
+                // null depois do DISCONECT
+                connection.setAttachment(serConnections.get() != null ? serConnections.get() : authAttempts.get());
+                cliCommunicator.remove();
+                serConnections.remove();
+                authAttempts.remove();
+            }
+        }
+
+        @Override
+        public void closed(NioConnection connection) {
+            if (connection.getAttachment() instanceof ShardConnections servers) {
+                servers.disconnect(); // Cliente caiu sem DISCONECT
+                connection.setAttachment(null);
+            }
+        }
+    }
+
     private void clearSpacesAndDisconnect() {
         try {
             if (cliCommunicator.get() != null) {
@@ -149,13 +318,11 @@ public class Proxy implements Loggable, JsonSerializable {
                 }
                 cliCommunicator.remove();
             }
-            if (serCommunicator.get() != null) {
-                if (serCommunicator.get().isConnected()) {
-                    serCommunicator.get().sendJsonMessage(DISCONECT);
-                    serCommunicator.get().disconnect();
-                }
-                serCommunicator.remove();
+            if (serConnections.get() != null) {
+                serConnections.get().disconnect();
+                serConnections.remove();
             }
+            authAttempts.remove();
 
         } catch (Exception e) {
             erro("Proxy: Erro ao fechar/limpar conexão com o cliente: " + e);
@@ -177,50 +344,37 @@ public class Proxy implements Loggable, JsonSerializable {
         clearSpacesAndDisconnect();
     }
 
+    // Uma tentativa por requisição: depois de INVALID o cliente manda outro AUTHENTICATE com as credenciais, então
+    // ninguém fica esperando o usuário digitar a senha (no transporte NIO, um trabalhador do pool)
     private void authenticate(Communicator clientcommunicator) {
-        boolean authenticated = false;
-        int attempts = 1;
+        User clientCredentials = clientcommunicator.receiveJsonMessage(User.class);
+        int attempts = authAttempts.get() == null ? 1 : authAttempts.get() + 1;
 
-        // Autenticação do cliente
-        while (running.get() && attempts <= 3) {
-            User clientCredentials = clientcommunicator.receiveJsonMessage(User.class);
+        boolean authenticated = clientCredentials != null
+                && authenticator.authenticate(clientCredentials.getLogin(), clientCredentials.getPassword());
 
-            authenticated = authenticator.authenticate(clientCredentials.getLogin(), clientCredentials.getPassword());
-
-            attempts++;
-
-            if (authenticated) {
-                clientcommunicator.sendJsonMessage(SUCCESS);
-                break;
-            } else {
-                if (attempts == 4) {
-                    warn("Número máximo de tentativas de autenticação excedido!");
-                    clientcommunicator.sendJsonMessage(ERROR);
-                    clientcommunicator.disconnect();
-                    return;
-                }
-                else {
-                    clientcommunicator.sendJsonMessage(INVALID);
-                }
-            }
-        }
-        
-        // Se autenticado, conecta com o servidor principal
         if (authenticated) {
-            conectServer(clientcommunicator);
-        } else {
+            authAttempts.remove();
+            clientcommunicator.sendJsonMessage(SUCCESS);
+            conectServer(clientcommunicator); // Se autenticado, conecta com o servidor principal
+        } else if (attempts >= 3) {
+            warn("Número máximo de tentativas de autenticação excedido!");
+            clientcommunicator.sendJsonMessage(ERROR);
             clearSpacesAndDisconnect();
+        } else {
+            authAttempts.set(attempts);
+            clientcommunicator.sendJsonMessage(INVALID);
         }
     }
 
     private void conectServer(Communicator clientcommunicator){
-        // Cria conexão com o servidor principal
-        Communicator serverCommunicator = new Communicator("Proxy & Servidor");
-        serverCommunicator.connect(serverInfo.getHost(), serverInfo.getPort());
-        serCommunicator.set(serverCommunicator);
+        // Conexões com os servidores principais (um por shard), pelo pool compartilhado
+        ShardConnections servers = new ShardConnections(cluster, replicas, pool);
+        serConnections.set(servers);
+        String menu = servers.connect();
 
         // Recebe menu do servidor principal
-        List<Command> serverCommands = JsonSerializable.fromJson(serverCommunicator.receiveTextMessage(), new TypeReference<>() {});;
+        List<Command> serverCommands = menu == null ? null : JsonSerializable.fromJson(menu, new TypeReference<>() {});
 
         if (serverCommands == null) {
             erro("Erro ao receber/enviar menu do Servidor Principal!");
@@ -228,6 +382,10 @@ public class Proxy implements Loggable, JsonSerializable {
             return;
         }
 
+        serverCommands.removeIf(command -> actions.get(command) == null); // Comandos internos não vão para o cliente
+        serverCommands.remove(MULTIPLEX);                                  // Pedido pelo Communicator.pipeline, não pelo menu
+        serverCommands.add(STATS);                                         // Respondido pelo Proxy, sem o servidor
+
         for (int i = 0; i < 3; i++) {
             try {
                 if (serverCommands != null) {
@@ -241,91 +399,299 @@ public class Proxy implements Loggable, JsonSerializable {
         }               
     }
 
-    private void quantityRecords(Communicator clientcommunicator, Communicator servecommunicator) {
-        servecommunicator.sendJsonMessage(QUANTITY);
+    // Cliente com pipelining (Communicator.pipeline): daqui em diante só chegam Envelopes, atendidos ao mesmo tempo e
+    // respondidos fora de ordem. Cada requisição roda numa thread própria com o seu Communicator em memória e as suas
+    // ShardConnections, que vão pelo mesmo pool das demais
+    private void multiplex(Communicator clientcommunicator) {
+        clientcommunicator.sendJsonMessage(SUCCESS);
+        long requests = new MultiplexedSession(clientcommunicator, multiplexInFlight, request -> {
+            ShardConnections servers = new ShardConnections(cluster, replicas, pool);
+            cliCommunicator.set(request);
+            serConnections.set(servers);
+            try {
+                if (servers.connect() != null) {
+                    handleRequest(request);
+                }
+            } finally {
+                servers.disconnect();
+                cliCommunicator.remove();
+                serConnections.remove();
+            }
+        }).serve();
+        info("Pipelining do cliente encerrado depois de " + requests + " requisições");
+        clearSpacesAndDisconnect(); // O Communicator do cliente ainda é o da thread
+    }
 
-        int response = Integer.parseInt(servecommunicator.receiveTextMessage());
-        clientcommunicator.sendTextMessage(String.valueOf(response));
+    private void sendStats(Communicator clientcommunicator) {
+        clientcommunicator.sendJsonMessage(cache.report()); // Só a cache do Proxy, o servidor não é consultado
     }
 
-    private void removeOS(Communicator clientcommunicator, Communicator servecommunicator) {
-        servecommunicator.sendJsonMessage(REMOVE); // Envia a ação de remoção para o servidor principal
+    private void quantityRecords(Communicator clientcommunicator, ShardConnections servers) {
+        Communicator[] readers = servers.allForRead(); // Primário ou backup em dia de cada shard
+        for (Communicator server : readers) {
+            server.sendJsonMessage(QUANTITY); // Todos os shards contam ao mesmo tempo
+        }
 
+        long total = 0;
+        for (Communicator server : readers) {
+            total += Long.parseLong(server.receiveTextMessage());
+        }
+        clientcommunicator.sendTextMessage(String.valueOf(total));
+    }
+
+    private void removeOS(Communicator clientcommunicator, ShardConnections servers) {
         int code = Integer.parseInt(clientcommunicator.receiveTextMessage()); // Recebe do cliente
+        Communicator servecommunicator = servers.forCode(code);              // Shard dono do código
+
+        servecommunicator.sendJsonMessage(REMOVE); // Envia a ação de remoção para o servidor principal
 
-        synchronized (cacheLock) {
-            cache.remove(code);
+        if (writeBehind != null) {
+            writeBehind.discard(code); // Uma alteração pendente não pode ressuscitar a OS
         }
 
-        cache.show();
+        servecommunicator.sendTextMessage(Integer.toString(code)); // Envia o ID para o servidor principal
 
-        servecommunicator.sendTextMessage(Integer.toString(code)); // Recebe o ID do cliente e envia para o servidor principal
+        String response = servecommunicator.receiveTextMessage(); // Recebe a confirmação de remoção
+        String refused = refusal(servecommunicator, response);
 
-        clientcommunicator.sendTextMessage(servecommunicator.receiveTextMessage()); // Recebe a confirmação de remoção e envia para o cliente
-    }
+        // Invalida depois do servidor: uma busca que começar agora já não acha a OS, e uma que já estava no servidor
+        // vê a geração mudar e não a insere de volta (insertIfUnchanged no fetchFromServer)
+        cache.remove(code);
 
-    private void updateOS(Communicator clientcommunicator, Communicator servecommunicator) {
-        servecommunicator.sendJsonMessage(UPDATE); // Envia a ação de atualização para o servidor principal
+        if (refused != null) {
+            response = "Escrita recusada pelo Servidor: " + refused;
+        }
+
+        showCache();
+
+        clientcommunicator.sendTextMessage(response); // Envia a confirmação para o cliente
+    }
 
+    private void updateOS(Communicator clientcommunicator, ShardConnections servers) {
         OrderService os = clientcommunicator.receiveJsonMessage(OrderService.class); // Recebe do cliente
+        Communicator servecommunicator = servers.forCode(os.getCode());              // Shard dono do código
 
-        synchronized (cacheLock) { // Atualiza na cache
-            cache.alter(os);
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            cache.insert(os);       // A cache passa a ter o valor novo na hora
+            writeBehind.enqueue(os); // O servidor recebe no próximo lote
+            showCache();
+            clientcommunicator.sendTextMessage("Dado alterado com sucesso!");
+            return;
         }
 
-        cache.show();
+        servecommunicator.sendJsonMessage(UPDATE); // Envia a ação de atualização para o servidor principal
 
         servecommunicator.sendJsonMessage(os); // Envia os dados dá OS para o servidor principal
 
-        clientcommunicator.sendTextMessage(servecommunicator.receiveTextMessage()); // Recebe a confirmação de atualização e envia para o cliente
+        String reply = servecommunicator.receiveTextMessage(); // Recebe a confirmação de atualização
+        String refused = refusal(servecommunicator, reply);
+        OrderService updated = refused != null || reply == null ? null : JsonSerializable.fromJson(reply, OrderService.class);
+
+        if (refused != null) {
+            cache.remove(os.getCode()); // O Servidor pode ter aplicado antes de falhar: a próxima leitura vai até ele
+            clientcommunicator.sendTextMessage("Escrita recusada pelo Servidor: " + refused);
+        } else if (updated != null && updated.getRequestTime() != null) {
+            cache.alter(updated); // Write-through: a cache só muda depois que o servidor confirmou (e uma busca em andamento não sobrescreve)
+            showCache();
+            clientcommunicator.sendTextMessage("Dado alterado com sucesso!");
+        } else {
+            clientcommunicator.sendTextMessage("Dado não encontrado na árvore!");
+        }
     }
 
-    private void listOS(Communicator clientcommunicator, Communicator servecommunicator) {
-        servecommunicator.sendJsonMessage(LIST); // Envia a ação de listagem para o servidor principal
+    private void listOS(Communicator clientcommunicator, ShardConnections servers) {
+        Communicator[] readers = servers.allForRead(); // Primário ou backup em dia de cada shard
+        for (Communicator server : readers) {
+            server.sendJsonMessage(LIST); // Envia a ação de listagem para todos os shards
+        }
 
-        List<OrderService> osList = JsonSerializable.fromJson(servecommunicator.receiveTextMessage(), new TypeReference<>() {
-        }); // Recebe do server
+        List<List<OrderService>> lists = new ArrayList<>();
+        for (Communicator server : readers) {
+            lists.add(server.receiveOrders()); // Recebe de cada shard, já em ordem de código
+        }
 
-        try {
-            clientcommunicator.sendJsonMessage(objectMapper.writeValueAsString(osList)); // Envia para o cliente
-        } catch (JsonProcessingException e) {
-            clientcommunicator.sendJsonMessage(new ArrayList<OrderService>()); // Envia lista vazia
-            erro("Erro ao enviar lista de ordens de serviço (PROXY)!");
+        clientcommunicator.sendOrders(ShardConnections.merge(lists, Integer.MAX_VALUE)); // Envia para o cliente
+    }
+
+    private void listRangeOS(Communicator clientcommunicator, ShardConnections servers) {
+        RangeRequest request = clientcommunicator.receiveJsonMessage(RangeRequest.class); // Recebe do cliente
+
+        if (servers.size() == 1) {
+            servers.all()[0].sendJsonMessage(LIST_RANGE); // Envia a ação de listagem por faixa para o servidor principal
+            servers.all()[0].sendJsonMessage(request);
+
+            // A página é repassada como veio, sem desserializar: o Proxy só guarda uma página por vez
+            String page = servers.all()[0].receiveTextMessage();
+            clientcommunicator.sendTextMessage(page != null ? page : new OrderPage().toJson());
+            return;
+        }
+
+        // Cada shard devolve a sua página a partir do mesmo cursor (o cursor é só o último código já entregue).
+        // Só dá para entregar até o último código de cada shard que ainda tem mais: depois dele podem faltar OS
+        OrderPage page = new OrderPage();
+        if (request == null) {
+            clientcommunicator.sendJsonMessage(page);
+            return;
+        }
+        for (Communicator server : servers.all()) {
+            server.sendJsonMessage(LIST_RANGE);
+            server.sendJsonMessage(request);
+        }
+        List<List<OrderService>> pages = new ArrayList<>();
+        int bound = Integer.MAX_VALUE;
+        boolean more = false;
+        for (Communicator server : servers.all()) {
+            OrderPage shardPage = server.receiveJsonMessage(OrderPage.class);
+            if (shardPage == null) {
+                continue;
+            }
+            pages.add(shardPage.getOrders());
+            if (shardPage.getNextCursor() != null && !shardPage.getOrders().isEmpty()) {
+                more = true;
+                bound = Math.min(bound, shardPage.getOrders().get(shardPage.getOrders().size() - 1).getCode());
+            }
+        }
+
+        List<OrderService> merged = ShardConnections.merge(pages, Integer.MAX_VALUE);
+        int pageSize = Math.max(1, request.getPageSize());
+        for (OrderService os : merged) {
+            if (page.getOrders().size() == pageSize || os.getCode() > bound) {
+                break;
+            }
+            page.getOrders().add(os);
+        }
+        if (!page.getOrders().isEmpty() && (more || merged.size() > page.getOrders().size())) {
+            int last = page.getOrders().get(page.getOrders().size() - 1).getCode();
+            page.setNextCursor(PageCursor.encode(last, request.getFrom(), request.getTo()));
+        }
+        clientcommunicator.sendJsonMessage(page);
+    }
+
+    private void searchTextOS(Communicator clientcommunicator, ShardConnections servers) {
+        String query = clientcommunicator.receiveTextMessage(); // Recebe o texto do cliente
+
+        for (Communicator server : servers.all()) {
+            server.sendJsonMessage(SEARCH_TEXT); // Envia a ação de busca por texto para todos os shards
+            server.sendTextMessage(query);
         }
+
+        // Quem resolve a busca é o índice invertido de cada shard, não a cache
+        List<List<OrderService>> results = new ArrayList<>();
+        for (Communicator server : servers.all()) {
+            results.add(server.receiveOrders());
+        }
+        clientcommunicator.sendOrders(ShardConnections.merge(results, Integer.MAX_VALUE));
     }
 
-    private void registerOS(Communicator clientcommunicator, Communicator servecommunicator) {
+    private void registerOS(Communicator clientcommunicator, ShardConnections servers) {
+        Communicator servecommunicator = servers.forRegister(); // O shard escolhe o código dentro dos blocos dele
+
         servecommunicator.sendJsonMessage(REGISTER); // Envia a ação de cadastro para o servidor principal
 
         servecommunicator.sendJsonMessage(clientcommunicator.receiveJsonMessage(OrderService.class)); // Recebe do cliente & Envia para o server
 
-        clientcommunicator.sendTextMessage(servecommunicator.receiveTextMessage()); // Recebe a confirmação de cadastro e envia para o cliente
+        String reply = servecommunicator.receiveTextMessage(); // Recebe a OS cadastrada (com o código)
+        String refused = refusal(servecommunicator, reply);
+        OrderService registered = refused != null || reply == null ? null : JsonSerializable.fromJson(reply, OrderService.class);
+
+        if (refused != null) {
+            clientcommunicator.sendTextMessage("Escrita recusada pelo Servidor: " + refused);
+        } else if (registered != null && registered.getRequestTime() != null) {
+            negativeCache.invalidate(registered.getCode()); // O código passou a existir
+            cache.insert(registered);                       // A primeira leitura da OS nova já é HIT
+            clientcommunicator.sendTextMessage("Dado cadastrado com sucesso! Código: " + registered.getCode());
+        } else {
+            clientcommunicator.sendTextMessage("Dado já existe na árvore!");
+        }
+    }
+
+    // Escrita que o Servidor não confirmou (é um backup, ou o WAL dele falhou): ERROR seguido do motivo no lugar
+    // da resposta de sempre. Devolve o motivo, ou null se 'reply' é a resposta de sempre
+    private static String refusal(Communicator servecommunicator, String reply) {
+        return ERROR.toJson().equals(reply) ? servecommunicator.receiveTextMessage() : null;
     }
 
-    private void searchOS(Communicator clientcommunicator, Communicator servecommunicator) {
+    private void searchOS(Communicator clientcommunicator, ShardConnections servers) {
         OrderService os = clientcommunicator.receiveJsonMessage(OrderService.class);
 
         OrderService osCache = cache.search(os.getCode());
 
-        if (osCache == null) { // Se não encontrar na cache
-            servecommunicator.sendJsonMessage(SEARCH); // Envia a ação de busca para o servidor principal
-
-            servecommunicator.sendJsonMessage(os); // Envia para o server
+        if (osCache == null && writeBehind != null) {
+            osCache = writeBehind.pending(os.getCode()); // Alteração ainda não enviada ao servidor
+        }
 
-            osCache = servecommunicator.receiveJsonMessage(OrderService.class); // Recebe do server
-            
-            if (osCache.getRequestTime() != null) { 
-                synchronized (cacheLock) {
-                    cache.insert(osCache);
-                }
+        if (osCache == null && negativeCache.isKnownMissing(os.getCode())) { // O servidor já disse que não existe
+            message("OS " + os.getCode() + " inexistente (cache negativa), servidor não consultado");
+            osCache = new OrderService();
+        } else if (osCache == null) { // Se não encontrar na cache
+            if (searchesInFlight.isLoading(os.getCode())) {
+                message("Busca da OS " + os.getCode() + " já em andamento no servidor, aguardando o mesmo resultado");
             }
+            // Só a primeira thread com MISS nesse código vai ao servidor, as demais compartilham a resposta
+            osCache = searchesInFlight.load(os.getCode(), () -> fetchFromServer(os, servers));
         }
 
-        cache.show();
+        showCache();
 
         clientcommunicator.sendJsonMessage(osCache);    // Envia para o cliente
     }
 
+    // Busca no primário ou num backup em dia. Um backup pode ainda não ter uma OS recém-cadastrada, então um MISS
+    // dele é refeito no primário, e só o MISS do primário entra na cache negativa. Um HIT do backup fica na cache
+    // no máximo o atraso aceito (proxy.replica.max.lag), e não o TTL inteiro, para a staleness continuar limitada
+    // O valor só entra se nenhuma escrita no código aconteceu desde antes da ida ao servidor (Cache.generation)
+    private OrderService fetchFromServer(OrderService os, ShardConnections servers) {
+        long start = System.nanoTime();
+        long generation = cache.generation(os.getCode());
+        Communicator primary = servers.forCode(os.getCode());
+        Communicator reader = servers.forRead(os.getCode());
+
+        OrderService found = search(os, reader);
+        if (found.getRequestTime() == null && reader != primary) {
+            found = search(os, primary);
+            reader = primary;
+        }
+
+        cache.getStats().recordLoad(found.getRequestTime() != null, System.nanoTime() - start);
+
+        if (found.getRequestTime() != null && reader == primary) {
+            cache.insertIfUnchanged(found, cache.getDefaultTtl(), generation);
+        } else if (found.getRequestTime() != null) {
+            cacheFromBackup(found, generation);
+        } else if (reader == primary) {
+            negativeCache.put(os.getCode());
+        }
+
+        return found;
+    }
+
+    private void cacheFromBackup(OrderService found, long generation) {
+        long maxLag = replicas.getMaxLagMillis();
+        if (maxLag < 0) {       // Sem limite de atraso: vale o TTL de sempre
+            cache.insertIfUnchanged(found, cache.getDefaultTtl(), generation);
+            return;
+        }
+        if (maxLag == 0) {      // Duration.ZERO seria "nunca expira"
+            return;
+        }
+        Duration ttl = Duration.ofMillis(maxLag);
+        Duration defaultTtl = cache.getDefaultTtl();
+        cache.insertIfUnchanged(found, defaultTtl.isZero() || ttl.compareTo(defaultTtl) < 0 ? ttl : defaultTtl, generation);
+    }
+
+    private OrderService search(OrderService os, Communicator servecommunicator) {
+        servecommunicator.sendJsonMessage(SEARCH); // Envia a ação de busca para o servidor
+
+        servecommunicator.sendJsonMessage(os); // Envia para o server
+
+        OrderService found = servecommunicator.receiveJsonMessage(OrderService.class); // Recebe do server
+
+        if (found == null) {
+            throw new IllegalStateException("Servidor não respondeu a busca da OS " + os.getCode());
+        }
+        return found;
+    }
+
     private void startCommandListener() {
         new Thread(() -> {
             Scanner scanner = new Scanner(System.in);
@@ -342,6 +708,19 @@ public class Proxy implements Loggable, JsonSerializable {
 
     public void stopServer() {
         running.set(false);
+        if (transport != null) {
+            transport.close();
+        }
+        dispatcher.close();
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (replicas != null) {
+            replicas.close();
+        }
+        warmer.close(); // Grava o snapshot final antes de liberar a cache
+        pool.close();
+        cache.close();
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
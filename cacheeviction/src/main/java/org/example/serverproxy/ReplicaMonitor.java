@@ -0,0 +1,214 @@
+package org.example.serverproxy;
+
+import static org.example.utils.Command.DISCONECT;
+import static org.example.utils.Command.PROMOTE;
+import static org.example.utils.Command.REPLICA_STATUS;
+import static org.example.utils.Command.SUCCESS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.utils.Command;
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.cluster.ClusterConfig;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.ReplicaStatus;
+
+/*
+ * Acompanha os backups de cada shard (REPLICA_STATUS a cada intervalo) para o Proxy saber para onde mandar
+ * as leituras e quando promover um backup.
+ *
+ * Leituras: SEARCH, LIST e QUANTITY vão em rodízio para o primário e os backups do shard que responderam na
+ * última consulta com atraso até maxLagMillis (staleness limitada). Um backup atrasado, sem resposta ou ainda
+ * sem ter alcançado o primário sai do rodízio até voltar. Escritas vão sempre para o primário.
+ *
+ * Failover (failoverMillis > 0): se o primário de um shard não responde por failoverMillis, o backup com o
+ * maior LSN aplicado é promovido (PROMOTE) e passa a ser o primário do shard no ClusterConfig. Desligado
+ * (0), a promoção é manual: comando "promote" no console do backup.
+ *
+ * O antigo primário não é isolado (fencing): ele só sai do ClusterConfig deste Proxy. Se voltar, sobe de novo
+ * como primário, e outro Proxy (ou este reiniciado com o mesmo cluster.shards) pode mandar escritas para ele,
+ * enquanto os demais backups, que seguem o -Dserver.primary deles, voltam a replicar dele. Depois de um
+ * failover, o antigo primário deve ser reiniciado como backup do novo e a configuração atualizada.
+ */
+
+public class ReplicaMonitor implements Loggable, AutoCloseable {
+    private final ClusterConfig cluster;
+    private final long maxLagMillis;                                          // < 0 = sem limite
+    private final long failoverMillis;                                        // 0 = sem failover automático
+    private final long intervalMillis;
+    private final Map<ProxyInfo, Probe> probes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRead = new AtomicInteger();               // Rodízio das leituras
+    private final ScheduledExecutorService poller;
+
+    public ReplicaMonitor(ClusterConfig cluster, Duration interval, long maxLagMillis, long failoverMillis) {
+        this.cluster = cluster;
+        this.maxLagMillis = maxLagMillis;
+        this.failoverMillis = failoverMillis;
+        this.intervalMillis = Math.max(1, interval.toMillis());
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxy-replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poll(); // Os backups que já estão em dia entram no rodízio desde o primeiro cliente
+        poller.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Servidor que atende a próxima leitura do shard: o primário ou um backup em dia
+    public ProxyInfo readTarget(int shard) {
+        List<ProxyInfo> targets = new ArrayList<>();
+        targets.add(cluster.getShard(shard));
+        for (ProxyInfo replica : cluster.getReplicas(shard)) {
+            Probe probe = probes.get(replica);
+            if (probe != null && probe.isReadable()) {
+                targets.add(replica);
+            }
+        }
+        return targets.get(Math.floorMod(nextRead.getAndIncrement(), targets.size()));
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+        probes.values().forEach(Probe::close);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private void poll() {
+        try {
+            for (int shard = 0; shard < cluster.size(); shard++) {
+                for (ProxyInfo replica : cluster.getReplicas(shard)) {
+                    probes.computeIfAbsent(replica, Probe::new).poll();
+                }
+                if (failoverMillis > 0) {
+                    checkPrimary(shard);
+                }
+            }
+        } catch (RuntimeException e) {
+            erro("Erro ao consultar os backups: " + e.getMessage());
+        }
+    }
+
+    private void checkPrimary(int shard) {
+        ProxyInfo primary = cluster.getShard(shard);
+        Probe probe = probes.computeIfAbsent(primary, Probe::new);
+        probe.poll();
+        if (probe.downSince == 0 || System.currentTimeMillis() - probe.downSince < failoverMillis) {
+            return;
+        }
+
+        Probe best = null;
+        for (ProxyInfo replica : cluster.getReplicas(shard)) {
+            Probe candidate = probes.get(replica);
+            if (candidate != null && candidate.isAlive()
+                    && (best == null || candidate.status.getAppliedLsn() > best.status.getAppliedLsn())) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            warn("Primário do shard " + shard + " fora do ar e nenhum backup disponível para promover");
+            return;
+        }
+
+        if (best.status.isPrimary() || best.promote()) { // Já pode ter sido promovido no console
+            cluster.promote(shard, best.address);
+            probes.remove(primary).close();
+            warn("Failover: primário do shard " + shard + " (" + primary.getHost() + ":" + primary.getPort()
+                    + ") fora do ar, backup " + best.address.getHost() + ":" + best.address.getPort()
+                    + " promovido no LSN " + best.status.getAppliedLsn());
+        }
+    }
+
+    // Conexão de consulta com um Servidor e a última resposta dele
+    private class Probe {
+        private final ProxyInfo address;
+        private Communicator connection;
+        private volatile ReplicaStatus status;
+        private volatile long polledAt;             // Hora da última resposta
+        private volatile long downSince;            // 0 = respondeu na última consulta
+
+        Probe(ProxyInfo address) {
+            this.address = address;
+        }
+
+        void poll() {
+            try {
+                Communicator server = connection();
+                server.sendJsonMessage(REPLICA_STATUS);
+                ReplicaStatus reply = server.receiveJsonMessage(ReplicaStatus.class);
+                if (reply == null) {
+                    throw new IllegalStateException("sem resposta");
+                }
+                status = reply;
+                polledAt = System.currentTimeMillis();
+                downSince = 0;
+            } catch (RuntimeException e) {
+                if (downSince == 0) {
+                    downSince = System.currentTimeMillis();
+                    warn("Servidor " + address.getHost() + ":" + address.getPort() + " não respondeu: " + e.getMessage());
+                }
+                close();
+            }
+        }
+
+        boolean isAlive() {
+            return status != null && System.currentTimeMillis() - polledAt <= 3 * intervalMillis;
+        }
+
+        // Em dia o bastante para leituras: respondeu há pouco e o atraso estava dentro do limite
+        boolean isReadable() {
+            return isAlive() && (maxLagMillis < 0 || status.getLagMillis() <= maxLagMillis);
+        }
+
+        boolean promote() {
+            try {
+                Communicator server = connection();
+                server.sendJsonMessage(PROMOTE);
+                return server.receiveJsonMessage(Command.class) == SUCCESS;
+            } catch (RuntimeException e) {
+                erro("Erro ao promover " + address.getHost() + ":" + address.getPort() + ": " + e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        private Communicator connection() {
+            if (connection != null && connection.isConnected()) {
+                return connection;
+            }
+            Communicator server = new Communicator("Proxy & Servidor (replicação)");
+            server.connect(address.getHost(), address.getPort());
+            if (!server.isConnected() || server.receiveTextMessage() == null) { // Descarta o menu do servidor
+                server.disconnect();
+                throw new IllegalStateException("não foi possível conectar");
+            }
+            connection = server;
+            return server;
+        }
+
+        void close() {
+            if (connection != null) {
+                if (connection.isConnected()) {
+                    connection.sendJsonMessage(DISCONECT);
+                }
+                connection.disconnect();
+                connection = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.serverproxy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.ExchangeCommunicator;
+import org.example.utils.common.MultiplexedConnection;
+
+/*
+ * Conexões do Proxy com os Servidores (primários e backups), compartilhadas por todos os clientes: até 'size'
+ * conexões multiplexadas por Servidor, abertas na primeira requisição que precisar delas e mantidas abertas. Cada
+ * requisição vai pela próxima conexão do Servidor em rodízio, junto com as dos outros clientes, e as respostas
+ * voltam fora de ordem pelo número da requisição (MultiplexedConnection).
+ *
+ * Assim o número de conexões e de handshakes (HELLO e menu) com cada Servidor não depende mais do número de
+ * clientes do Proxy. Uma conexão que caiu é reaberta na próxima vez que o rodízio passar por ela, fora do lock
+ * do Servidor: com ele fora do ar, cada requisição espera só a própria tentativa de conexão, e não a fila das
+ * tentativas das outras.
+ */
+
+public class ServerPool implements Loggable, AutoCloseable {
+    @Getter
+    private final int size;                                             // Conexões por Servidor
+    @Getter
+    private final long timeoutMillis;                                   // Espera pela resposta de uma requisição
+    private final Map<String, Slots> servers = new ConcurrentHashMap<>(); // "host:porta" -> conexões
+
+    private static class Slots {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final MultiplexedConnection[] connections;
+        private int next;
+
+        private Slots(int size) {
+            this.connections = new MultiplexedConnection[size];
+        }
+    }
+
+    public ServerPool(int size, long timeoutMillis) {
+        this.size = Math.max(1, size);
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        info("Pool do Proxy: até " + this.size + " conexões multiplexadas por Servidor, resposta em até "
+                + this.timeoutMillis + "ms");
+    }
+
+    public static ServerPool fromSystemProperties() {
+        return new ServerPool(Integer.getInteger("proxy.pool.size", 4),    // -Dproxy.pool.size=N conexões por Servidor
+                Long.getLong("proxy.pool.timeout", 30_000));               // -Dproxy.pool.timeout=ms
+    }
+
+    // Communicator de um cliente com um Servidor: cada requisição escolhe uma conexão do pool
+    public Communicator communicator(String name, ProxyInfo server) {
+        return new ExchangeCommunicator(name, () -> connection(server), timeoutMillis);
+    }
+
+    // Menu do Servidor (o que ele mandou quando a conexão abriu), ou null se ele não está acessível
+    public String menu(ProxyInfo server) {
+        MultiplexedConnection connection = connection(server);
+        return connection == null ? null : connection.getMenu();
+    }
+
+    public boolean isAvailable(ProxyInfo server) {
+        return connection(server) != null;
+    }
+
+    // Próxima conexão do Servidor em rodízio, aberta (ou reaberta) se preciso; se ela não abrir, qualquer
+    // outra que esteja aberta. null se nenhuma
+    public MultiplexedConnection connection(ProxyInfo server) {
+        String address = server.getHost() + ":" + server.getPort();
+        Slots slots = servers.computeIfAbsent(address, key -> new Slots(size));
+
+        int slot;
+        slots.lock.lock();
+        try {
+            slot = slots.next;
+            slots.next = (slot + 1) % size;
+            MultiplexedConnection connection = slots.connections[slot];
+            if (connection != null && connection.isOpen()) {
+                return connection;
+            }
+        } finally {
+            slots.lock.unlock();
+        }
+
+        MultiplexedConnection opened = MultiplexedConnection.open("Proxy & Servidor " + address + " #" + slot,
+                server.getHost(), server.getPort());
+
+        slots.lock.lock();
+        try {
+            MultiplexedConnection current = slots.connections[slot];
+            if (current != null && current.isOpen()) { // Outra requisição reabriu a mesma enquanto esta conectava
+                opened.close();
+                return current;
+            }
+            if (!opened.isOpen()) {
+                return anyOpen(slots);
+            }
+            slots.connections[slot] = opened;
+            return opened;
+        } finally {
+            slots.lock.unlock();
+        }
+    }
+
+    // Conexões abertas agora, somando todos os Servidores
+    public int getConnections() {
+        int open = 0;
+        for (Slots slots : servers.values()) {
+            for (MultiplexedConnection connection : slots.connections) {
+                if (connection != null && connection.isOpen()) {
+                    open++;
+                }
+            }
+        }
+        return open;
+    }
+
+    @Override
+    public void close() {
+        for (Slots slots : servers.values()) {
+            slots.lock.lock();
+            try {
+                for (MultiplexedConnection connection : slots.connections) {
+                    if (connection != null) {
+                        connection.close();
+                    }
+                }
+            } finally {
+                slots.lock.unlock();
+            }
+        }
+        servers.clear();
+    }
+
+    private static MultiplexedConnection anyOpen(Slots slots) {
+        for (MultiplexedConnection connection : slots.connections) {
+            if (connection != null && connection.isOpen()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.serverproxy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.cluster.ClusterConfig;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderService;
+
+/*
+ * Conexões de um cliente do Proxy com os Servidores do cluster, uma por shard. Não são sockets próprios: cada
+ * requisição vai por uma conexão do ServerPool, compartilhada com os outros clientes do Proxy.
+ *
+ * As operações de um código (busca, alteração, remoção) vão só para o shard dono do bloco do código (HashRing).
+ * Cadastros vão para os shards em rodízio e o shard escolhe um código dos blocos dele. Listagem, quantidade,
+ * faixas e busca por texto são espalhadas: o pedido vai para todos os shards antes de qualquer resposta ser
+ * lida, então os shards trabalham em paralelo, e as respostas (cada uma em ordem de código) são intercaladas.
+ *
+ * Com backups (ReplicaMonitor), as leituras usam forRead/allForRead, que escolhem entre o primário e os backups
+ * em dia do shard; se um backup não estiver acessível, a leitura vai para o primário. Se o primário de um shard
+ * mudar (failover), as próximas operações do shard vão para o novo.
+ */
+
+public class ShardConnections implements Loggable {
+    private final ClusterConfig cluster;
+    private final ReplicaMonitor replicas;                                  // null = sem backups
+    private final ServerPool pool;                                          // Conexões com os Servidores
+    private final Communicator[] servers;
+    private final ProxyInfo[] addresses;                                    // Primário de cada conexão
+    private final Map<ProxyInfo, Communicator> readers = new HashMap<>();   // Leituras nos backups
+
+    public ShardConnections(ClusterConfig cluster, ReplicaMonitor replicas, ServerPool pool) {
+        this.cluster = cluster;
+        this.replicas = replicas;
+        this.pool = pool;
+        this.servers = new Communicator[cluster.size()];
+        this.addresses = new ProxyInfo[cluster.size()];
+    }
+
+    // Verifica todos os shards e devolve o menu do primeiro (todos têm o mesmo), ou null se algum falhar
+    public String connect() {
+        String menu = null;
+        for (int shard = 0; shard < servers.length; shard++) {
+            String shardMenu = connect(shard);
+            if (shardMenu == null) {
+                return null;
+            }
+            if (menu == null) {
+                menu = shardMenu;
+            }
+        }
+        return menu;
+    }
+
+    public Communicator forCode(int code) {
+        return server(cluster.shardOf(code));
+    }
+
+    public Communicator forRegister() {
+        return server(cluster.nextRegisterShard());
+    }
+
+    public Communicator[] all() {
+        for (int shard = 0; shard < servers.length; shard++) {
+            server(shard);
+        }
+        return servers;
+    }
+
+    // Leitura de um código: o primário ou um backup em dia do shard dono
+    public Communicator forRead(int code) {
+        return reader(cluster.shardOf(code));
+    }
+
+    // Leitura espalhada: um Servidor (primário ou backup em dia) de cada shard
+    public Communicator[] allForRead() {
+        Communicator[] chosen = new Communicator[servers.length];
+        for (int shard = 0; shard < servers.length; shard++) {
+            chosen[shard] = reader(shard);
+        }
+        return chosen;
+    }
+
+    public int size() {
+        return servers.length;
+    }
+
+    public boolean isConnected() {
+        for (Communicator server : servers) {
+            if (server == null || !server.isConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // As conexões do pool continuam abertas para os outros clientes
+    public void disconnect() {
+        for (int shard = 0; shard < servers.length; shard++) {
+            if (servers[shard] != null) {
+                servers[shard].disconnect();
+            }
+            servers[shard] = null;
+            addresses[shard] = null;
+        }
+        readers.values().forEach(Communicator::disconnect);
+        readers.clear();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Communicator com o primário atual do shard; refeito se ele mudou desde a última operação
+    private Communicator server(int shard) {
+        if (addresses[shard] != null && !addresses[shard].equals(cluster.getShard(shard))) {
+            info("Shard " + shard + " tem um novo primário, reconectando");
+            servers[shard].disconnect();
+            if (connect(shard) == null) {
+                throw new IllegalStateException("Novo primário do shard " + shard + " indisponível");
+            }
+        }
+        return servers[shard];
+    }
+
+    // Devolve o menu do Servidor, ou null se ele não respondeu
+    private String connect(int shard) {
+        ProxyInfo info = cluster.getShard(shard);
+        servers[shard] = pool.communicator("Proxy & Servidor " + shard, info);
+        addresses[shard] = info;
+
+        String menu = pool.menu(info);
+        if (menu == null) {
+            erro("Shard " + shard + " (" + info.getHost() + ":" + info.getPort() + ") indisponível");
+        }
+        return menu;
+    }
+
+    private Communicator reader(int shard) {
+        ProxyInfo target = replicas == null ? null : replicas.readTarget(shard);
+        if (target == null || target.equals(cluster.getShard(shard))) {
+            return server(shard);
+        }
+
+        if (!pool.isAvailable(target)) {
+            warn("Backup " + target.getHost() + ":" + target.getPort() + " indisponível, lendo do primário");
+            return server(shard);
+        }
+        return readers.computeIfAbsent(target, backup ->
+                pool.communicator("Proxy & Backup " + backup.getHost() + ":" + backup.getPort(), backup));
+    }
+
+    // Intercala listas já ordenadas por código, até 'limit' OS
+    public static List<OrderService> merge(List<List<OrderService>> sorted, int limit) {
+        List<OrderService> merged = new ArrayList<>();
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingInt(
+                (int[] head) -> sorted.get(head[0]).get(head[1]).getCode()));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i) != null && !sorted.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0}); // {lista, posição}
+            }
+        }
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<OrderService> list = sorted.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.serverproxy;
+
+import static org.example.utils.Command.DISCONECT;
+import static org.example.utils.Command.ERROR;
+import static org.example.utils.Command.UPDATE_BATCH;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.example.utils.JsonSerializable;
+import org.example.utils.Loggable;
+import org.example.utils.ProxyInfo;
+import org.example.utils.cluster.ClusterConfig;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.OrderService;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/*
+ * Fila de escritas do modo WRITE_BEHIND.
+ * As alterações ficam num mapa por código (a última alteração de um código substitui as anteriores)
+ * e uma thread de fundo envia periodicamente um lote com tudo que está pendente ao Servidor Principal
+ * (comando UPDATE_BATCH), numa conexão própria. Rajadas de escrita custam uma ida ao servidor por lote,
+ * não uma por operação. Num cluster o lote é dividido pelo shard dono de cada código.
+ *
+ * Enquanto um lote não é confirmado, as alterações continuam visíveis em pending(), para que uma busca
+ * com MISS na cache não traga do servidor o valor antigo. Códigos que o servidor recusar são entregues
+ * ao callback onRejected (o Proxy invalida a cache deles).
+ */
+
+public class WriteBehindQueue implements Loggable, JsonSerializable {
+    private final Map<Integer, OrderService> pending = new LinkedHashMap<>();   // Aguardando o próximo lote
+    private final Map<Integer, OrderService> flushing = new LinkedHashMap<>();  // Enviados, aguardando confirmação
+    private final ClusterConfig cluster;
+    private final int maxBatch;
+    private final IntConsumer onRejected;
+    private final ScheduledExecutorService flusher;
+    private final Communicator[] servers;                                       // Um por shard, usados só pela thread de flush
+
+    public WriteBehindQueue(ClusterConfig cluster, Duration flushInterval, int maxBatch, IntConsumer onRejected) {
+        this.cluster = cluster;
+        this.servers = new Communicator[cluster.size()];
+        this.maxBatch = maxBatch;
+        this.onRejected = onRejected;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void enqueue(OrderService orderService) {
+        pending.remove(orderService.getCode()); // Reinsere no final: a ordem do lote segue a última alteração
+        pending.put(orderService.getCode(), orderService);
+    }
+
+    // Alteração ainda não confirmada pelo servidor, ou null
+    public synchronized OrderService pending(int code) {
+        OrderService os = pending.get(code);
+        return os != null ? os : flushing.get(code);
+    }
+
+    // Descarta a alteração pendente (ex.: a OS foi removida)
+    public synchronized void discard(int code) {
+        pending.remove(code);
+        flushing.remove(code);
+    }
+
+    public synchronized int size() {
+        return pending.size() + flushing.size();
+    }
+
+    // Envia ao servidor até 'maxBatch' alterações pendentes
+    public void flush() {
+        List<OrderService> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Integer> rejected = sendBatch(batch);
+            acknowledge(batch);
+
+            for (int code : rejected) {
+                warn("Servidor recusou a alteração em lote da OS " + code + ", invalidando na cache");
+                onRejected.accept(code);
+            }
+            info("Lote write-behind enviado: " + batch.size() + " alterações, " + rejected.size() + " recusadas");
+        } catch (RuntimeException e) {
+            erro("Erro ao enviar lote write-behind, tentando novamente no próximo ciclo: " + e.getMessage());
+            requeue(batch);
+            disconnect();
+        }
+    }
+
+    // Envia o que faltar e encerra a thread de flush
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (pendingSize() > 0) {
+            int before = pendingSize();
+            flush();
+            if (pendingSize() >= before) {
+                erro("Write-behind encerrado com " + pendingSize() + " alterações não enviadas");
+                break;
+            }
+        }
+        disconnect();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private synchronized int pendingSize() {
+        return pending.size();
+    }
+
+    private synchronized List<OrderService> drain() {
+        List<OrderService> batch = new ArrayList<>(Math.min(pending.size(), maxBatch));
+        Iterator<OrderService> iterator = pending.values().iterator();
+
+        while (iterator.hasNext() && batch.size() < maxBatch) {
+            OrderService os = iterator.next();
+            iterator.remove();
+            flushing.put(os.getCode(), os);
+            batch.add(os);
+        }
+
+        return batch;
+    }
+
+    private synchronized void acknowledge(List<OrderService> batch) {
+        for (OrderService os : batch) {
+            flushing.remove(os.getCode(), os);
+        }
+    }
+
+    // Devolve o lote à fila, sem sobrescrever alterações mais novas que chegaram nesse meio tempo
+    private synchronized void requeue(List<OrderService> batch) {
+        Map<Integer, OrderService> newer = new LinkedHashMap<>(pending);
+        pending.clear();
+        for (OrderService os : batch) {
+            if (flushing.remove(os.getCode(), os)) {
+                pending.put(os.getCode(), os);
+            }
+        }
+        pending.putAll(newer);
+    }
+
+    // Envia a parte do lote de cada shard; se um shard falhar o lote inteiro volta para a fila (reenviar uma
+    // alteração que já foi aplicada não muda nada)
+    private List<Integer> sendBatch(List<OrderService> batch) {
+        Map<Integer, List<OrderService>> byShard = new LinkedHashMap<>();
+        for (OrderService os : batch) {
+            byShard.computeIfAbsent(cluster.shardOf(os.getCode()), shard -> new ArrayList<>()).add(os);
+        }
+
+        List<Integer> rejected = new ArrayList<>();
+        for (Map.Entry<Integer, List<OrderService>> part : byShard.entrySet()) {
+            rejected.addAll(sendBatch(part.getKey(), part.getValue()));
+        }
+        return rejected;
+    }
+
+    private List<Integer> sendBatch(int shard, List<OrderService> batch) {
+        Communicator server = connect(shard);
+
+        server.sendJsonMessage(UPDATE_BATCH);
+        server.sendOrders(batch);
+
+        String response = server.receiveTextMessage();
+        if (ERROR.toJson().equals(response)) { // WAL do Servidor indisponível: o lote volta para a fila
+            throw new IllegalStateException("Servidor Principal (shard " + shard + ") recusou o lote: "
+                    + server.receiveTextMessage());
+        }
+        List<Integer> rejected = response == null ? null : JsonSerializable.fromJson(response, new TypeReference<List<Integer>>() {});
+
+        if (rejected == null) {
+            throw new IllegalStateException("Servidor Principal (shard " + shard + ") não confirmou o lote");
+        }
+        return rejected;
+    }
+
+    private Communicator connect(int shard) {
+        if (servers[shard] != null && servers[shard].isConnected()) {
+            return servers[shard];
+        }
+
+        ProxyInfo serverInfo = cluster.getShard(shard);
+        Communicator server = new Communicator("Proxy & Servidor " + shard + " (write-behind)");
+        server.connect(serverInfo.getHost(), serverInfo.getPort());
+
+        if (!server.isConnected() || server.receiveTextMessage() == null) { // Descarta o menu do servidor
+            throw new IllegalStateException("Não foi possível conectar ao Servidor Principal (shard " + shard + ")");
+        }
+        servers[shard] = server;
+        return server;
+    }
+
+    private void disconnect() {
+        for (int shard = 0; shard < servers.length; shard++) {
+            if (servers[shard] != null && servers[shard].isConnected()) {
+                servers[shard].sendJsonMessage(DISCONECT);
+                servers[shard].disconnect();
+            }
+            servers[shard] = null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.serverproxy;
+
+/*
+ * Como o Proxy propaga as escritas (UPDATE) para o Servidor Principal:
+ *  - WRITE_THROUGH: envia na hora e só atualiza a cache depois da confirmação do servidor (padrão);
+ *  - WRITE_BEHIND: atualiza a cache, confirma ao cliente na hora e envia as alterações ao servidor
+ *    em lotes, juntando várias alterações do mesmo código numa só.
+ * Cadastro e remoção são sempre síncronos: o código é gerado pelo servidor e uma remoção
+ * confirmada sem o servidor poderia ser desfeita por uma busca concorrente.
+ */
+
+public enum WriteMode {
+    WRITE_THROUGH, WRITE_BEHIND;
+
+    public static WriteMode fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "through", "write-through", "write_through" -> WRITE_THROUGH;
+            case "behind", "write-behind", "write_behind" -> WRITE_BEHIND;
+            default -> throw new IllegalArgumentException("Modo de escrita desconhecido: " + name);
+        };
+    }
+}
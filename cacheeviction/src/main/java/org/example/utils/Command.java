@@ -15,18 +15,53 @@ public enum Command implements JsonSerializable {
     EXIT(0, "Sair"),
     DISCONECT(9, "Desconectar"),
     AUTHENTICATE(10, "Autenticar"),
+    UPDATE_BATCH(11, "Atualizar OS em lote"),        // Interno: Proxy -> Servidor (write-behind)
+    STATS(12, "Estatísticas da Cache"),              // Respondido pelo próprio Proxy
+    SEARCH_BATCH(13, "Buscar OS em lote"),           // Interno: Proxy -> Servidor (aquecimento da cache)
+    LIST_RANGE(14, "Listar OS por faixa (paginado)"),
+    SEARCH_TEXT(15, "Buscar OS por texto"),
+    REPLICATE(16, "Replicar o log"),                 // Interno: backup -> primário (envio do WAL)
+    REPLICA_STATUS(17, "Estado da replicação"),      // Interno: Proxy -> Servidor (papel e atraso)
+    PROMOTE(18, "Promover a primário"),              // Interno: Proxy -> backup (failover)
+    MULTIPLEX(19, "Multiplexar requisições"),        // Interno: Proxy -> Servidor (pool de conexões, Envelope)
     ERROR(500, "Erro"),
     INVALID(-1, "Inválido"),
     SUCCESS(200, "Sucesso");
 
     private final int code;
     private final String description;
+    private static final Command[] BY_OPCODE = new Command[256];
+
+    static {
+        for (Command command : values()) {
+            BY_OPCODE[command.getOpcode() & 0xFF] = command;
+        }
+    }
 
     Command(int code, String description) {
         this.code = code;
         this.description = description;
     }
 
+    // Código em um byte, para o protocolo binário: 200, 500 e -1 viram -56, -12 e -1, sem colidir com os demais
+    public byte getOpcode() {
+        return (byte) code;
+    }
+
+    public static Command fromOpcode(byte opcode) {
+        return BY_OPCODE[opcode & 0xFF];
+    }
+
+    // Mensagens que o cliente envia logo depois do comando, na mesma requisição (o transporte NIO só entrega a
+    // requisição ao handler depois que todas chegaram)
+    public int getPayloads() {
+        return switch (this) {
+            case SEARCH, REGISTER, UPDATE, REMOVE, AUTHENTICATE, UPDATE_BATCH, SEARCH_BATCH, LIST_RANGE, SEARCH_TEXT,
+                 REPLICATE -> 1;
+            default -> 0;
+        };
+    }
+
     public static Command fromCode(int code) {
         for (Command command : Command.values()) {
             if (command.code == code) {
@@ -0,0 +1,127 @@
+package org.example.utils.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import org.example.utils.ProxyInfo;
+
+/*
+ * Endereços dos Servidores do cluster e o anel que diz qual deles é dono de cada código.
+ *
+ *   -Dcluster.shards=host:15553,host:15554,host:15555   (a ordem define o número de cada shard)
+ *   -Dcluster.vnodes=64                                 (nós virtuais por shard no anel)
+ *   -Dcluster.replicas=host:15563@0,host:15564@1        (backups de cada shard; sem @N, do shard 0)
+ *
+ * Sem cluster.shards, o cluster é um único Servidor no endereço padrão: todo código é do shard 0 e o
+ * comportamento é o de antes. O número de shards é fixo enquanto o cluster roda (mudar exige migrar os blocos);
+ * só o endereço do primário de um shard muda, quando um backup dele é promovido (promote).
+ */
+
+@Getter
+public class ClusterConfig {
+    private volatile List<ProxyInfo> shards;
+    private volatile List<List<ProxyInfo>> replicas;                 // Backups de cada shard
+    private final HashRing ring;
+    private final AtomicInteger nextRegister = new AtomicInteger(); // Rodízio dos cadastros entre os shards
+
+    public ClusterConfig(List<ProxyInfo> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("O cluster precisa de pelo menos um Servidor");
+        }
+        this.shards = List.copyOf(shards);
+        this.replicas = List.of();
+        this.ring = new HashRing(shards.size(), virtualNodes);
+    }
+
+    public ClusterConfig(List<ProxyInfo> shards, List<List<ProxyInfo>> replicas, int virtualNodes) {
+        this(shards, virtualNodes);
+        if (replicas.size() != shards.size()) {
+            throw new IllegalArgumentException("Esperada uma lista de backups por shard");
+        }
+        this.replicas = replicas.stream().map(List::copyOf).toList();
+    }
+
+    public static ClusterConfig fromSystemProperties(String defaultHost, int defaultPort) {
+        String property = System.getProperty("cluster.shards");    // -Dcluster.shards=host:porta,host:porta
+        int virtualNodes = Integer.getInteger("cluster.vnodes", 64); // -Dcluster.vnodes=N
+        String replicaProperty = System.getProperty("cluster.replicas");  // -Dcluster.replicas=host:porta@shard,...
+        List<ProxyInfo> shards = new ArrayList<>();
+
+        if (property == null || property.isBlank()) {
+            shards.add(new ProxyInfo(defaultHost, defaultPort));
+        } else {
+            for (String address : property.split(",")) {
+                shards.add(parseAddress(address));
+            }
+        }
+
+        List<List<ProxyInfo>> replicas = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            replicas.add(new ArrayList<>());
+        }
+        if (replicaProperty != null && !replicaProperty.isBlank()) {
+            for (String replica : replicaProperty.split(",")) {
+                String[] parts = replica.trim().split("@");
+                int shard = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+                if (shard < 0 || shard >= shards.size()) {
+                    throw new IllegalArgumentException("Backup de um shard que não existe: " + replica);
+                }
+                replicas.get(shard).add(parseAddress(parts[0]));
+            }
+        }
+        return new ClusterConfig(shards, replicas, virtualNodes);
+    }
+
+    private static ProxyInfo parseAddress(String address) {
+        String[] parts = address.trim().split(":");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Endereço de Servidor inválido (esperado host:porta): " + address);
+        }
+        return new ProxyInfo(parts[0], Integer.parseInt(parts[1]));
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public int shardOf(int code) {
+        return ring.shardOf(code);
+    }
+
+    public ProxyInfo getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    public List<ProxyInfo> getReplicas(int shard) {
+        List<List<ProxyInfo>> current = replicas;
+        return shard < current.size() ? current.get(shard) : List.of();
+    }
+
+    public boolean hasReplicas() {
+        return replicas.stream().anyMatch(list -> !list.isEmpty());
+    }
+
+    // O backup 'replica' foi promovido e passa a ser o primário do shard; o primário antigo sai do cluster
+    public synchronized void promote(int shard, ProxyInfo replica) {
+        List<ProxyInfo> newShards = new ArrayList<>(shards);
+        newShards.set(shard, replica);
+        List<List<ProxyInfo>> newReplicas = new ArrayList<>(replicas);
+        List<ProxyInfo> backups = new ArrayList<>(newReplicas.get(shard));
+        backups.remove(replica);
+        newReplicas.set(shard, List.copyOf(backups));
+
+        replicas = List.copyOf(newReplicas);
+        shards = List.copyOf(newShards);
+    }
+
+    // Próximo shard a receber um cadastro; o código é escolhido pelo próprio shard (CodeAllocator)
+    public int nextRegisterShard() {
+        return Math.floorMod(nextRegister.getAndIncrement(), shards.size());
+    }
+}
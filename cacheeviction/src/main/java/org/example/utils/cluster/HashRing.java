@@ -0,0 +1,84 @@
+package org.example.utils.cluster;
+
+import java.util.Arrays;
+
+/*
+ * Anel de hash consistente que distribui o espaço de códigos de OS entre os shards do cluster.
+ *
+ * A unidade distribuída é o bloco de BLOCK_SIZE códigos seguidos (o bloco do código c é c / BLOCK_SIZE): cada
+ * bloco tem um dono, e é do dono que o Proxy busca, altera e remove as OS daquele bloco. Cada shard aparece
+ * no anel em 'virtualNodes' pontos, então os blocos se espalham por igual e, se um shard entrar ou sair,
+ * só os blocos vizinhos dos pontos dele mudam de dono.
+ *
+ * O anel é determinístico (depende só da quantidade de shards e de nós virtuais): o Proxy e cada Servidor
+ * montam o mesmo anel a partir da mesma configuração, sem trocar mensagens.
+ */
+
+public class HashRing {
+    public static final int BLOCK_SIZE = 1024;
+
+    private final long[] points;    // Posições dos nós virtuais no anel, em ordem
+    private final int[] owners;     // Shard dono de cada posição
+    private final int shards;
+
+    public HashRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("O anel precisa de pelo menos um shard e um nó virtual");
+        }
+        this.shards = shards;
+
+        long[] entries = new long[shards * virtualNodes];
+        for (int shard = 0, i = 0; shard < shards; shard++) {
+            for (int v = 0; v < virtualNodes; v++, i++) {
+                // 32 bits altos: posição no anel; 32 baixos: o shard (desempata e volta depois da ordenação)
+                entries[i] = (mix(((long) shard << 32) | v) & 0xFFFFFFFF00000000L) | shard;
+            }
+        }
+        // As posições são sem sinal: com o bit de sinal invertido a ordem com sinal do sort é a ordem sem sinal
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(entries);
+
+        points = new long[entries.length];
+        owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            long entry = entries[i] ^ Long.MIN_VALUE;
+            points[i] = entry >>> 32;
+            owners[i] = (int) entry;
+        }
+    }
+
+    // Shard dono do código
+    public int shardOf(int code) {
+        return ownerOfBlock(blockOf(code));
+    }
+
+    // Shard dono do bloco: o primeiro nó virtual a partir do hash do bloco, dando a volta no anel
+    public int ownerOfBlock(long block) {
+        if (shards == 1) {
+            return 0;
+        }
+        long hash = mix(block ^ 0x5DEECE66DL) >>> 32;
+        int pos = Arrays.binarySearch(points, hash);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        return owners[pos == points.length ? 0 : pos];
+    }
+
+    public static long blockOf(int code) {
+        return Math.floorDiv(code, BLOCK_SIZE);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    // Finalizador do SplitMix64: espalha bem valores consecutivos
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -5,22 +5,35 @@ import org.example.utils.Loggable;
 import org.example.utils.common.interfaces.MessageHandler;
 
 import java.io.*;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 
 public class AbstractMessageHandler implements MessageHandler, JsonSerializable, Loggable {
     protected PrintWriter out;
     protected BufferedReader in;
     protected String name;
+    protected boolean announce;
 
     public AbstractMessageHandler(OutputStream out, InputStream in, String name) {
+        this(out, in, name, true);
+    }
+
+    // announce = false para os fluxos em memória de cada requisição multiplexada, que não são conexões
+    public AbstractMessageHandler(OutputStream out, InputStream in, String name, boolean announce) {
         this.out = new PrintWriter(out, true);
         this.in = new BufferedReader(new InputStreamReader(in));
         this.name = name;
+        this.announce = announce;
 
         if (this.out == null) {
             erro("Erro ao tentar abrir Fluxo de Saída do " + name);
         }
 
-        info("O " + name + " abriu o Fluxo de Dados com sucesso!");
+        if (announce) {
+            info("O " + name + " abriu o Fluxo de Dados com sucesso!");
+        }
     }
 
     public void sendTextMessage(String message) {
@@ -78,6 +91,44 @@ public class AbstractMessageHandler implements MessageHandler, JsonSerializable,
         }
     }
 
+    // A lista vai como um texto JSON, numa linha só
+    public void sendOrders(List<OrderService> orders) {
+        try {
+            sendTextMessage(objectMapper.writeValueAsString(orders));
+        } catch (JsonProcessingException e) {
+            erro("Erro ao serializar lista de OS: " + e.getMessage());
+            sendTextMessage("[]");
+        }
+    }
+
+    public List<OrderService> receiveOrders() {
+        String json = receiveTextMessage();
+        return json == null ? null : JsonSerializable.fromJson(json, new TypeReference<List<OrderService>>() {});
+    }
+
+    // Uma linha só (o println é atômico entre threads), com as mensagens em base64
+    public void sendEnvelope(Envelope envelope) {
+        try {
+            out.println(objectMapper.writeValueAsString(envelope));
+        } catch (JsonProcessingException e) {
+            erro("Erro ao serializar envelope: " + e.getMessage());
+        }
+    }
+
+    public Envelope receiveEnvelope() {
+        if (in == null) {
+            erro("O buffer de entrada está nulo. Fluxo de Dados não aberto.");
+            return null;
+        }
+        try {
+            String json = in.readLine();
+            return json == null ? null : objectMapper.readValue(json, Envelope.class);
+        } catch (IOException e) {
+            erro("Erro ao receber envelope: " + e);
+            return null;
+        }
+    }
+
     public void close() {
         try {
             if (out != null && in != null) {
@@ -86,7 +137,9 @@ public class AbstractMessageHandler implements MessageHandler, JsonSerializable,
                 out = null;
                 in = null;
 
-                info("O " + name + " fechou o Fluxo de Dados com sucesso!");
+                if (announce) {
+                    info("O " + name + " fechou o Fluxo de Dados com sucesso!");
+                }
             }
         } catch (IOException e) {
             erro("Erro ao fechar Fluxo de Dados: " + e);
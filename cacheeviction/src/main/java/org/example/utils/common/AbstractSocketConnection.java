@@ -3,6 +3,7 @@ package org.example.utils.common;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
 import lombok.*;
 import org.example.utils.Loggable;
@@ -20,6 +21,8 @@ public class AbstractSocketConnection implements SocketConnection, Loggable {
     private InetAddress inet;
     @Getter
     static private int connections = 0;
+    @Getter(AccessLevel.NONE)
+    private final ReentrantLock connectionLock = new ReentrantLock(); // Um connect por vez
 
     public AbstractSocketConnection(String name) {
         this.name = name;
@@ -37,24 +40,27 @@ public class AbstractSocketConnection implements SocketConnection, Loggable {
     }
 
     @Override
-    public synchronized void connect() {
-        if (isConnected()) {
-            if (inet.getHostName().equals(host) && socket.getPort() == port) {
-                warn(name + " ja está conectado a " + inet.getHostName() + ":" + port);
-                return;
-            } else {
-                warn(name + " já está conectado a " + inet.getHostName() + ". Desconectando antes de conectar...");
-                disconnect();
+    public void connect() {
+        connectionLock.lock();
+        try {
+            if (isConnected()) {
+                if (inet.getHostName().equals(host) && socket.getPort() == port) {
+                    warn(name + " ja está conectado a " + inet.getHostName() + ":" + port);
+                    return;
+                } else {
+                    warn(name + " já está conectado a " + inet.getHostName() + ". Desconectando antes de conectar...");
+                    disconnect();
+                }
             }
-        }
 
-        try {
             socket = new Socket(host, port);
             inet = socket.getInetAddress();
 
             info(name + " conectado a " + host + ":" + port);
         } catch (IOException e) {
             erro("Erro ao conectar ao servidor: " + e.getMessage());
+        } finally {
+            connectionLock.unlock();
         }
     }
 
@@ -66,7 +72,8 @@ public class AbstractSocketConnection implements SocketConnection, Loggable {
     }
 
     @Override
-    public synchronized void disconnect() {
+    public void disconnect() {
+        connectionLock.lock();
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
@@ -75,6 +82,8 @@ public class AbstractSocketConnection implements SocketConnection, Loggable {
             }
         } catch (IOException e) {
             erro("Erro ao " + name + " tentar desconectar: " + e.getMessage());
+        } finally {
+            connectionLock.unlock();
         }
     }
 
@@ -0,0 +1,283 @@
+package org.example.utils.common;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.example.utils.Command;
+import org.example.utils.JsonSerializable;
+import org.example.utils.Loggable;
+import org.example.utils.common.interfaces.MessageHandler;
+
+/*
+ * Protocolo binário de quadros com tamanho prefixado (WireProtocol.BINARY). Cada mensagem é um quadro:
+ *
+ *   int tamanho (do tipo até o fim) | byte tipo | corpo
+ *
+ *   COMMAND   byte opcode (Command.getOpcode())
+ *   TEXT      UTF-8
+ *   JSON      UTF-8 do JSON do objeto (objetos sem codificação própria: RangeRequest, OrderPage, User...)
+ *   ORDER     OrderServiceCodec
+ *   ORDERS    int quantidade | (int tamanho | OrderServiceCodec) por OS
+ *   ENVELOPE  long número da requisição | quadros da requisição ou da resposta (Envelope)
+ *
+ * Um comando ocupa 6 bytes, uma OS ocupa os bytes dos textos mais 21, e uma lista não é mais um JSON dentro
+ * de um texto. Quem lê converte quando o quadro não é do tipo esperado (receiveTextMessage de um ORDERS devolve
+ * o JSON da lista, receiveJsonMessage de um TEXT lê o texto como JSON), então o código que troca JSON continua
+ * funcionando sobre este protocolo.
+ */
+
+public class BinaryMessageHandler implements MessageHandler, JsonSerializable, Loggable {
+    public static final byte COMMAND = 1;                   // Públicos para o transporte NIO separar os quadros
+    private static final byte TEXT = 2;
+    private static final byte JSON = 3;
+    private static final byte ORDER = 4;
+    private static final byte ORDERS = 5;
+    private static final byte ENVELOPE = 6;
+    public static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private DataOutputStream out;
+    private DataInputStream in;
+    private final String name;
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final boolean announce;
+
+    // Um quadro lido: tipo e corpo
+    private record Frame(byte type, byte[] body) {
+    }
+
+    public BinaryMessageHandler(OutputStream out, InputStream in, String name) {
+        this(out, in, name, true);
+    }
+
+    // announce = false para os fluxos em memória de cada requisição multiplexada, que não são conexões
+    public BinaryMessageHandler(OutputStream out, InputStream in, String name, boolean announce) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.in = new DataInputStream(in);
+        this.name = name;
+        this.announce = announce;
+
+        if (announce) {
+            info("O " + name + " abriu o Fluxo de Dados (binário) com sucesso!");
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Envio
+
+    public void sendTextMessage(String message) {
+        send(TEXT, message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8));
+        message(name + " enviou uma mensagem texto: " + message);
+    }
+
+    public void sendJsonMessage(Object message) {
+        if (message instanceof Command command) {
+            send(COMMAND, new byte[]{command.getOpcode()});
+        } else if (message instanceof OrderService order) {
+            send(ORDER, OrderServiceCodec.encode(order));
+        } else if (message instanceof String json) { // Já serializado por quem chamou
+            send(TEXT, json.getBytes(StandardCharsets.UTF_8));
+        } else if (message != null) {
+            String json = message instanceof JsonSerializable ? ((JsonSerializable) message).toJson() : message.toString();
+            send(JSON, json.getBytes(StandardCharsets.UTF_8));
+        } else {
+            send(TEXT, "Problem na mensagem enviada!".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        message(name + " enviou uma mensagem binária: " + message);
+    }
+
+    public void sendOrders(List<OrderService> orders) {
+        List<byte[]> encoded = new ArrayList<>(orders.size());
+        int size = Integer.BYTES;
+        for (OrderService order : orders) {
+            byte[] bytes = OrderServiceCodec.encode(order);
+            encoded.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            body.putInt(bytes.length);
+            body.put(bytes);
+        }
+        send(ORDERS, body.array());
+        message(name + " enviou uma lista de " + orders.size() + " OS");
+    }
+
+    public void sendEnvelope(Envelope envelope) {
+        send(ENVELOPE, ByteBuffer.allocate(Long.BYTES + envelope.payload().length)
+                .putLong(envelope.id())
+                .put(envelope.payload())
+                .array());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Recebimento
+
+    public Envelope receiveEnvelope() {
+        Frame frame = receive();
+        if (frame == null) {
+            return null;
+        }
+        if (frame.type() != ENVELOPE || frame.body().length < Long.BYTES) {
+            erro("Quadro do tipo " + frame.type() + " numa conexão multiplexada");
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.wrap(frame.body());
+        long id = body.getLong();
+        byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+        return new Envelope(id, payload);
+    }
+
+    public String receiveTextMessage() {
+        Frame frame = receive();
+        if (frame == null) {
+            return null;
+        }
+        String text = switch (frame.type()) {
+            case TEXT, JSON -> new String(frame.body(), StandardCharsets.UTF_8);
+            default -> toJson(frame);
+        };
+        message(name + " recebeu uma mensagem texto: " + text);
+        return text;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T receiveJsonMessage(Class<T> clas) {
+        Frame frame = receive();
+        if (frame == null) {
+            return null;
+        }
+        try {
+            if (frame.type() == COMMAND && clas == Command.class) {
+                return (T) Command.fromOpcode(frame.body()[0]);
+            }
+            if (frame.type() == ORDER && clas == OrderService.class) {
+                return (T) OrderServiceCodec.decode(frame.body());
+            }
+            String json = frame.type() == TEXT || frame.type() == JSON
+                    ? new String(frame.body(), StandardCharsets.UTF_8) : toJson(frame);
+            return objectMapper.readValue(json, clas);
+        } catch (IOException | RuntimeException e) {
+            erro("Erro ao decodificar mensagem binária: " + e);
+            return null;
+        }
+    }
+
+    public List<OrderService> receiveOrders() {
+        Frame frame = receive();
+        if (frame == null) {
+            return null;
+        }
+        if (frame.type() != ORDERS) { // Lista enviada como JSON
+            return JsonSerializable.fromJson(new String(frame.body(), StandardCharsets.UTF_8),
+                    new TypeReference<List<OrderService>>() {});
+        }
+        return decodeOrders(frame.body());
+    }
+
+    public void close() {
+        try {
+            if (out != null && in != null) {
+                out.close();
+                in.close();
+                out = null;
+                in = null;
+
+                if (announce) {
+                    info("O " + name + " fechou o Fluxo de Dados com sucesso!");
+                }
+            }
+        } catch (IOException e) {
+            erro("Erro ao fechar Fluxo de Dados: " + e);
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Um quadro inteiro por vez, mesmo com várias threads enviando pela mesma conexão
+    private void send(byte type, byte[] body) {
+        if (out == null) {
+            erro("O buffer de saída está nulo. Fluxo de Dados não aberto.");
+            return;
+        }
+        sendLock.lock();
+        try {
+            out.writeInt(1 + body.length);
+            out.writeByte(type);
+            out.write(body);
+            out.flush();
+        } catch (IOException e) {
+            erro("Erro ao enviar mensagem binária: " + e);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    // null no fim da conexão, como o readLine do protocolo JSON
+    private Frame receive() {
+        if (in == null) {
+            erro("O buffer de entrada está nulo. Fluxo de Dados não aberto.");
+            return null;
+        }
+        try {
+            int length = in.readInt();
+            if (length < 1 || length > MAX_FRAME_BYTES) {
+                throw new IOException("Quadro com tamanho inválido: " + length);
+            }
+            byte type = in.readByte();
+            byte[] body = new byte[length - 1];
+            in.readFully(body);
+            return new Frame(type, body);
+        } catch (EOFException e) {
+            erro("Erro ao receber mensagem binária: conexão encerrada.");
+            return null;
+        } catch (IOException e) {
+            erro("Erro ao receber mensagem binária: " + e);
+            return null;
+        }
+    }
+
+    private static List<OrderService> decodeOrders(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int count = buffer.getInt();
+        List<OrderService> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            orders.add(OrderServiceCodec.decode(buffer.slice(buffer.position(), length)));
+            buffer.position(buffer.position() + length);
+        }
+        return orders;
+    }
+
+    // JSON equivalente ao quadro, para quem esperava outro tipo
+    private static String toJson(Frame frame) {
+        return switch (frame.type()) {
+            case COMMAND -> Command.fromOpcode(frame.body()[0]).toJson();
+            case ORDER -> OrderServiceCodec.decode(frame.body()).toJson();
+            case ORDERS -> {
+                try {
+                    yield objectMapper.writeValueAsString(decodeOrders(frame.body()));
+                } catch (IOException e) {
+                    yield "[]";
+                }
+            }
+            default -> new String(frame.body(), StandardCharsets.UTF_8);
+        };
+    }
+}
@@ -1,116 +1,566 @@
 package org.example.utils.common;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.example.utils.Loggable;
-import org.example.utils.exceptions.ElementNotFoundException;
-import org.example.utils.listsAA.LinkedListAAMF;
-
-import lombok.Getter;
+import org.example.utils.common.eviction.EvictionPolicyType;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.common.stats.CacheStats;
+import org.example.utils.common.stats.CacheStatsReport;
 
 /*
  * A classe Cache é responsável por gerenciar a cache de ordens de serviço.
- * Ela foi implementada utilizando uma lista duplamente encadeada autoajustável.
- * A cache possui uma capacidade máxima (30 nesse exemplo), e quando atinge essa capacidade, a política de cache eviction
- * LRU (Least Recently Used) é aplicada, removendo o último elemento da cache.
+ * A cache possui uma capacidade máxima (30 por padrão), e quando atinge essa capacidade, a política de cache eviction
+ * escolhida decide qual elemento sai. As políticas disponíveis ficam em org.example.utils.common.eviction:
+ *
+ *  - LRU: lista autoajustável com índice hash, o último elemento é o menos recentemente usado (padrão);
+ *  - LFU: despeja o menos frequentemente usado;
+ *  - ARC: equilibra recência e frequência sozinha usando listas fantasma;
+ *  - SIEVE: fila FIFO com bit de visitado, resistente a varreduras e mais barata que o LRU num HIT;
+ *  - W-TinyLFU: janela LRU + SLRU com admissão por frequência estimada.
+ *
+ * Por que várias políticas?
+ *
+ * O LRU puro sofre quando os operadores listam e paginam as ordens: cada varredura empurra para fora
+ * os elementos quentes. Os contadores de HIT e MISS permitem comparar as políticas na nossa distribuição de códigos.
+ *
+ * Concorrência
+ *
+ * O Proxy atende cada cliente numa thread e até uma busca altera a política (o LRU move o nó para o início).
+ * Em vez de um lock global, a cache é dividida em segmentos pelo código da OS, cada um com a sua própria
+ * política e o seu próprio lock, então clientes que acessam códigos de segmentos diferentes não disputam entre si.
+ * Caches pequenas (como a padrão de 30) ficam com um único segmento e mantêm a política exata.
+ *
+ * Expiração (TTL)
+ *
+ * Cada elemento pode ter um tempo de vida (ou usar o TTL padrão da cache). Os prazos ficam numa TimerWheel
+ * por segmento: uma busca nunca devolve um elemento vencido, e uma thread de fundo (reaper) avança as rodas
+ * e remove os vencidos fora do caminho das requisições. Isso limita o quanto um dado da cache pode estar
+ * desatualizado sem precisar esvaziar a cache inteira.
+ *
+ * Gerações
  *
- * Por que escolhi o LRU?
+ * Cada escrita (insert, alter, remove) incrementa a geração da faixa de códigos do elemento. Quem busca no
+ * servidor lê generation(code) antes de ir até ele e preenche com insertIfUnchanged: se uma escrita aconteceu no
+ * meio, o valor lido pode ser anterior a ela e não entra. Faixas compartilhadas só causam MISS a mais.
  *
- * Como se trata de uma lista autoajustável, que move os elementos mais acessados para o início,
- * fica mais fácil de implementar a política de cache eviction LRU, já que o último elemento da lista
- * é, graças a autoajustabilidade, o menos acessado.
+ * Nível fora do heap
+ *
+ * Opcionalmente, os elementos despejados dos segmentos descem para um OffHeapStore (memória nativa) em vez de
+ * serem descartados, e um HIT lá promove o elemento de volta para o segmento. Assim a cache pode guardar milhões
+ * de ordens de serviço sem aumentar o heap; o prazo de expiração acompanha o elemento entre os níveis.
+ * Cada segmento tem o seu OffHeapStore, com uma parte do limite de memória, usado só com o lock do segmento
+ * (cada um reserva pelo menos um slab de 1 MiB).
+ *
+ * Estatísticas
+ *
+ * Todos os eventos (HIT, MISS, inserção, despejo, invalidação, expiração, idas ao servidor) são contados em
+ * CacheStats, junto com a latência das buscas e a taxa de acerto em janelas de 1, 5 e 15 minutos. O Proxy
+ * devolve tudo isso no comando STATS através de report().
  */
 
 public class Cache implements Loggable {
-    private final int CAPACIDADE;
-    private final LinkedListAAMF cache;
-    @Getter
-    private int hits = 0;
-    @Getter
-    private int misses = 0;
+    private static final int SHOW_LIMIT = 30;       // Quantidade máxima de elementos exibidos no show()
+    private static final int MIN_SEGMENT_SIZE = 16; // Segmentos menores que isso distorcem demais a política
+    private static final int WHEEL_BUCKETS = 1024;  // Baldes da roda de expiração (uma volta = 1024 ticks)
+    private static final long TICK_MILLIS = 250;    // Resolução da expiração e período do reaper
+    private static final int GENERATION_STRIPES = 4096; // Faixas de códigos com geração própria
+
+    private static class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final EvictionPolicy policy;
+        final TimerWheel wheel;
+        final OffHeapStore offHeap;     // Segundo nível do segmento (null = desativado), só com o lock
+
+        Segment(EvictionPolicy policy, long offHeapBytes) {
+            this.policy = policy;
+            this.offHeap = offHeapBytes > 0 ? new OffHeapStore(offHeapBytes) : null;
+            this.wheel = new TimerWheel(WHEEL_BUCKETS, TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS), System.nanoTime());
+        }
+    }
+
+    private final Segment[] segments;               // Cada segmento tem o seu lock
+    private final int segmentMask;
+    private final int capacity;
+    private final Duration defaultTtl;              // Duration.ZERO = sem expiração
+    private ScheduledExecutorService reaper;        // Criado no primeiro elemento com TTL
+    private final CacheStats stats = new CacheStats();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES); // Escritas por faixa
 
     // --------------------------------------------------------------------------------
     // Construtores
 
     public Cache() {
-        this.CAPACIDADE = 30;
-        cache = new LinkedListAAMF();
-        initializerCache();
+        this(30);
+    }
+
+    public Cache(int capacidade) {
+        this(capacidade, EvictionPolicyType.LRU);
+    }
+
+    public Cache(int capacidade, EvictionPolicyType policy) {
+        this(capacidade, policy, Runtime.getRuntime().availableProcessors());
+    }
+
+    public Cache(int capacidade, EvictionPolicyType policy, int concurrencyLevel) {
+        this(capacidade, policy, concurrencyLevel, Duration.ZERO);
     }
 
-    private void initializerCache() {
-        for (int i = 0; i < 30; i++) {
-            OrderService os = new OrderService("Nome" + i, "Descrição" + i);
-            insert(os);
+    public Cache(int capacidade, EvictionPolicyType policy, int concurrencyLevel, Duration defaultTtl) {
+        this(capacidade, policy, concurrencyLevel, defaultTtl, 0);
+    }
+
+    // offHeapBytes > 0 ativa o nível fora do heap com esse limite de memória nativa
+    public Cache(int capacidade, EvictionPolicyType policy, int concurrencyLevel, Duration defaultTtl, long offHeapBytes) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("A capacidade da cache deve ser positiva: " + capacidade);
+        }
+
+        int count = segmentCount(capacidade, concurrencyLevel);
+        this.capacity = capacidade;
+        this.segmentMask = count - 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Distribui o resto da divisão para que a soma das capacidades seja exatamente a capacidade total
+            segments[i] = new Segment(policy.create(capacidade / count + (i < capacidade % count ? 1 : 0)),
+                    offHeapBytes > 0 ? Math.max(1, offHeapBytes / count) : 0); // O limite é dividido entre os segmentos
         }
+        this.defaultTtl = defaultTtl == null || defaultTtl.isNegative() ? Duration.ZERO : defaultTtl;
     }
 
     // --------------------------------------------------------------------------------
     // Métodos
 
     public OrderService search(int code) {
+        long start = System.nanoTime();
+        Segment segment = segmentFor(code);
+        OrderService order;
+        boolean expired = false;
+        boolean promoted = false;
+
+        segment.lock.lock();
         try {
-            OrderService order = cache.search(code);
-            hits++;
-            info("OrderService encontrado na cache HIT: " + hits);
-            return order;
-        } catch (ElementNotFoundException e) {
-            misses++;
-            info("OrderService não encontrado na cache MISS: " + misses);
-            return null;
+            if (segment.wheel.isExpired(code, System.nanoTime())) { // Vencido mas o reaper ainda não passou
+                segment.wheel.cancel(code);
+                segment.policy.remove(code);
+                expired = true;
+                order = null;
+            } else {
+                order = segment.policy.get(code);
+            }
+
+            if (order == null && segment.offHeap != null) {
+                OffHeapStore.Entry entry = segment.offHeap.take(code);
+                if (entry != null) { // HIT no nível fora do heap: promove de volta para o segmento
+                    order = entry.order();
+                    putInSegment(segment, order, entry.expires(), entry.deadline());
+                    promoted = true;
+                }
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+
+        stats.recordLookup(order != null, System.nanoTime() - start); // Antes dos logs, que custam mais que a busca
+
+        if (expired) {
+            stats.recordExpirations(1);
+            info("OrderService " + code + " expirado na cache");
         }
+        if (promoted) {
+            stats.recordOffHeapHit();
+            info("OrderService " + code + " promovido do nível fora do heap");
+        }
+
+        if (order != null) {
+            info("OrderService encontrado na cache (" + getPolicyName() + ") HIT: " + stats.getHits() + " | Hit ratio: " + formatHitRatio());
+        } else {
+            info("OrderService não encontrado na cache (" + getPolicyName() + ") MISS: " + stats.getMisses() + " | Hit ratio: " + formatHitRatio());
+        }
+
+        return order;
     }
 
     public void insert(OrderService orderService) {
-        if (cache.size() == CAPACIDADE) {
-            // Remove o último elemento da cache já que estamos usando a política de cache eviction LRU
-            OrderService removed = cache.removeLast();
+        insert(orderService, defaultTtl);
+    }
+
+    // Insere com um TTL próprio; Duration.ZERO (ou null) faz o elemento nunca expirar
+    public void insert(OrderService orderService, Duration ttl) {
+        insert(orderService, ttl, -1);
+    }
+
+    // Geração atual da faixa do código, para um insertIfUnchanged depois
+    public long generation(int code) {
+        return generations.get(stripeOf(code));
+    }
+
+    // Insere só se nenhuma escrita no código (na faixa dele) aconteceu desde generation(code); false se não inseriu
+    public boolean insertIfUnchanged(OrderService orderService, Duration ttl, long generation) {
+        return insert(orderService, ttl, generation);
+    }
+
+    // generation < 0: escrita incondicional, que incrementa a geração
+    private boolean insert(OrderService orderService, Duration ttl, long generation) {
+        Segment segment = segmentFor(orderService.getCode());
+        int stripe = stripeOf(orderService.getCode());
+        boolean expires = ttl != null && ttl.compareTo(Duration.ZERO) > 0;
+        boolean stale;
+        OrderService removed = null;
+
+        if (expires) {
+            startReaper();
+        }
+
+        segment.lock.lock();
+        try {
+            stale = generation >= 0 && generations.get(stripe) != generation;
+            if (!stale) {
+                if (generation < 0) {
+                    generations.incrementAndGet(stripe);
+                }
+                if (segment.offHeap != null) {
+                    segment.offHeap.remove(orderService.getCode()); // A cópia antiga do segundo nível ficou desatualizada
+                }
+                removed = putInSegment(segment, orderService, expires, expires ? System.nanoTime() + ttl.toNanos() : 0);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+
+        if (stale) {
+            info("Elemento lido antes de uma escrita, não inserido na cache: " + orderService.getCode());
+            return false;
+        }
+
+        stats.recordInsert();
+
+        if (removed == orderService) {
+            info("Elemento não admitido na cache pela política " + getPolicyName() + ": " + orderService);
+            return false;
+        }
+        if (removed != null) {
             info("Cache Cheia, elemento Remvoido: " + removed);
         }
 
-        cache.insertFirst(orderService);
         info("Elemento inserido na cache: " + orderService);
+        return true;
     }
 
+    // Mantém o prazo de expiração atual do elemento
     public boolean alter(OrderService orderService) {
+        Segment segment = segmentFor(orderService.getCode());
+        segment.lock.lock();
         try {
-            cache.alter(orderService);
-        } catch (ElementNotFoundException e) {
-            return false;
+            generations.incrementAndGet(stripeOf(orderService.getCode()));
+            return segment.policy.replace(orderService) || (segment.offHeap != null && segment.offHeap.replace(orderService));
+        } finally {
+            segment.lock.unlock();
         }
-
-        return true;
     }
 
     public boolean remove(int code) {
+        Segment segment = segmentFor(code);
+        boolean removed;
+        segment.lock.lock();
         try {
-            cache.remove(code);
-        } catch (ElementNotFoundException e) {
-            return false;
+            generations.incrementAndGet(stripeOf(code));
+            segment.wheel.cancel(code);
+            boolean removedOffHeap = segment.offHeap != null && segment.offHeap.remove(code);
+            removed = segment.policy.remove(code) != null || removedOffHeap;
+        } finally {
+            segment.lock.unlock();
         }
 
-        return true;
+        if (removed) {
+            stats.recordInvalidation();
+        }
+        return removed;
     }
 
-    public List<OrderService> listAll() {
-        try {
-            return cache.listAll();
-        } catch (ElementNotFoundException e) {
-            return null;
+    // Até 'limit' códigos, do mais quente para o mais frio: intercala os segmentos, cada um na ordem da sua política
+    public int[] hotCodes(int limit) {
+        List<List<OrderService>> perSegment = new ArrayList<>(segments.length);
+        int total = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                List<OrderService> values = segment.policy.values(limit);
+                perSegment.add(values);
+                total += values.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        int[] codes = new int[Math.min(limit, total)];
+        int n = 0;
+        for (int i = 0; n < codes.length; i++) {
+            for (List<OrderService> values : perSegment) {
+                if (i < values.size() && n < codes.length) {
+                    codes[n++] = values.get(i).getCode();
+                }
+            }
+        }
+        return codes;
+    }
+
+    // Aquece a cache com OS vindas do servidor, recebidas do mais quente para o mais frio
+    public void warm(List<OrderService> hottestFirst) {
+        for (int i = hottestFirst.size() - 1; i >= 0; i--) { // O mais quente entra por último e fica na frente
+            OrderService orderService = hottestFirst.get(i);
+            Segment segment = segmentFor(orderService.getCode());
+            boolean expires = defaultTtl.compareTo(Duration.ZERO) > 0;
+
+            if (expires) {
+                startReaper();
+            }
+            segment.lock.lock();
+            try {
+                putInSegment(segment, orderService, expires, expires ? System.nanoTime() + defaultTtl.toNanos() : 0);
+            } finally {
+                segment.lock.unlock();
+            }
+            stats.recordInsert();
         }
+        message("Cache aquecida com " + hottestFirst.size() + " elementos");
+    }
+
+    public List<OrderService> listAll() {
+        List<OrderService> list = values(Integer.MAX_VALUE);
+        return list.isEmpty() ? null : list;
     }
 
     public void show() {
         System.out.println("--------------------- Estado da Cache ------------------------");
-        cache.show();
+        List<OrderService> list = values(SHOW_LIMIT);
+        int size = size();
+
+        if (list.isEmpty()) {
+            System.out.println("Lista vazia");
+        }
+        for (int i = 0; i < list.size(); i++) {
+            OrderService os = list.get(i);
+            System.out.printf("%d: [Código: %d, Nome: %s, Descrição: %s, Hora: %s]%n", i, os.getCode(), os.getName(), os.getDescription(), os.getRequestTime());
+        }
+        if (size > list.size()) {
+            System.out.printf("... mais %d elementos%n", size - list.size());
+        }
         System.out.println("--------------------------------------------------------------");
     }
 
+    public long getHits() {
+        return stats.getHits();
+    }
+
+    public long getMisses() {
+        return stats.getMisses();
+    }
+
+    public double getHitRatio() {
+        return stats.getHitRatio();
+    }
+
+    public long getExpirations() {
+        return stats.getExpirations();
+    }
+
+    public long getOffHeapHits() {
+        return stats.getOffHeapHits();
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    // Estatísticas completas, com o estado atual da cache
+    public CacheStatsReport report() {
+        return stats.report()
+                .policy(getPolicyName())
+                .capacity(capacity)
+                .size(size())
+                .offHeapSize(offHeapSize())
+                .build();
+    }
+
+    public int offHeapSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.offHeap == null ? 0 : segment.offHeap.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long offHeapReservedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                bytes += segment.offHeap == null ? 0 : segment.offHeap.reservedBytes();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public String getPolicyName() {
+        return segments[0].policy.getName();
+    }
+
+    public int getSegments() {
+        return segments.length;
+    }
+
+    // Soma dos segmentos; sob escrita concorrente é uma aproximação, como o size() da ConcurrentHashMap
     public int size() {
-        return cache.size();
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.policy.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
     }
 
     public boolean isEmpty() {
-        return cache.isEmpty();
+        return size() == 0;
+    }
+
+    // Encerra a thread de expiração e libera a memória do nível fora do heap
+    public synchronized void close() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                if (segment.offHeap != null) {
+                    segment.offHeap.close();
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Insere no segmento (chamado com o lock do segmento) e manda o despejado para o nível fora do heap
+    private OrderService putInSegment(Segment segment, OrderService orderService, boolean expires, long deadline) {
+        OrderService removed = segment.policy.put(orderService);
+
+        if (removed != null) {
+            stats.recordEviction();
+            int code = removed.getCode();
+            boolean removedExpires = removed == orderService ? expires : segment.wheel.isScheduled(code);
+            long removedDeadline = removed == orderService ? deadline : segment.wheel.deadline(code);
+            segment.wheel.cancel(code);
+
+            if (segment.offHeap != null) {
+                segment.offHeap.put(removed, removedExpires, removedDeadline);
+            }
+        }
+        if (removed != orderService) {
+            if (expires) {
+                segment.wheel.schedule(orderService.getCode(), deadline);
+            } else {
+                segment.wheel.cancel(orderService.getCode());
+            }
+        }
+
+        return removed;
+    }
+
+    private synchronized void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+
+        reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleAtFixedRate(this::reapExpired, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Executado pelo reaper: avança a roda de cada segmento e remove os elementos vencidos
+    private void reapExpired() {
+        int expired = 0;
+
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                expired += segment.wheel.advance(System.nanoTime(), segment.policy::remove);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        if (expired > 0) {
+            stats.recordExpirations(expired);
+            message("Reaper removeu " + expired + " elementos expirados da cache");
+        }
+    }
+
+    private static int stripeOf(int code) {
+        return Math.floorMod(code, GENERATION_STRIPES);
+    }
+
+    private Segment segmentFor(int code) {
+        int h = code * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    private List<OrderService> values(int limit) {
+        List<OrderService> list = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (list.size() >= limit) {
+                break;
+            }
+            segment.lock.lock();
+            try {
+                list.addAll(segment.policy.values(limit - list.size()));
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return list;
+    }
+
+    // Potência de 2 limitada pelo nível de concorrência e pelo tamanho mínimo de cada segmento
+    private static int segmentCount(int capacidade, int concurrencyLevel) {
+        int limit = Math.max(1, Math.min(concurrencyLevel, capacidade / MIN_SEGMENT_SIZE));
+        return Integer.highestOneBit(limit);
+    }
+
+    private String formatHitRatio() {
+        return String.format("%.2f%%", getHitRatio() * 100);
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,62 @@
 package org.example.utils.common;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.example.utils.Command;
+import org.example.utils.JsonSerializable;
+import org.example.utils.Loggable;
+import org.example.utils.common.interfaces.MessageHandler;
+
+/*
+ * Negociação do protocolo (WireProtocol), antes de qualquer mensagem:
+ *
+ *   quem conecta:  "HELLO binary json\n"   (os protocolos que aceita, na ordem de preferência)
+ *   quem aceitou:  "HELLO binary\n"        (o primeiro da lista que ele também aceita)
+ *
+ * Com -Dprotocol=json um processo só oferece ou só escolhe JSON. Um par que não fala HELLO fica no JSON de
+ * sempre: quem aceitou espera o HELLO por no máximo -Dprotocol.hello.timeout ms, e quem conectou e recebe
+ * outra coisa (um menu, por exemplo) devolve a linha para ser lida como a primeira mensagem.
+ *
+ * Quem fala HELLO o envia logo ao conectar, então ele chega em uma ida pela rede; o prazo (100 ms) é o que um par
+ * antigo espera a mais pelo menu. Um HELLO que chegar depois do prazo faz a conexão seguir em JSON, e a linha
+ * dele é lida como um comando inválido. Em enlaces com latência maior, aumente o prazo.
+ *
+ * Pipelining: depois de pipeline() (Command.MULTIPLEX, aceito pelo Proxy e pelo Servidor) cada request() vai num
+ * Envelope com um número e devolve na hora um futuro da resposta, sem esperar as anteriores. Com muitas requisições
+ * no caminho, um enlace de latência alta fica limitado pela banda, não pelas idas e voltas.
+ */
 
 @Getter
-public class Communicator {
+public class Communicator implements Loggable {
+    private static final String HELLO = WireProtocol.HELLO;
+    private static final int MAX_HELLO_BYTES = WireProtocol.MAX_HELLO_BYTES;
+
     private final AbstractSocketConnection connection;
-    private AbstractMessageHandler ioHandler;
+    private MessageHandler ioHandler;
+    private WireProtocol protocol;
     private final String name;
+    @Getter(AccessLevel.NONE)
+    private ByteArrayOutputStream memory;           // Só nos Communicators em memória (inMemory)
+    @Getter(AccessLevel.NONE)
+    private MultiplexedConnection pipeline;         // Depois de pipeline()
+    @Getter(AccessLevel.NONE)
+    private final ArrayDeque<String> prefetched = new ArrayDeque<>(); // Lidas por prefetch, ainda não recebidas
 
     public Communicator(String name) {
         this.connection = new AbstractSocketConnection(name);
@@ -20,28 +67,59 @@ public class Communicator {
         this.connection = new AbstractSocketConnection(socket, name);
         this.name = name;
         if (connection.isConnected()) {
-            createIOHandler();
+            createIOHandler(false);
         }
     }
 
+    // Conexão aceita pelo transporte NIO: o HELLO já foi respondido pelo laço de eventos e os fluxos são os dele
+    public Communicator(Socket socket, String name, WireProtocol protocol, InputStream in, OutputStream out) {
+        this.connection = new AbstractSocketConnection(socket, name);
+        this.name = name;
+        this.protocol = protocol;
+        this.ioHandler = newHandler(protocol, out, in, name);
+    }
+
+    // Mensagens de uma requisição multiplexada (Envelope): lê de 'input' e guarda em memória o que for enviado,
+    // para virar a resposta (getWritten). Sem socket: isConnected() é false e disconnect() não fecha nada
+    public static Communicator inMemory(String name, WireProtocol protocol, byte[] input) {
+        Communicator communicator = new Communicator(name);
+        communicator.protocol = protocol;
+        communicator.memory = new ByteArrayOutputStream();
+        communicator.ioHandler = protocol == WireProtocol.BINARY
+                ? new BinaryMessageHandler(communicator.memory, new ByteArrayInputStream(input), name, false)
+                : new AbstractMessageHandler(communicator.memory, new ByteArrayInputStream(input), name, false);
+        return communicator;
+    }
+
     public void connect(String host, int port) {
         connection.connect(host, port);
         if (connection.isConnected()) {
-            createIOHandler();
+            createIOHandler(true);
         }
     }
 
-    public void createIOHandler() {
+    public void createIOHandler(boolean initiator) {
         try {
             if (ioHandler != null) {
                 ioHandler.close();
             }
-            ioHandler = new AbstractMessageHandler(connection.getSocket().getOutputStream(), connection.getSocket().getInputStream(), name);
+            Socket socket = connection.getSocket();
+            BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            protocol = initiator ? offer(out, in) : answer(socket, out, in);
+            ioHandler = newHandler(protocol, out, in, name);
         } catch (IOException e) {
             throw new RuntimeException("Erro ao tentar abrir Fluxo de Dados!", e);
         }
     }
 
+    private static MessageHandler newHandler(WireProtocol protocol, OutputStream out, InputStream in, String name) {
+        return protocol == WireProtocol.BINARY
+                ? new BinaryMessageHandler(out, in, name)
+                : new AbstractMessageHandler(out, in, name);
+    }
+
     public void disconnect() {
         if (ioHandler != null) ioHandler.close();
         connection.disconnect();
@@ -55,12 +133,86 @@ public class Communicator {
         ioHandler.sendJsonMessage(message);
     }
 
+    public void sendOrders(List<OrderService> orders) {
+        ioHandler.sendOrders(orders);
+    }
+
     public String receiveTextMessage() {
-        return ioHandler.receiveTextMessage();
+        String message = prefetched.pollFirst();
+        return message != null ? message : ioHandler.receiveTextMessage();
     }
 
     public <T> T receiveJsonMessage(Class<T> clas) {
-        return ioHandler.receiveJsonMessage(clas);
+        String message = prefetched.pollFirst();
+        return message != null ? JsonSerializable.fromJson(message, clas) : ioHandler.receiveJsonMessage(clas);
+    }
+
+    public List<OrderService> receiveOrders() {
+        String message = prefetched.pollFirst();
+        return message != null
+                ? JsonSerializable.fromJson(message, new TypeReference<List<OrderService>>() {})
+                : ioHandler.receiveOrders();
+    }
+
+    // Lê já as próximas 'messages' mensagens (os dados de uma requisição), como texto; os receive seguintes as
+    // devolvem antes de ler a conexão. Num Communicator em memória tudo já chegou, então não faz nada
+    public void prefetch(int messages) {
+        if (memory != null) {
+            return;
+        }
+        for (int i = 0; i < messages; i++) {
+            String message = ioHandler.receiveTextMessage();
+            if (message == null) {
+                return;
+            }
+            prefetched.addLast(message);
+        }
+    }
+
+    public void sendEnvelope(Envelope envelope) {
+        ioHandler.sendEnvelope(envelope);
+    }
+
+    public Envelope receiveEnvelope() {
+        return ioHandler.receiveEnvelope();
+    }
+
+    // Passa a conexão (já autenticada, com o menu lido) para o modo multiplexado. Depois disso as requisições vão
+    // só por request(); false se o outro lado não aceitou
+    public boolean pipeline() {
+        if (pipeline == null || !pipeline.isOpen()) {
+            pipeline = new MultiplexedConnection(name, this, null);
+        }
+        return pipeline.isOpen();
+    }
+
+    public boolean isPipelined() {
+        return pipeline != null && pipeline.isOpen();
+    }
+
+    // Envia o comando e os dados dele (String como texto, o resto como JSON) sem esperar a resposta. O futuro
+    // completa com um Communicator em memória de onde se lê a resposta, com os receive de sempre, ou falha se a
+    // conexão cair antes dela chegar
+    public CompletableFuture<Communicator> request(Command command, Object... payloads) {
+        if (pipeline == null) {
+            throw new IllegalStateException(name + ": request() só depois de pipeline()");
+        }
+        WireProtocol wire = pipeline.getProtocol();
+        Communicator request = inMemory(name, wire, new byte[0]);
+        request.sendJsonMessage(command);
+        for (Object payload : payloads) {
+            if (payload instanceof String text) {
+                request.sendTextMessage(text);
+            } else {
+                request.sendJsonMessage(payload);
+            }
+        }
+        return pipeline.submit(request.getWritten()).thenApply(response -> inMemory(name, wire, response));
+    }
+
+    // O que foi enviado por um Communicator em memória
+    public byte[] getWritten() {
+        return memory == null ? new byte[0] : memory.toByteArray();
     }
 
     public boolean isConnected() {
@@ -74,4 +226,62 @@ public class Communicator {
     public Socket getSocket() {
         return connection.getSocket();
     }
-}
\ No newline at end of file
+
+    // --------------------------------------------------------------------------------
+    // Negociação
+
+    // Lado que conectou: oferece os protocolos e lê a escolha
+    private WireProtocol offer(OutputStream out, BufferedInputStream in) throws IOException {
+        WireProtocol preferred = WireProtocol.preferred();
+        String offer = preferred == WireProtocol.BINARY ? "binary json" : "json";
+        out.write((HELLO + " " + offer + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        in.mark(MAX_HELLO_BYTES);
+        String reply = readLine(in);
+        if (reply == null || !reply.startsWith(HELLO + " ")) {
+            in.reset(); // Par sem HELLO: a linha é a primeira mensagem dele
+            warn(name + ": o outro lado não negociou o protocolo, usando JSON");
+            return WireProtocol.JSON;
+        }
+        return WireProtocol.fromName(reply.substring(HELLO.length() + 1));
+    }
+
+    // Lado que aceitou: espera a oferta e responde com o protocolo escolhido
+    private WireProtocol answer(Socket socket, OutputStream out, BufferedInputStream in) throws IOException {
+        int timeout = socket.getSoTimeout();
+        String hello;
+        in.mark(MAX_HELLO_BYTES);
+        try {
+            socket.setSoTimeout(Integer.getInteger("protocol.hello.timeout", 100));   // -Dprotocol.hello.timeout=ms
+            hello = readLine(in);
+        } catch (SocketTimeoutException e) {
+            hello = null; // Par que espera a primeira mensagem deste lado
+        } finally {
+            socket.setSoTimeout(timeout);
+        }
+
+        WireProtocol chosen = WireProtocol.answer(hello);
+        if (chosen == null) {
+            in.reset();
+            warn(name + ": o outro lado não negociou o protocolo, usando JSON");
+            return WireProtocol.JSON;
+        }
+        out.write((HELLO + " " + chosen.name().toLowerCase() + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return chosen;
+    }
+
+    // Uma linha de até MAX_HELLO_BYTES sem consumir nada além dela; null se a conexão acabou antes
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0 || line.size() == MAX_HELLO_BYTES - 1) {
+                return b < 0 && line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8).stripTrailing();
+    }
+}
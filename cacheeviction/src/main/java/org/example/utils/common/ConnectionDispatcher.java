@@ -0,0 +1,167 @@
+package org.example.utils.common;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+import org.example.utils.Command;
+import org.example.utils.Loggable;
+
+/*
+ * Entrega as conexões aceitas pelo ServerSocket ao handleClient do Servidor, do Proxy e do Localizador:
+ *
+ *  - THREADS (e NIO, que não passa por aqui): uma thread de plataforma por conexão, como sempre foi;
+ *  - VIRTUAL: uma thread virtual por conexão (Executors.newVirtualThreadPerTaskExecutor), com dois limites:
+ *      - conexões: no máximo maxConnections atendidas ao mesmo tempo. Cheio, o laço de accept espera até
+ *        admissionTimeout por uma vaga (as próximas ficam no backlog do socket) e depois recusa a conexão;
+ *      - requisições: no máximo maxActive ações rodando ao mesmo tempo (admit). A espera pelo próximo comando
+ *        e pelos dados dele fica fora desse limite, então conexões ociosas ou lentas para enviar não ocupam
+ *        vaga; as que passarem do limite esperam
+ *        estacionadas, sem thread do sistema, em vez de todas disputarem a árvore e o Servidor de uma vez.
+ */
+
+public class ConnectionDispatcher implements Loggable, AutoCloseable {
+    @Getter
+    private final String name;
+    @Getter
+    private final TransportMode mode;
+    private final ExecutorService executor;                 // Só no VIRTUAL
+    private final Semaphore connectionPermits;              // Só no VIRTUAL
+    private final Semaphore activePermits;                  // Só no VIRTUAL
+    @Getter
+    private final int maxConnections;
+    @Getter
+    private final int maxActive;
+    private final long admissionTimeoutMillis;
+    @Getter
+    private final int backlog;                              // Fila de conexões do ServerSocket
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConnectionDispatcher(String name, TransportMode mode, int maxConnections, int maxActive,
+                                long admissionTimeoutMillis, int backlog) {
+        this.name = name;
+        this.mode = mode;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.maxActive = Math.max(1, maxActive);
+        this.admissionTimeoutMillis = Math.max(0, admissionTimeoutMillis);
+        this.backlog = mode == TransportMode.VIRTUAL ? Math.max(1, backlog) : 50; // O de sempre fora do VIRTUAL
+
+        if (mode == TransportMode.VIRTUAL) {
+            this.executor = Executors.newVirtualThreadPerTaskExecutor();
+            this.connectionPermits = new Semaphore(this.maxConnections);
+            this.activePermits = new Semaphore(this.maxActive, true); // Por ordem de chegada
+            info(name + ": threads virtuais, até " + this.maxConnections + " conexões e " + this.maxActive
+                    + " requisições ao mesmo tempo");
+        } else {
+            this.executor = null;
+            this.connectionPermits = null;
+            this.activePermits = null;
+        }
+    }
+
+    public static ConnectionDispatcher fromSystemProperties(String name) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return new ConnectionDispatcher(name, TransportMode.preferred(),
+                Integer.getInteger("virtual.max.connections", 10_000),             // -Dvirtual.max.connections=N
+                Integer.getInteger("virtual.max.active", Math.max(64, cpus * 16)),  // -Dvirtual.max.active=N requisições ao mesmo tempo
+                Long.getLong("virtual.admission.timeout", 1_000),                   // -Dvirtual.admission.timeout=ms esperando vaga
+                Integer.getInteger("virtual.backlog", 1024));                       // -Dvirtual.backlog=N
+    }
+
+    // Atende a conexão numa thread nova (virtual ou não). No VIRTUAL, bloqueia o accept enquanto não houver vaga
+    public void dispatch(Socket client, Consumer<Socket> handler) {
+        if (executor == null) {
+            new Thread(() -> handler.accept(client)).start();
+            return;
+        }
+
+        try {
+            if (!connectionPermits.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                warn(name + ": limite de " + maxConnections + " conexões atingido, recusando "
+                        + client.getRemoteSocketAddress());
+                closeQuietly(client);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeQuietly(client);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    handler.accept(client);
+                } finally {
+                    connectionPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) { // Encerrando
+            connectionPermits.release();
+            closeQuietly(client);
+        }
+    }
+
+    // Roda uma ação de requisição dentro do limite de requisições em andamento (direto fora do VIRTUAL)
+    public void admit(Runnable action) {
+        if (activePermits == null) {
+            action.run();
+            return;
+        }
+
+        try {
+            activePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + ": interrompido esperando vaga para a requisição", e);
+        }
+        try {
+            action.run();
+        } finally {
+            activePermits.release();
+        }
+    }
+
+    // Como admit(action), mas só pede a vaga depois de ler os dados do comando (Command.getPayloads()), para um
+    // cliente lento para enviar não segurar a vaga enquanto a ação espera por ele
+    public void admit(Communicator communicator, Command command, Runnable action) {
+        if (activePermits != null) {
+            communicator.prefetch(command.getPayloads());
+        }
+        admit(action);
+    }
+
+    // Conexões sendo atendidas agora (só no VIRTUAL; 0 nos outros modos)
+    public int getConnections() {
+        return connectionPermits == null ? 0 : maxConnections - connectionPermits.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // Não espera as conexões em andamento: cada uma termina quando o seu cliente desconectar
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void closeQuietly(Socket client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            erro(name + ": erro ao fechar conexão recusada: " + e.getMessage());
+        }
+    }
+}
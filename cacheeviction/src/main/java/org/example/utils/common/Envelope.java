@@ -0,0 +1,12 @@
+package org.example.utils.common;
+
+/*
+ * Uma requisição (ou a resposta dela) numa conexão multiplexada: o número da requisição e as mensagens dela,
+ * já codificadas no protocolo da conexão (o comando e os dados que o seguem, ou tudo que a ação respondeu).
+ * As respostas voltam com o mesmo número, na ordem em que ficam prontas. Ver MultiplexedSession.
+ *
+ *   binário: quadro ENVELOPE com long número | mensagens
+ *   JSON:    uma linha {"id": número, "payload": mensagens em base64}
+ */
+public record Envelope(long id, byte[] payload) {
+}
@@ -0,0 +1,148 @@
+package org.example.utils.common;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.example.utils.Command;
+
+/*
+ * Communicator com a mesma cara de sempre (envia o comando e os dados, depois lê a resposta), mas sobre conexões
+ * multiplexadas compartilhadas: as mensagens de uma requisição se acumulam em memória e, assim que chega a
+ * última (1 + Command.getPayloads()), vão num Envelope pela conexão que 'connections' escolher. A leitura
+ * seguinte espera a resposta daquela requisição e lê dela.
+ *
+ * Como o envio não espera a resposta, enviar para vários Servidores antes de ler continua espalhando o
+ * trabalho entre eles ao mesmo tempo. Um ExchangeCommunicator é de uma thread por vez, como um Communicator;
+ * quem compartilha são as conexões por baixo.
+ */
+
+public class ExchangeCommunicator extends Communicator {
+    private final Supplier<MultiplexedConnection> connections; // Conexão de cada requisição (null = indisponível)
+    private final long timeoutMillis;                           // Espera pela resposta
+    private MultiplexedConnection pendingConnection;            // Para onde vai a requisição em montagem
+    private Communicator request;                               // Mensagens da requisição em montagem
+    private WireProtocol requestProtocol;
+    private int remaining;                                      // Mensagens que faltam para completar a requisição
+    private CompletableFuture<byte[]> response;
+    private WireProtocol responseProtocol;
+    private Communicator reader;                                // Mensagens da resposta já recebida
+    private boolean closed;
+
+    public ExchangeCommunicator(String name, Supplier<MultiplexedConnection> connections, long timeoutMillis) {
+        super(name);
+        this.connections = connections;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void sendTextMessage(String message) {
+        begin(null);
+        request.sendTextMessage(message);
+        sent();
+    }
+
+    @Override
+    public void sendJsonMessage(Object message) {
+        begin(message instanceof Command command ? command : null);
+        request.sendJsonMessage(message);
+        sent();
+    }
+
+    @Override
+    public void sendOrders(List<OrderService> orders) {
+        begin(null);
+        request.sendOrders(orders);
+        sent();
+    }
+
+    @Override
+    public String receiveTextMessage() {
+        Communicator from = response();
+        return from == null ? null : from.receiveTextMessage();
+    }
+
+    @Override
+    public <T> T receiveJsonMessage(Class<T> clas) {
+        Communicator from = response();
+        return from == null ? null : from.receiveJsonMessage(clas);
+    }
+
+    @Override
+    public List<OrderService> receiveOrders() {
+        Communicator from = response();
+        return from == null ? null : from.receiveOrders();
+    }
+
+    // Como um socket aberto do lado de cá: uma conexão do pool que caiu aparece como resposta nula
+    @Override
+    public boolean isConnected() {
+        return !closed;
+    }
+
+    @Override
+    public void disconnect() {
+        closed = true;
+        request = null;
+        response = null;
+        reader = null;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Primeira mensagem de uma requisição: escolhe a conexão e começa a acumular no protocolo dela
+    private void begin(Command command) {
+        if (remaining > 0) {
+            return;
+        }
+        MultiplexedConnection connection = connections.get();
+        requestProtocol = connection == null ? WireProtocol.preferred() : connection.getProtocol();
+        request = Communicator.inMemory(getName(), requestProtocol, new byte[0]);
+        remaining = command == null ? 1 : 1 + command.getPayloads();
+        response = connection == null
+                ? CompletableFuture.failedFuture(new IllegalStateException(getName() + ": Servidor indisponível"))
+                : null;
+        pendingConnection = connection;
+        reader = null;
+    }
+
+    private void sent() {
+        if (--remaining > 0) {
+            return;
+        }
+        if (response == null) {
+            response = pendingConnection.submit(request.getWritten());
+        }
+        responseProtocol = requestProtocol;
+        pendingConnection = null;
+        request = null;
+    }
+
+    // Espera a resposta da última requisição; null se ela falhou ou não veio a tempo
+    private Communicator response() {
+        if (reader != null) {
+            return reader;
+        }
+        if (response == null) {
+            erro(getName() + ": leitura sem requisição enviada");
+            return null;
+        }
+        try {
+            reader = Communicator.inMemory(getName(), responseProtocol, response.get(timeoutMillis, TimeUnit.MILLISECONDS));
+            return reader;
+        } catch (ExecutionException e) {
+            erro(getName() + ": " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            erro(getName() + ": sem resposta do Servidor em " + timeoutMillis + "ms");
+            response.cancel(false); // Libera o número na conexão; a resposta atrasada é descartada
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        response = null;
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.utils.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Arquivo com os códigos quentes da cache, na ordem em que a política os lista (o mais recente primeiro no LRU).
+ * Guarda só os códigos, não os dados: no restart o Proxy busca as OS atuais no servidor, então um snapshot
+ * antigo nunca devolve dados desatualizados, no máximo aquece códigos que esfriaram.
+ *
+ * Formato: int mágico | int versão | int quantidade | quantidade x int código | long CRC32 de tudo antes dele.
+ * A escrita vai para um arquivo temporário renomeado no final, então uma queda no meio não corrompe o anterior.
+ */
+public final class HotSetSnapshot {
+    private static final int MAGIC = 0x4F534853; // "OSHS"
+    private static final int VERSION = 1;
+
+    private HotSetSnapshot() {
+    }
+
+    public static void write(Path file, int[] codes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temp), crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(codes.length);
+            for (int code : codes) {
+                out.writeInt(code);
+            }
+            out.flush();
+            out.writeLong(crc.getValue()); // O CRC não entra no próprio cálculo, já foi lido antes
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING); // Sistema de arquivos sem move atômico
+        }
+    }
+
+    // Lê os códigos do snapshot; arquivo inexistente devolve vazio, arquivo corrompido lança IOException
+    public static int[] read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new int[0];
+        }
+
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Snapshot da cache com formato desconhecido: " + file);
+            }
+
+            int count = in.readInt();
+            if (count < 0 || count > (Files.size(file) - 20) / Integer.BYTES) {
+                throw new IOException("Snapshot da cache com quantidade inválida: " + count);
+            }
+
+            int[] codes = new int[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = in.readInt();
+            }
+
+            long expected = crc.getValue(); // Antes de ler o CRC gravado, que não entra no cálculo
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot da cache corrompido (CRC inválido): " + file);
+            }
+            return codes;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot da cache incompleto: " + file, e);
+        }
+    }
+}
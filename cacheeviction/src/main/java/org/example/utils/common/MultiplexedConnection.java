@@ -0,0 +1,132 @@
+package org.example.utils.common;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+
+import org.example.utils.Command;
+import org.example.utils.Loggable;
+
+/*
+ * Lado de quem pede numa conexão multiplexada (ver MultiplexedSession): manda MULTIPLEX e a partir daí várias
+ * requisições seguem pela mesma conexão sem esperar as respostas umas das outras. É o que está por baixo do pool
+ * do Proxy (open) e do Communicator.pipeline de um cliente.
+ *
+ * submit() numera a requisição, guarda um CompletableFuture com esse número e envia o Envelope; uma thread
+ * leitora ("<nome>-reader") recebe as respostas na ordem em que o Servidor as termina e completa o futuro de
+ * cada uma. Se a conexão cair, todos os futuros pendentes falham na hora. Um futuro cancelado (ex.: timeout de
+ * quem pediu) sai dos pendentes, e a resposta dele, se ainda vier, é descartada.
+ */
+
+public class MultiplexedConnection implements Loggable, AutoCloseable {
+    @Getter
+    private final String name;
+    @Getter
+    private final String menu;                                      // O que o Servidor mandou ao conectar (open)
+    private final Communicator communicator;
+    private final Map<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock stateLock = new ReentrantLock();    // open + pending, para nenhum futuro ficar sem resposta
+    private long nextId;                                            // Protegido por stateLock
+    private volatile boolean open;
+
+    // Passa para o modo multiplexado uma conexão já aberta, com o menu já lido; isOpen() é false se o outro lado
+    // não aceitou. Depois disso a conexão só fala por Envelopes: não use mais os send/receive dela diretamente
+    public MultiplexedConnection(String name, Communicator communicator, String menu) {
+        this.name = name;
+        this.communicator = communicator;
+        this.menu = menu;
+        if (!communicator.isConnected()) {
+            return;
+        }
+
+        communicator.sendJsonMessage(Command.MULTIPLEX);
+        if (communicator.receiveJsonMessage(Command.class) != Command.SUCCESS) {
+            erro(name + ": o outro lado não aceitou o MULTIPLEX");
+            communicator.disconnect();
+            return;
+        }
+        open = true;
+        Thread reader = new Thread(this::readLoop, name + "-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Conecta, lê o menu e passa a conexão para o modo multiplexado; isOpen() é false se o Servidor não respondeu
+    public static MultiplexedConnection open(String name, String host, int port) {
+        Communicator communicator = new Communicator(name);
+        communicator.connect(host, port);
+
+        String menu = communicator.isConnected() ? communicator.receiveTextMessage() : null;
+        if (menu == null && communicator.isConnected()) {
+            communicator.disconnect();
+        }
+        return new MultiplexedConnection(name, communicator, menu);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public WireProtocol getProtocol() {
+        return communicator.getProtocol();
+    }
+
+    // Requisições enviadas ainda sem resposta
+    public int getInFlight() {
+        return pending.size();
+    }
+
+    // Envia as mensagens de uma requisição (codificadas no protocolo da conexão) e devolve a resposta futura
+    public CompletableFuture<byte[]> submit(byte[] request) {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        long id;
+        stateLock.lock();
+        try {
+            if (!open) {
+                response.completeExceptionally(new IllegalStateException(name + ": conexão encerrada"));
+                return response;
+            }
+            id = ++nextId;
+            pending.put(id, response);
+        } finally {
+            stateLock.unlock();
+        }
+        response.whenComplete((payload, failure) -> pending.remove(id, response)); // Cancelada por quem desistiu de esperar
+        communicator.sendEnvelope(new Envelope(id, request)); // Uma falha aqui aparece para a thread leitora
+        return response;
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            communicator.disconnect(); // A thread leitora vê o fim da conexão e falha os pendentes
+        }
+    }
+
+    private void readLoop() {
+        Envelope response;
+        while ((response = communicator.receiveEnvelope()) != null) {
+            CompletableFuture<byte[]> waiting = pending.remove(response.id());
+            if (waiting != null) {
+                waiting.complete(response.payload());
+            }
+        }
+
+        stateLock.lock();
+        try {
+            open = false;
+            IllegalStateException closed = new IllegalStateException(name + ": conexão com o Servidor encerrada");
+            pending.values().forEach(waiting -> waiting.completeExceptionally(closed));
+            pending.clear();
+        } finally {
+            stateLock.unlock();
+        }
+        if (communicator.isConnected()) {
+            communicator.disconnect();
+        }
+        warn(name + ": conexão multiplexada encerrada");
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.utils.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.example.utils.Loggable;
+
+/*
+ * Lado de quem atende uma conexão multiplexada (depois do Command.MULTIPLEX): cada Envelope recebido é uma
+ * requisição inteira (o comando e os dados dele) e roda numa thread virtual própria, com um Communicator em
+ * memória que lê as mensagens do envelope e guarda o que a ação responder. A resposta volta num Envelope com o
+ * mesmo número assim que a ação termina, então uma requisição lenta (ex.: esperando o fsync) não atrasa as
+ * outras da mesma conexão.
+ *
+ * As ações continuam escritas no estilo bloqueante de sempre: recebem o Communicator em memória no lugar do
+ * Communicator da conexão. No máximo maxInFlight requisições de uma conexão rodam ao mesmo tempo; passando
+ * disso a sessão para de ler a conexão até uma terminar, e o TCP segura quem está enviando.
+ */
+
+public class MultiplexedSession implements Loggable {
+    private final Communicator connection;
+    private final Semaphore inFlight;
+    private final Consumer<Communicator> handler;
+
+    public MultiplexedSession(Communicator connection, int maxInFlight, Consumer<Communicator> handler) {
+        this.connection = connection;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.handler = handler;
+    }
+
+    // Atende até a conexão acabar e devolve quantas requisições chegaram. As que ainda estão em andamento
+    // terminam e respondem antes de voltar
+    public long serve() {
+        long requests = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Envelope request;
+            while ((request = connection.receiveEnvelope()) != null) {
+                inFlight.acquireUninterruptibly();
+                Envelope current = request;
+                executor.execute(() -> respond(current));
+                requests++;
+            }
+        }
+        return requests;
+    }
+
+    private void respond(Envelope request) {
+        try {
+            Communicator exchange = Communicator.inMemory(connection.getName(), connection.getProtocol(), request.payload());
+            try {
+                handler.accept(exchange);
+            } catch (RuntimeException e) {
+                erro(connection.getName() + ": erro na requisição " + request.id() + ": " + e.getMessage());
+            }
+            // Sempre responde, mesmo vazio: quem pediu está esperando este número
+            connection.sendEnvelope(new Envelope(request.id(), exchange.getWritten()));
+        } finally {
+            inFlight.release();
+        }
+    }
+}
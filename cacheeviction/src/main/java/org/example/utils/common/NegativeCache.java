@@ -0,0 +1,77 @@
+package org.example.utils.common;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A NegativeCache guarda os códigos que o Servidor Principal respondeu como inexistentes,
+ * para que clientes que ficam consultando uma OS que ainda não existe não vão ao servidor a cada tentativa.
+ *
+ * É limitada em quantidade (os mais antigos saem primeiro) e cada entrada vive pouco tempo (TTL curto),
+ * já que uma OS pode ser cadastrada por outro proxy. O cadastro pelo próprio proxy invalida a entrada na hora.
+ * Como o TTL é o mesmo para todas, a ordem de inserção também é a ordem de expiração:
+ * os vencidos estão sempre no início do mapa e a limpeza não precisa percorrer o resto.
+ */
+
+public class NegativeCache {
+    private final int capacity;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, Long> deadlines;   // código -> prazo (System.nanoTime)
+
+    public NegativeCache(int capacity, Duration ttl) {
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+        this.deadlines = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > NegativeCache.this.capacity;
+            }
+        };
+    }
+
+    // true se o código foi respondido como inexistente há menos de um TTL
+    public synchronized boolean isKnownMissing(int code) {
+        Long deadline = deadlines.get(code);
+
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() <= 0) {
+            deadlines.remove(code);
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void put(int code) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        purgeExpired(now);
+        deadlines.remove(code); // Reinsere no final para manter a ordem de expiração
+        deadlines.put(code, now + ttlNanos);
+    }
+
+    public synchronized void invalidate(int code) {
+        deadlines.remove(code);
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0 && ttlNanos > 0;
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Long> iterator = deadlines.values().iterator();
+        while (iterator.hasNext() && iterator.next() - now <= 0) {
+            iterator.remove();
+        }
+    }
+}
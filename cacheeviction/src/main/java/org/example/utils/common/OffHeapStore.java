@@ -0,0 +1,306 @@
+package org.example.utils.common;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.example.utils.hash.IntLongHashMap;
+
+/*
+ * O OffHeapStore é o segundo nível da cache: guarda as ordens de serviço despejadas da cache em memória
+ * nativa (Foreign Memory API), fora do heap, então milhões de registros não aumentam o heap nem as pausas do GC.
+ *
+ * Alocador por slabs: a memória é reservada em slabs de 1 MiB de um Arena compartilhado, e cada slab é dividido
+ * em pedaços de um único tamanho (classes de 64 B a 4 KiB). Um registro usa o menor pedaço em que cabe,
+ * e pedaços liberados voltam para a pilha livre da sua classe.
+ * Quando o limite de memória é atingido, o registro mais antigo da mesma classe é despejado (FIFO).
+ *
+ * O índice (código -> endereço) é uma IntLongHashMap: o endereço é (número do slab << 32 | deslocamento).
+ * Formato do registro: int tamanho | byte tem prazo | long prazo (System.nanoTime) | OrderServiceCodec.
+ *
+ * Não é thread-safe: a Cache tem um por segmento e só o usa com o lock do segmento, então segmentos diferentes
+ * não disputam o nível fora do heap.
+ */
+
+public class OffHeapStore {
+    private static final int SLAB_SIZE = 1 << 20;
+    private static final int[] CHUNK_SIZES = {64, 128, 256, 512, 1024, 2048, 4096};
+    private static final int HEADER = Integer.BYTES + Byte.BYTES + Long.BYTES;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+
+    // Registro lido do nível fora do heap, com o prazo de expiração que tinha na cache
+    public record Entry(OrderService order, boolean expires, long deadline) {
+    }
+
+    private static class SizeClass {
+        final int chunkSize;
+        long[] free = new long[64];     // Pilha de pedaços livres
+        int freeCount;
+        int[] fifoCodes = new int[64];  // Fila de despejo (código, endereço), do mais antigo ao mais novo
+        long[] fifoHandles = new long[64];
+        int fifoHead, fifoSize;
+        int live;                       // Pedaços em uso
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    private final Arena arena = Arena.ofShared();
+    private final List<MemorySegment> slabs = new ArrayList<>();
+    private final List<SizeClass> slabClasses = new ArrayList<>();  // Classe de cada slab
+    private final int maxSlabs;
+    private final SizeClass[] classes = new SizeClass[CHUNK_SIZES.length];
+    private final IntLongHashMap index = new IntLongHashMap();
+    private long evictions;
+    private boolean closed;
+
+    public OffHeapStore(long maxBytes) {
+        this.maxSlabs = (int) Math.max(1, maxBytes / SLAB_SIZE);
+        for (int i = 0; i < CHUNK_SIZES.length; i++) {
+            classes[i] = new SizeClass(CHUNK_SIZES[i]);
+        }
+    }
+
+    // Guarda (ou substitui) a OS. Retorna false se ela não couber em nenhuma classe ou não houver memória
+    public boolean put(OrderService order, boolean expires, long deadline) {
+        if (closed) {
+            return false;
+        }
+
+        free(index.remove(order.getCode()));
+
+        byte[] payload = OrderServiceCodec.encode(order);
+        SizeClass sizeClass = classFor(HEADER + payload.length);
+        if (sizeClass == null) {
+            return false;
+        }
+
+        long handle = allocate(sizeClass);
+        if (handle == IntLongHashMap.MISSING) {
+            return false;
+        }
+
+        MemorySegment slab = slabs.get(slabOf(handle));
+        long offset = offsetOf(handle);
+        slab.set(INT, offset, payload.length);
+        slab.set(ValueLayout.JAVA_BYTE, offset + Integer.BYTES, (byte) (expires ? 1 : 0));
+        slab.set(LONG, offset + Integer.BYTES + Byte.BYTES, deadline);
+        MemorySegment.copy(payload, 0, slab, ValueLayout.JAVA_BYTE, offset + HEADER, payload.length);
+
+        index.put(order.getCode(), handle);
+        enqueue(sizeClass, order.getCode(), handle);
+        return true;
+    }
+
+    // Remove e devolve o registro (promoção para a cache em memória), ou null se não existe ou já venceu
+    public Entry take(int code) {
+        long handle = index.remove(code);
+        if (handle == IntLongHashMap.MISSING || closed) {
+            return null;
+        }
+
+        Entry entry = read(handle);
+        free(handle);
+
+        return entry.expires() && entry.deadline() - System.nanoTime() <= 0 ? null : entry;
+    }
+
+    // Substitui os dados mantendo o prazo. Retorna false se o código não estiver aqui
+    public boolean replace(OrderService order) {
+        long handle = index.get(order.getCode());
+        if (handle == IntLongHashMap.MISSING || closed) {
+            return false;
+        }
+
+        Entry old = read(handle);
+        return put(order, old.expires(), old.deadline());
+    }
+
+    public boolean remove(int code) {
+        long handle = index.remove(code);
+        free(handle);
+        return handle != IntLongHashMap.MISSING;
+    }
+
+    public boolean contains(int code) {
+        return index.containsKey(code);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long reservedBytes() {
+        return (long) slabs.size() * SLAB_SIZE;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Libera toda a memória nativa de uma vez
+    public void close() {
+        if (!closed) {
+            closed = true;
+            index.clear();
+            slabs.clear();
+            arena.close();
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Alocador
+
+    private SizeClass classFor(int size) {
+        for (SizeClass sizeClass : classes) {
+            if (size <= sizeClass.chunkSize) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    private long allocate(SizeClass sizeClass) {
+        if (sizeClass.freeCount == 0 && slabs.size() < maxSlabs) {
+            carveSlab(sizeClass);
+        }
+
+        // Sem memória livre: despeja o registro mais antigo da mesma classe
+        while (sizeClass.freeCount == 0 && sizeClass.fifoSize > 0) {
+            int code = sizeClass.fifoCodes[sizeClass.fifoHead];
+            long handle = sizeClass.fifoHandles[sizeClass.fifoHead];
+            sizeClass.fifoHead = (sizeClass.fifoHead + 1) % sizeClass.fifoCodes.length;
+            sizeClass.fifoSize--;
+
+            if (index.get(code) == handle) { // Entradas antigas da fila (já removidas ou promovidas) são ignoradas
+                index.remove(code);
+                free(handle);
+                evictions++;
+            }
+        }
+
+        if (sizeClass.freeCount == 0) {
+            return IntLongHashMap.MISSING;
+        }
+        sizeClass.live++;
+        return sizeClass.free[--sizeClass.freeCount];
+    }
+
+    private void carveSlab(SizeClass sizeClass) {
+        int slabId = slabs.size();
+        slabs.add(arena.allocate(SLAB_SIZE, 8));
+        slabClasses.add(sizeClass);
+
+        int chunks = SLAB_SIZE / sizeClass.chunkSize;
+        if (sizeClass.free.length < sizeClass.freeCount + chunks) {
+            sizeClass.free = Arrays.copyOf(sizeClass.free, sizeClass.freeCount + chunks);
+        }
+        // Empilha do fim para o início, para os primeiros pedaços serem usados primeiro
+        for (int i = chunks - 1; i >= 0; i--) {
+            sizeClass.free[sizeClass.freeCount++] = handle(slabId, (long) i * sizeClass.chunkSize);
+        }
+    }
+
+    private void free(long handle) {
+        if (handle == IntLongHashMap.MISSING) {
+            return;
+        }
+
+        SizeClass sizeClass = classOf(handle);
+        sizeClass.live--;
+        if (sizeClass.free.length == sizeClass.freeCount) {
+            sizeClass.free = Arrays.copyOf(sizeClass.free, sizeClass.free.length * 2);
+        }
+        sizeClass.free[sizeClass.freeCount++] = handle;
+    }
+
+    private void enqueue(SizeClass sizeClass, int code, long handle) {
+        if (sizeClass.fifoSize == sizeClass.fifoCodes.length) {
+            // Se a maior parte da fila são entradas antigas, limpa em vez de crescer
+            if (sizeClass.fifoSize > 2 * sizeClass.live) {
+                compactFifo(sizeClass);
+            } else {
+                growFifo(sizeClass);
+            }
+        }
+
+        int tail = (sizeClass.fifoHead + sizeClass.fifoSize) % sizeClass.fifoCodes.length;
+        sizeClass.fifoCodes[tail] = code;
+        sizeClass.fifoHandles[tail] = handle;
+        sizeClass.fifoSize++;
+    }
+
+    private void growFifo(SizeClass sizeClass) {
+        int length = sizeClass.fifoCodes.length;
+        int[] codes = new int[length * 2];
+        long[] handles = new long[length * 2];
+
+        for (int i = 0; i < sizeClass.fifoSize; i++) {
+            codes[i] = sizeClass.fifoCodes[(sizeClass.fifoHead + i) % length];
+            handles[i] = sizeClass.fifoHandles[(sizeClass.fifoHead + i) % length];
+        }
+
+        sizeClass.fifoCodes = codes;
+        sizeClass.fifoHandles = handles;
+        sizeClass.fifoHead = 0;
+    }
+
+    private void compactFifo(SizeClass sizeClass) {
+        int length = sizeClass.fifoCodes.length;
+        int[] codes = new int[length];
+        long[] handles = new long[length];
+        int kept = 0;
+
+        for (int i = 0; i < sizeClass.fifoSize; i++) {
+            int code = sizeClass.fifoCodes[(sizeClass.fifoHead + i) % length];
+            long handle = sizeClass.fifoHandles[(sizeClass.fifoHead + i) % length];
+            if (index.get(code) == handle) {
+                codes[kept] = code;
+                handles[kept] = handle;
+                kept++;
+            }
+        }
+
+        sizeClass.fifoCodes = codes;
+        sizeClass.fifoHandles = handles;
+        sizeClass.fifoHead = 0;
+        sizeClass.fifoSize = kept;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Endereços e leitura
+
+    private Entry read(long handle) {
+        MemorySegment slab = slabs.get(slabOf(handle));
+        long offset = offsetOf(handle);
+
+        int length = slab.get(INT, offset);
+        boolean expires = slab.get(ValueLayout.JAVA_BYTE, offset + Integer.BYTES) == 1;
+        long deadline = slab.get(LONG, offset + Integer.BYTES + Byte.BYTES);
+        byte[] payload = new byte[length];
+        MemorySegment.copy(slab, ValueLayout.JAVA_BYTE, offset + HEADER, payload, 0, length);
+
+        return new Entry(OrderServiceCodec.decode(payload), expires, deadline);
+    }
+
+    private SizeClass classOf(long handle) {
+        return slabClasses.get(slabOf(handle));
+    }
+
+    private static long handle(int slabId, long offset) {
+        return ((long) slabId << 32) | offset;
+    }
+
+    private static int slabOf(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static long offsetOf(long handle) {
+        return handle & 0xFFFFFFFFL;
+    }
+}
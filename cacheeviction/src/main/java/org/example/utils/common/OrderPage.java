@@ -0,0 +1,23 @@
+package org.example.utils.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.utils.JsonSerializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Uma página do LIST_RANGE; nextCursor é null quando a faixa acabou
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPage implements JsonSerializable {
+    private List<OrderService> orders = new ArrayList<>();
+    private String nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
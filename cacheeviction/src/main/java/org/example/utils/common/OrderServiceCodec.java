@@ -0,0 +1,72 @@
+package org.example.utils.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+
+/*
+ * Codificação binária compacta de uma OrderService, sem nomes de campos nem texto de JSON:
+ *
+ *   int código | int hora (segundo do dia, -1 = sem hora) | int tamanho + UTF-8 do nome | int tamanho + UTF-8 da descrição
+ *
+ * Os tamanhos -1 representam null. Usada onde o JSON seria caro demais (ex.: registros fora do heap).
+ */
+
+public final class OrderServiceCodec {
+    private OrderServiceCodec() {
+    }
+
+    public static byte[] encode(OrderService os) {
+        byte[] name = os.getName() == null ? null : os.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = os.getDescription() == null ? null : os.getDescription().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(16 + length(name) + length(description));
+        buffer.putInt(os.getCode());
+        buffer.putInt(os.getRequestTime() == null ? -1 : os.getRequestTime().toSecondOfDay());
+        putBytes(buffer, name);
+        putBytes(buffer, description);
+
+        return buffer.array();
+    }
+
+    public static OrderService decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    // Lê uma OrderService a partir da posição atual do buffer, avançando a posição
+    public static OrderService decode(ByteBuffer buffer) {
+        OrderService os = new OrderService();
+        os.setCode(buffer.getInt());
+
+        int seconds = buffer.getInt();
+        os.setRequestTime(seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds));
+        os.setName(getString(buffer));
+        os.setDescription(getString(buffer));
+
+        return os;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.utils.common;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/*
+ * Cursor opaco da paginação do LIST_RANGE.
+ * Guarda só o último código entregue e a faixa pedida: a próxima página começa no primeiro código maior que ele.
+ * Como não há estado no servidor, o cursor continua válido entre conexões e versões da árvore (uma OS
+ * inserida ou removida atrás do cursor não desloca as páginas seguintes).
+ *
+ * O cliente não deve interpretar o conteúdo; o servidor recusa cursores alterados ou de outra faixa.
+ */
+public final class PageCursor {
+    private static final byte VERSION = 1;
+    private static final int BYTES = 1 + 3 * Integer.BYTES + Integer.BYTES;
+
+    private PageCursor() {
+    }
+
+    public static String encode(int lastCode, int from, int to) {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        buffer.put(VERSION).putInt(lastCode).putInt(from).putInt(to).putInt(checksum(lastCode, from, to));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    // Último código entregue pelo cursor, validado contra a faixa do pedido
+    public static int decode(String cursor, int from, int to) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        int lastCode = buffer.getInt();
+        int cursorFrom = buffer.getInt();
+        int cursorTo = buffer.getInt();
+
+        if (version != VERSION || buffer.getInt() != checksum(lastCode, cursorFrom, cursorTo)) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        if (cursorFrom != from || cursorTo != to) {
+            throw new IllegalArgumentException("Cursor de outra faixa: [" + cursorFrom + ", " + cursorTo + "]");
+        }
+        return lastCode;
+    }
+
+    private static int checksum(int lastCode, int from, int to) {
+        int h = lastCode * 0x9E3779B9;
+        h = (h ^ from) * 0x85EBCA6B;
+        h = (h ^ to) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
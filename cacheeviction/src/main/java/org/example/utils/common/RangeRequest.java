@@ -0,0 +1,18 @@
+package org.example.utils.common;
+
+import org.example.utils.JsonSerializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pedido de uma página do LIST_RANGE: faixa de códigos [from, to], tamanho da página e cursor da página anterior
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RangeRequest implements JsonSerializable {
+    private int from;
+    private int to;
+    private int pageSize;
+    private String cursor;      // null na primeira página
+}
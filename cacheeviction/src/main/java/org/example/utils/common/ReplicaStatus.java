@@ -0,0 +1,18 @@
+package org.example.utils.common;
+
+import org.example.utils.JsonSerializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resposta do REPLICA_STATUS: papel do Servidor, último LSN aplicado e há quanto tempo um backup não está em dia
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaStatus implements JsonSerializable {
+    private boolean primary;
+    private long appliedLsn;
+    private long lagMillis;     // 0 no primário; num backup cresce enquanto ele não alcança o primário
+    private int backups;        // Backups conectados (só no primário)
+}
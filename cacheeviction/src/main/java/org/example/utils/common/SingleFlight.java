@@ -0,0 +1,51 @@
+package org.example.utils.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * SingleFlight deduplica cargas concorrentes da mesma chave: a primeira thread que pede um código
+ * executa a carga (ex.: a busca no Servidor Principal) e as que chegarem enquanto ela está em andamento
+ * esperam o mesmo CompletableFuture e recebem o mesmo resultado.
+ * Assim N clientes com MISS no mesmo código custam uma única ida ao servidor.
+ *
+ * Se a carga da primeira thread falhar (ex.: a conexão dela caiu), cada thread em espera faz a sua própria carga.
+ */
+
+public class SingleFlight<V> {
+    private final ConcurrentHashMap<Integer, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(int key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                return loader.get();
+            }
+        }
+
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public boolean isLoading(int key) {
+        return inFlight.containsKey(key);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
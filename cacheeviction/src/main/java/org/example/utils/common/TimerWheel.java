@@ -0,0 +1,139 @@
+package org.example.utils.common;
+
+import java.util.function.IntConsumer;
+
+import org.example.utils.hash.IntHashMap;
+
+/*
+ * A TimerWheel é uma roda de temporização (hashed timing wheel) com os prazos de expiração da cache.
+ * O tempo é dividido em "ticks" e cada tick cai num balde da roda (tick % quantidade de baldes).
+ * Cada balde é uma lista duplamente encadeada de timers, então agendar e cancelar custam O(1)
+ * e avançar a roda só visita os baldes dos ticks que passaram.
+ * Timers com prazo além de uma volta completa ficam no balde e são ignorados até a volta certa.
+ *
+ * Não é thread-safe: cada segmento da Cache tem a sua roda, protegida pelo lock do segmento.
+ */
+
+public class TimerWheel {
+    private static class Timer {
+        final int code;
+        long deadline;      // Em nanos (System.nanoTime)
+        int bucket;
+        Timer prev, next;
+
+        Timer(int code) {
+            this.code = code;
+        }
+    }
+
+    private final Timer[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final IntHashMap<Timer> timers = new IntHashMap<>();
+    private long currentTick;   // Último tick já processado
+
+    public TimerWheel(int buckets, long tickNanos, long nowNanos) {
+        int size = Integer.highestOneBit(Math.max(buckets, 2) - 1) << 1;
+        this.buckets = new Timer[size];
+        this.mask = size - 1;
+        this.tickNanos = tickNanos;
+        this.currentTick = Math.floorDiv(nowNanos, tickNanos);
+    }
+
+    // Agenda (ou reagenda) a expiração do código
+    public void schedule(int code, long deadlineNanos) {
+        Timer timer = timers.get(code);
+
+        if (timer == null) {
+            timer = new Timer(code);
+            timers.put(code, timer);
+        } else {
+            unlink(timer);
+        }
+
+        timer.deadline = deadlineNanos;
+        // Arredonda para cima: quando o tick for processado o prazo já terá passado.
+        // Prazos no passado vão para o próximo tick, que ainda será processado
+        long tick = Math.max(Math.ceilDiv(deadlineNanos, tickNanos), currentTick + 1);
+        link(timer, (int) (tick & mask));
+    }
+
+    public void cancel(int code) {
+        Timer timer = timers.remove(code);
+        if (timer != null) {
+            unlink(timer);
+        }
+    }
+
+    public boolean isScheduled(int code) {
+        return timers.containsKey(code);
+    }
+
+    // Prazo agendado do código (só faz sentido se isScheduled)
+    public long deadline(int code) {
+        Timer timer = timers.get(code);
+        return timer == null ? 0 : timer.deadline;
+    }
+
+    public boolean isExpired(int code, long nowNanos) {
+        Timer timer = timers.get(code);
+        return timer != null && timer.deadline - nowNanos <= 0;
+    }
+
+    // Avança a roda até 'nowNanos', removendo e entregando ao 'onExpire' cada código expirado
+    public int advance(long nowNanos, IntConsumer onExpire) {
+        long targetTick = Math.floorDiv(nowNanos, tickNanos);
+        if (targetTick <= currentTick) {
+            return 0;
+        }
+
+        int expired = 0;
+        // Se passou mais de uma volta, basta percorrer cada balde uma vez
+        long ticks = Math.min(targetTick - currentTick, buckets.length);
+        for (long t = targetTick - ticks + 1; t <= targetTick; t++) {
+            int bucket = (int) (t & mask);
+            Timer timer = buckets[bucket];
+
+            while (timer != null) {
+                Timer next = timer.next;
+                if (timer.deadline - nowNanos <= 0) {
+                    unlink(timer);
+                    timers.remove(timer.code);
+                    onExpire.accept(timer.code);
+                    expired++;
+                }
+                timer = next;
+            }
+        }
+
+        currentTick = targetTick;
+        return expired;
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    private void link(Timer timer, int bucket) {
+        timer.bucket = bucket;
+        timer.prev = null;
+        timer.next = buckets[bucket];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        buckets[bucket] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[timer.bucket] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+    }
+}
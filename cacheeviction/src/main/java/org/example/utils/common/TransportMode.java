@@ -0,0 +1,33 @@
+package org.example.utils.common;
+
+/*
+ * Como o Servidor, o Proxy e o Localizador atendem as conexões:
+ *  - THREADS: uma thread por conexão, bloqueada no socket (padrão, o modelo original);
+ *  - NIO: poucos laços de eventos com Selector (NioTransport) e as requisições num pool de trabalho. Conexões
+ *    ociosas não ocupam thread nenhuma;
+ *  - VIRTUAL: o mesmo código bloqueante do THREADS, mas cada conexão numa thread virtual, com limite de conexões
+ *    e de requisições em andamento (ConnectionDispatcher). Uma thread virtual parada no socket não ocupa thread
+ *    do sistema, então o modelo original passa a aguentar muitas conexões sem reescrever as ações.
+ *
+ * Por causa do VIRTUAL, os locks que uma requisição pode esperar (WAL, replicação, segmentos da cache, envio de
+ * quadros, connect) são ReentrantLock e não synchronized: uma thread virtual que espera num monitor (ou num
+ * wait()) prende a thread portadora, e poucas esperas longas bastariam para parar todas as outras.
+ */
+
+public enum TransportMode {
+    THREADS, NIO, VIRTUAL;
+
+    public static TransportMode fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "threads", "thread" -> THREADS;
+            case "nio" -> NIO;
+            case "virtual" -> VIRTUAL;
+            default -> throw new IllegalArgumentException("Transporte desconhecido: " + name);
+        };
+    }
+
+    // Transporte deste processo (-Dtransport=threads|nio|virtual)
+    public static TransportMode preferred() {
+        return fromName(System.getProperty("transport", "threads"));
+    }
+}
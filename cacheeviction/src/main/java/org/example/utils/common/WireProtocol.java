@@ -0,0 +1,43 @@
+package org.example.utils.common;
+
+/*
+ * Formato das mensagens de uma conexão, combinado no HELLO logo depois de conectar (ver Communicator):
+ *  - BINARY: quadros com tamanho prefixado, comando em um byte e OS em OrderServiceCodec (BinaryMessageHandler; padrão);
+ *  - JSON: uma mensagem JSON por linha (AbstractMessageHandler), o formato original. Usado quando um dos lados
+ *    pede só JSON (-Dprotocol=json) ou não faz o HELLO.
+ */
+
+public enum WireProtocol {
+    BINARY, JSON;
+
+    public static final String HELLO = "HELLO";
+    public static final int MAX_HELLO_BYTES = 256;
+
+    public static WireProtocol fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "binary", "binario", "binário" -> BINARY;
+            case "json" -> JSON;
+            default -> throw new IllegalArgumentException("Protocolo desconhecido: " + name);
+        };
+    }
+
+    // Protocolo preferido deste processo (-Dprotocol=binary|json)
+    public static WireProtocol preferred() {
+        return fromName(System.getProperty("protocol", "binary"));
+    }
+
+    // Escolha de quem aceitou a conexão para a linha "HELLO binary json" recebida; null se não for um HELLO
+    public static WireProtocol answer(String hello) {
+        if (hello == null || !hello.startsWith(HELLO + " ")) {
+            return null;
+        }
+        if (preferred() == BINARY) {
+            for (String offered : hello.substring(HELLO.length() + 1).split(" ")) {
+                if (offered.equalsIgnoreCase("binary")) {
+                    return BINARY;
+                }
+            }
+        }
+        return JSON;
+    }
+}
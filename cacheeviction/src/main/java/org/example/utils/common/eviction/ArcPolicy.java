@@ -0,0 +1,165 @@
+package org.example.utils.common.eviction;
+
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.listsAA.LinkedListHashAA;
+
+/*
+ * ARC (Adaptive Replacement Cache, Megiddo & Modha):
+ * T1 guarda elementos vistos uma vez recentemente e T2 os vistos pelo menos duas vezes.
+ * B1 e B2 são listas "fantasma" com apenas os códigos despejados de T1 e T2.
+ * Um MISS que cai em B1 indica que T1 deveria ser maior, um que cai em B2 indica o contrário,
+ * e o alvo 'p' do tamanho de T1 se ajusta sozinho. Varreduras passam por T1 sem tocar em T2.
+ */
+
+public class ArcPolicy implements EvictionPolicy {
+    private final int capacity;
+    private final LinkedListHashAA t1, t2, b1, b2;
+    private int p = 0;      // Tamanho alvo de T1
+
+    public ArcPolicy(int capacity) {
+        this.capacity = capacity;
+        this.t1 = new LinkedListHashAA(capacity);
+        this.t2 = new LinkedListHashAA(capacity);
+        this.b1 = new LinkedListHashAA(capacity);
+        this.b2 = new LinkedListHashAA(capacity);
+    }
+
+    @Override
+    public OrderService get(int code) {
+        if (t1.contains(code)) { // Segundo acesso: promove para T2
+            OrderService data = t1.remove(code);
+            t2.insertFirst(data);
+            return data;
+        }
+        if (t2.contains(code)) {
+            return t2.search(code);
+        }
+        return null;
+    }
+
+    @Override
+    public OrderService put(OrderService orderService) {
+        int code = orderService.getCode();
+
+        if (t1.contains(code)) {
+            t1.remove(code);
+            t2.insertFirst(orderService);
+            return null;
+        }
+        if (t2.contains(code)) {
+            t2.insertFirst(orderService);
+            return null;
+        }
+
+        OrderService evicted = null;
+
+        if (b1.contains(code)) { // Fantasma em B1: aumenta o espaço de recência
+            p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+            b1.remove(code);
+            if (isFull()) evicted = replace(false);
+            t2.insertFirst(orderService);
+            return evicted;
+        }
+        if (b2.contains(code)) { // Fantasma em B2: aumenta o espaço de frequência
+            p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+            b2.remove(code);
+            if (isFull()) evicted = replace(true);
+            t2.insertFirst(orderService);
+            return evicted;
+        }
+
+        // MISS completo
+        if (t1.size() + b1.size() >= capacity) {
+            if (t1.size() < capacity) {
+                b1.removeLast();
+                if (isFull()) evicted = replace(false);
+            } else {
+                evicted = t1.removeLast();
+            }
+        } else if (t1.size() + t2.size() + b1.size() + b2.size() >= capacity) {
+            if (t1.size() + t2.size() + b1.size() + b2.size() >= 2 * capacity) {
+                b2.removeLast();
+            }
+            if (isFull()) evicted = replace(false);
+        }
+
+        t1.insertFirst(orderService);
+        return evicted;
+    }
+
+    @Override
+    public boolean replace(OrderService orderService) {
+        int code = orderService.getCode();
+        if (t1.contains(code)) {
+            t1.alter(orderService);
+            return true;
+        }
+        if (t2.contains(code)) {
+            t2.alter(orderService);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public OrderService remove(int code) {
+        if (b1.contains(code)) b1.remove(code);
+        if (b2.contains(code)) b2.remove(code);
+        if (t1.contains(code)) return t1.remove(code);
+        if (t2.contains(code)) return t2.remove(code);
+        return null;
+    }
+
+    // T2 (frequentes) primeiro, depois T1
+    @Override
+    public List<OrderService> values(int limit) {
+        List<OrderService> list = t2.listFirst(limit);
+        list.addAll(t1.listFirst(limit - list.size()));
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return t1.size() + t2.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getName() {
+        return "ARC";
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private boolean isFull() {
+        return t1.size() + t2.size() >= capacity;
+    }
+
+    // Despeja o LRU de T1 ou de T2 conforme o alvo 'p', deixando o código na lista fantasma correspondente
+    private OrderService replace(boolean hitInB2) {
+        if (!t1.isEmpty() && ((hitInB2 && t1.size() == p) || t1.size() > p || t2.isEmpty())) {
+            OrderService evicted = t1.removeLast();
+            b1.insertFirst(ghost(evicted));
+            return evicted;
+        }
+
+        OrderService evicted = t2.removeLast();
+        b2.insertFirst(ghost(evicted));
+        return evicted;
+    }
+
+    // O fantasma guarda só o código, para não manter os dados despejados vivos na memória
+    private static OrderService ghost(OrderService evicted) {
+        OrderService ghost = new OrderService();
+        ghost.setCode(evicted.getCode());
+        return ghost;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.utils.common.eviction;
+
+import org.example.utils.common.interfaces.EvictionPolicy;
+
+public enum EvictionPolicyType {
+    LRU, LFU, ARC, SIEVE, W_TINY_LFU;
+
+    public EvictionPolicy create(int capacity) {
+        return switch (this) {
+            case LRU -> new LruPolicy(capacity);
+            case LFU -> new LfuPolicy(capacity);
+            case ARC -> new ArcPolicy(capacity);
+            case SIEVE -> new SievePolicy(capacity);
+            case W_TINY_LFU -> new WTinyLfuPolicy(capacity);
+        };
+    }
+
+    // Aceita o nome com ou sem separadores, ex.: "lru", "w-tinylfu", "W_TINY_LFU"
+    public static EvictionPolicyType fromName(String name) {
+        String normalized = name.replaceAll("[-_\\s]", "").toUpperCase();
+        for (EvictionPolicyType type : values()) {
+            if (type.name().replace("_", "").equals(normalized)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Política de cache eviction desconhecida: " + name);
+    }
+}
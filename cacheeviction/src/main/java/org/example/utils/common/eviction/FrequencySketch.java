@@ -0,0 +1,67 @@
+package org.example.utils.common.eviction;
+
+/*
+ * Count-Min Sketch com contadores de 4 bits, usado pela W-TinyLFU para estimar a frequência de acesso
+ * de um código (inclusive de códigos que não estão na cache) usando memória fixa.
+ * Cada long guarda 16 contadores; cada código é contado em 4 posições e a estimativa é o menor contador.
+ * Depois de um certo número de incrementos todos os contadores são divididos por 2 ("envelhecimento"),
+ * para que a frequência reflita o passado recente e não o histórico inteiro.
+ */
+
+public class FrequencySketch {
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int[] SEEDS = {0x97CB3127, 0xB0EB6D45, 0x8F1BBCDC, 0xCA62C1D6};
+
+    private final long[] table;
+    private final int counterMask;  // Quantidade de contadores - 1 (potência de 2)
+    private final int sampleSize;   // Incrementos até o próximo envelhecimento
+    private int additions;
+
+    public FrequencySketch(int capacity) {
+        // Um long (16 contadores) por elemento da cache, para manter as colisões baixas
+        this.table = new long[Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1];
+        this.counterMask = table.length * 16 - 1;
+        this.sampleSize = 10 * Math.max(capacity, 16);
+    }
+
+    public int frequency(int code) {
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int counter = counterIndex(code, i);
+            frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    public void increment(int code) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int counter = counterIndex(code, i);
+            int slot = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            if (((table[slot] >>> shift) & 0xF) < 15) {
+                table[slot] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counterIndex(int code, int row) {
+        int h = (code + row) * SEEDS[row];
+        h ^= h >>> 17;
+        h *= 0xED5AD4BB;
+        h ^= h >>> 11;
+        return h & counterMask;
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.utils.common.eviction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.hash.IntHashMap;
+
+/*
+ * LFU (Least Frequently Used) em O(1): os elementos ficam em "baldes" por frequência de acesso,
+ * e os baldes formam uma lista duplamente encadeada em ordem crescente de frequência.
+ * Um acesso move o elemento para o balde seguinte (frequência + 1), criando-o se preciso.
+ * O despejo tira o elemento menos recente do balde de menor frequência (desempate por LRU).
+ */
+
+public class LfuPolicy implements EvictionPolicy {
+    private static class Node {
+        OrderService data;
+        Bucket bucket;
+        Node prev, next;
+
+        Node(OrderService data) {
+            this.data = data;
+        }
+    }
+
+    private static class Bucket {
+        final int frequency;
+        Node head, tail;        // head = acessado mais recentemente dentro do balde
+        Bucket prev, next;
+
+        Bucket(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+
+    private final int capacity;
+    private final IntHashMap<Node> index;
+    private Bucket lowest;      // Balde de menor frequência (candidatos ao despejo)
+    private Bucket highest;     // Balde de maior frequência
+
+    public LfuPolicy(int capacity) {
+        this.capacity = capacity;
+        this.index = new IntHashMap<>(capacity);
+    }
+
+    @Override
+    public OrderService get(int code) {
+        Node node = index.get(code);
+        if (node == null) {
+            return null;
+        }
+
+        touch(node);
+        return node.data;
+    }
+
+    @Override
+    public OrderService put(OrderService orderService) {
+        Node node = index.get(orderService.getCode());
+        if (node != null) {
+            node.data = orderService;
+            touch(node);
+            return null;
+        }
+
+        OrderService evicted = null;
+        if (index.size() == capacity) {
+            Node victim = lowest.tail;
+            removeNode(victim);
+            evicted = victim.data;
+        }
+
+        node = new Node(orderService);
+        Bucket first = lowest;
+        if (first == null || first.frequency != 1) {
+            first = new Bucket(1);
+            linkBucketAfter(first, null);
+        }
+        addToBucket(node, first);
+        index.put(orderService.getCode(), node);
+
+        return evicted;
+    }
+
+    @Override
+    public boolean replace(OrderService orderService) {
+        Node node = index.get(orderService.getCode());
+        if (node == null) {
+            return false;
+        }
+        node.data = orderService;
+        return true;
+    }
+
+    @Override
+    public OrderService remove(int code) {
+        Node node = index.get(code);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.data;
+    }
+
+    // Mais frequentes primeiro
+    @Override
+    public List<OrderService> values(int limit) {
+        List<OrderService> list = new ArrayList<>(Math.min(limit, index.size()));
+        for (Bucket b = highest; b != null; b = b.prev) {
+            for (Node n = b.head; n != null; n = n.next) {
+                if (list.size() == limit) {
+                    return list;
+                }
+                list.add(n.data);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getName() {
+        return "LFU";
+    }
+
+    // --------------------------------------------------------------------------------
+    // Manipulação dos baldes
+
+    private void touch(Node node) {
+        Bucket current = node.bucket;
+        Bucket next = current.next;
+
+        if (next == null || next.frequency != current.frequency + 1) {
+            next = new Bucket(current.frequency + 1);
+            linkBucketAfter(next, current);
+        }
+
+        detachFromBucket(node);
+        addToBucket(node, next);
+    }
+
+    private void removeNode(Node node) {
+        detachFromBucket(node);
+        index.remove(node.data.getCode());
+    }
+
+    private void addToBucket(Node node, Bucket bucket) {
+        node.bucket = bucket;
+        node.prev = null;
+        node.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = node;
+        } else {
+            bucket.tail = node;
+        }
+        bucket.head = node;
+    }
+
+    // Desliga o nó do seu balde e descarta o balde se ele ficar vazio
+    private void detachFromBucket(Node node) {
+        Bucket bucket = node.bucket;
+
+        if (node.prev != null) node.prev.next = node.next;
+        else bucket.head = node.next;
+
+        if (node.next != null) node.next.prev = node.prev;
+        else bucket.tail = node.prev;
+
+        node.prev = null;
+        node.next = null;
+        node.bucket = null;
+
+        if (bucket.head == null) {
+            unlinkBucket(bucket);
+        }
+    }
+
+    // Liga o balde logo depois de 'after' (ou no início se 'after' for null)
+    private void linkBucketAfter(Bucket bucket, Bucket after) {
+        bucket.prev = after;
+        bucket.next = after == null ? lowest : after.next;
+
+        if (bucket.next != null) bucket.next.prev = bucket;
+        else highest = bucket;
+
+        if (after != null) after.next = bucket;
+        else lowest = bucket;
+    }
+
+    private void unlinkBucket(Bucket bucket) {
+        if (bucket.prev != null) bucket.prev.next = bucket.next;
+        else lowest = bucket.next;
+
+        if (bucket.next != null) bucket.next.prev = bucket.prev;
+        else highest = bucket.prev;
+    }
+}
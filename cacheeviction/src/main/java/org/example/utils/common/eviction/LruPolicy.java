@@ -0,0 +1,73 @@
+package org.example.utils.common.eviction;
+
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.listsAA.LinkedListHashAA;
+
+/*
+ * LRU (Least Recently Used): a lista autoajustável move cada elemento acessado para o início,
+ * então o último elemento é sempre o menos recentemente usado e é ele que sai quando a cache enche.
+ */
+
+public class LruPolicy implements EvictionPolicy {
+    private final int capacity;
+    private final LinkedListHashAA list;
+
+    public LruPolicy(int capacity) {
+        this.capacity = capacity;
+        this.list = new LinkedListHashAA(capacity);
+    }
+
+    @Override
+    public OrderService get(int code) {
+        return list.contains(code) ? list.search(code) : null;
+    }
+
+    @Override
+    public OrderService put(OrderService orderService) {
+        OrderService evicted = null;
+
+        if (list.size() == capacity && !list.contains(orderService.getCode())) {
+            evicted = list.removeLast();
+        }
+
+        list.insertFirst(orderService);
+        return evicted;
+    }
+
+    @Override
+    public boolean replace(OrderService orderService) {
+        if (!list.contains(orderService.getCode())) {
+            return false;
+        }
+        list.alter(orderService);
+        return true;
+    }
+
+    @Override
+    public OrderService remove(int code) {
+        return list.contains(code) ? list.remove(code) : null;
+    }
+
+    @Override
+    public List<OrderService> values(int limit) {
+        return list.listFirst(limit);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getName() {
+        return "LRU";
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.utils.common.eviction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.hash.IntHashMap;
+
+/*
+ * SIEVE: uma fila FIFO em que cada elemento tem um bit de "visitado".
+ * Um HIT só marca o bit (não move nada, ao contrário do LRU), e uma mão percorre a fila do mais antigo
+ * para o mais novo: elementos visitados perdem o bit e ficam, o primeiro não visitado é despejado.
+ * Elementos lidos uma única vez (varreduras, paginação) saem rápido sem empurrar os quentes para fora.
+ */
+
+public class SievePolicy implements EvictionPolicy {
+    private static class Node {
+        OrderService data;
+        boolean visited;
+        Node prev, next;    // prev aponta para o mais novo, next para o mais antigo
+
+        Node(OrderService data) {
+            this.data = data;
+        }
+    }
+
+    private final int capacity;
+    private final IntHashMap<Node> index;
+    private Node head;      // Mais novo
+    private Node tail;      // Mais antigo
+    private Node hand;      // Próximo candidato ao despejo
+
+    public SievePolicy(int capacity) {
+        this.capacity = capacity;
+        this.index = new IntHashMap<>(capacity);
+    }
+
+    @Override
+    public OrderService get(int code) {
+        Node node = index.get(code);
+        if (node == null) {
+            return null;
+        }
+
+        node.visited = true;
+        return node.data;
+    }
+
+    @Override
+    public OrderService put(OrderService orderService) {
+        Node node = index.get(orderService.getCode());
+        if (node != null) {
+            node.data = orderService;
+            node.visited = true;
+            return null;
+        }
+
+        OrderService evicted = null;
+        if (index.size() == capacity) {
+            evicted = evict();
+        }
+
+        node = new Node(orderService);
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        } else {
+            tail = node;
+        }
+        head = node;
+        index.put(orderService.getCode(), node);
+
+        return evicted;
+    }
+
+    @Override
+    public boolean replace(OrderService orderService) {
+        Node node = index.get(orderService.getCode());
+        if (node == null) {
+            return false;
+        }
+        node.data = orderService;
+        return true;
+    }
+
+    @Override
+    public OrderService remove(int code) {
+        Node node = index.get(code);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.data;
+    }
+
+    @Override
+    public List<OrderService> values(int limit) {
+        List<OrderService> list = new ArrayList<>(Math.min(limit, index.size()));
+        for (Node n = head; n != null && list.size() < limit; n = n.next) {
+            list.add(n.data);
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getName() {
+        return "SIEVE";
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private OrderService evict() {
+        Node node = hand != null ? hand : tail;
+
+        while (node.visited) {
+            node.visited = false;
+            node = node.prev != null ? node.prev : tail; // Chegou no mais novo: volta para o mais antigo
+        }
+
+        removeNode(node);
+        return node.data;
+    }
+
+    private void removeNode(Node node) {
+        if (node == hand) {
+            hand = node.prev;
+        }
+
+        if (node.prev != null) node.prev.next = node.next;
+        else head = node.next;
+
+        if (node.next != null) node.next.prev = node.prev;
+        else tail = node.prev;
+
+        node.prev = null;
+        node.next = null;
+        index.remove(node.data.getCode());
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.utils.common.eviction;
+
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.common.interfaces.EvictionPolicy;
+import org.example.utils.listsAA.LinkedListHashAA;
+
+/*
+ * W-TinyLFU (a política da Caffeine), dividida em três listas LRU:
+ *  - janela (1% da capacidade): todo elemento novo entra aqui, o que protege rajadas de acessos recentes;
+ *  - probatória e protegida (SLRU com 20% / 80% do restante): a área principal da cache.
+ * Quem sai da janela só entra na área principal se o FrequencySketch estimar que ele é mais frequente
+ * que a vítima da probatória. Numa varredura os códigos lidos uma vez perdem essa disputa e
+ * não expulsam os elementos quentes.
+ */
+
+public class WTinyLfuPolicy implements EvictionPolicy {
+    private final int capacity;
+    private final int windowMax;
+    private final int protectedMax;
+    private final LinkedListHashAA window, probation, protectedList;
+    private final FrequencySketch sketch;
+
+    public WTinyLfuPolicy(int capacity) {
+        this.capacity = capacity;
+        this.windowMax = Math.max(1, capacity / 100);
+        this.protectedMax = (capacity - windowMax) * 8 / 10;
+        this.window = new LinkedListHashAA(windowMax);
+        this.probation = new LinkedListHashAA(capacity - windowMax);
+        this.protectedList = new LinkedListHashAA(protectedMax);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public OrderService get(int code) {
+        sketch.increment(code); // MISSes também contam: o sketch decide a admissão quando o código voltar
+
+        if (window.contains(code)) {
+            return window.search(code);
+        }
+        if (protectedList.contains(code)) {
+            return protectedList.search(code);
+        }
+        if (probation.contains(code)) {
+            OrderService data = probation.remove(code);
+            promote(data);
+            return data;
+        }
+        return null;
+    }
+
+    @Override
+    public OrderService put(OrderService orderService) {
+        int code = orderService.getCode();
+
+        if (window.contains(code)) {
+            window.insertFirst(orderService);
+            return null;
+        }
+        if (protectedList.contains(code)) {
+            protectedList.insertFirst(orderService);
+            return null;
+        }
+        if (probation.contains(code)) {
+            probation.remove(code);
+            promote(orderService);
+            return null;
+        }
+
+        window.insertFirst(orderService);
+        if (window.size() <= windowMax) {
+            return null;
+        }
+
+        // A janela estourou: o LRU da janela disputa uma vaga na área principal
+        OrderService candidate = window.removeLast();
+        int mainMax = capacity - windowMax;
+
+        if (probation.size() + protectedList.size() < mainMax) {
+            probation.insertFirst(candidate);
+            return null;
+        }
+        if (mainMax == 0) {
+            return candidate;
+        }
+
+        LinkedListHashAA victims = probation.isEmpty() ? protectedList : probation;
+        OrderService victim = victims.peekLast();
+
+        if (sketch.frequency(candidate.getCode()) > sketch.frequency(victim.getCode())) {
+            victims.removeLast();
+            probation.insertFirst(candidate);
+            return victim;
+        }
+
+        return candidate;
+    }
+
+    @Override
+    public boolean replace(OrderService orderService) {
+        int code = orderService.getCode();
+        for (LinkedListHashAA list : List.of(window, probation, protectedList)) {
+            if (list.contains(code)) {
+                list.alter(orderService);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public OrderService remove(int code) {
+        for (LinkedListHashAA list : List.of(window, probation, protectedList)) {
+            if (list.contains(code)) {
+                return list.remove(code);
+            }
+        }
+        return null;
+    }
+
+    // Protegida, depois janela, depois probatória
+    @Override
+    public List<OrderService> values(int limit) {
+        List<OrderService> list = protectedList.listFirst(limit);
+        list.addAll(window.listFirst(limit - list.size()));
+        list.addAll(probation.listFirst(limit - list.size()));
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return window.size() + probation.size() + protectedList.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getName() {
+        return "W-TinyLFU";
+    }
+
+    // Leva o elemento para a protegida; se ela estourar, o LRU da protegida volta para a probatória
+    private void promote(OrderService data) {
+        protectedList.insertFirst(data);
+        if (protectedList.size() > protectedMax && protectedList.size() > 1) {
+            probation.insertFirst(protectedList.removeLast());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.utils.common.interfaces;
+
+import org.example.utils.common.nio.NioConnection;
+
+/*
+ * Regras de um servidor sobre o transporte NIO. Os três métodos rodam no pool de trabalho, nunca no laço de
+ * eventos, e nunca dois ao mesmo tempo para a mesma conexão.
+ */
+
+public interface ConnectionHandler {
+    // Conexão negociada (ex.: enviar o menu)
+    void opened(NioConnection connection);
+
+    // Uma requisição completa chegou: ler o comando e os dados dele pelo Communicator da conexão e responder
+    void request(NioConnection connection);
+
+    // A conexão foi fechada (por um dos lados ou por erro); último método chamado para ela
+    void closed(NioConnection connection);
+}
@@ -0,0 +1,38 @@
+package org.example.utils.common.interfaces;
+
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+
+/*
+ * Uma política de cache eviction guarda as ordens de serviço da cache e decide quem sai quando ela enche.
+ * A Cache apenas delega para a política e contabiliza os HITs e MISSes.
+ */
+
+public interface EvictionPolicy {
+    // Retorna a OS e registra o acesso (HIT), ou null se o código não estiver na cache (MISS)
+    OrderService get(int code);
+
+    // Insere (ou substitui) a OS. Retorna o elemento despejado para abrir espaço, que pode ser a própria OS
+    // caso a política recuse admiti-la, ou null se nada saiu da cache
+    OrderService put(OrderService orderService);
+
+    // Substitui os dados de uma OS já presente sem contar como acesso. Retorna false se não estiver na cache
+    boolean replace(OrderService orderService);
+
+    // Remove a OS da cache. Retorna o elemento removido ou null se não estava na cache
+    OrderService remove(int code);
+
+    // Lista no máximo 'limit' elementos, na ordem interna da política
+    List<OrderService> values(int limit);
+
+    default List<OrderService> values() {
+        return values(Integer.MAX_VALUE);
+    }
+
+    int size();
+
+    int capacity();
+
+    String getName();
+}
@@ -1,5 +1,10 @@
 package org.example.utils.common.interfaces;
 
+import java.util.List;
+
+import org.example.utils.common.Envelope;
+import org.example.utils.common.OrderService;
+
 public interface MessageHandler {
     void sendTextMessage(String message);
 
@@ -9,5 +14,15 @@ public interface MessageHandler {
 
     <T> T receiveJsonMessage(Class<T> clas);
 
+    // Lista de OS (LIST, SEARCH_TEXT, lotes); cada protocolo usa a sua codificação
+    void sendOrders(List<OrderService> orders);
+
+    List<OrderService> receiveOrders();
+
+    // Requisição ou resposta de uma conexão multiplexada; null no fim da conexão
+    void sendEnvelope(Envelope envelope);
+
+    Envelope receiveEnvelope();
+
     void close();
-}
\ No newline at end of file
+}
@@ -0,0 +1,607 @@
+package org.example.utils.common.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.example.utils.Command;
+import org.example.utils.Loggable;
+import org.example.utils.common.BinaryMessageHandler;
+import org.example.utils.common.Communicator;
+import org.example.utils.common.WireProtocol;
+
+/*
+ * Uma conexão aceita pelo NioTransport. O laço de eventos lê o que chegar para o buffer de entrada e separa os
+ * quadros (tamanho prefixado no binário, linha no JSON) à medida que os bytes chegam; quando a próxima requisição
+ * está inteira (o comando e as Command.getPayloads() mensagens dele), ela vai para o pool de trabalho.
+ *
+ * O handler usa um Communicator comum sobre os fluxos desta conexão, então o código das ações não muda:
+ *  - a leitura devolve no máximo até o fim do quadro atual e available() é 0 entre quadros, para o BufferedReader
+ *    do protocolo JSON não consumir a próxima requisição antes da hora;
+ *  - a escrita acumula até o flush, que tenta escrever direto no canal; o que o canal não aceitar fica para o laço
+ *    (OP_WRITE) e o flush espera, como no socket bloqueante.
+ *
+ * As chamadas ao handler de uma conexão são em série (uma tarefa no pool por vez), e uma conexão ociosa não ocupa
+ * thread nenhuma, só os buffers. Uma conexão que passa a ter uma sessão que dura a conexão toda (Envelopes de uma
+ * conexão multiplexada) sai do pool com handOff e é lida por uma thread própria, para não prender um trabalhador.
+ */
+
+public class NioConnection implements Loggable {
+    private static final int INBOUND_LIMIT = 4 * 1024 * 1024;      // Acima disso para de ler até o handler consumir
+    private static final int MAX_REQUESTS_PER_RUN = 16;             // Depois devolve o trabalhador para as outras conexões
+    private static final long WRITE_TIMEOUT_MILLIS = 30_000;        // Cliente que não lê a resposta
+    private static final byte[] HELLO_PREFIX = (WireProtocol.HELLO + " ").getBytes(StandardCharsets.US_ASCII);
+
+    private final NioTransport transport;
+    private final NioTransport.EventLoop loop;
+    private final SocketChannel channel;
+    private SelectionKey key;
+    private final long helloDeadline;
+
+    // Entrada: bytes recebidos em [readPos, writePos), em posições absolutas; buffer[0] é a posição 'base'
+    private byte[] buffer = new byte[256];
+    private long base;
+    private long readPos;
+    private long writePos;
+    private long scanPos;                                           // Início do primeiro quadro ainda incompleto
+    private long lineSearchPos;                                     // JSON: até onde já se procurou o '\n'
+    private final ArrayDeque<Long> frameEnds = new ArrayDeque<>();  // Fim de cada quadro completo ainda não lido
+    private boolean atBoundary = true;
+    private boolean eof;
+    private boolean readPaused;
+    private long requestAt = -1;                                    // Requisição que começa em readPos...
+    private int requestFrames;                                      // ...e quantos quadros ela tem
+
+    // Saída
+    private ByteBuffer pendingWrite;                                // Resto de um flush que o canal não aceitou
+    private final Object writeLock = new Object();
+
+    @Getter
+    private volatile WireProtocol protocol;                         // null enquanto espera o HELLO
+    private volatile boolean closed;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean detached;                              // Atendida pela thread do handOff
+    private boolean opened;                                         // Só lidos pela tarefa no pool (em série)
+    private boolean closeNotified;
+    @Getter
+    private Communicator communicator;
+    @Getter
+    @Setter
+    private volatile Object attachment;                             // Estado do handler para esta conexão
+
+    private final InputStream input = new Input();
+    private final OutputStream output = new Output();
+
+    NioConnection(NioTransport transport, NioTransport.EventLoop loop, SocketChannel channel, long helloTimeoutMillis) {
+        this.transport = transport;
+        this.loop = loop;
+        this.channel = channel;
+        this.helloDeadline = System.currentTimeMillis() + helloTimeoutMillis;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Fecha na hora; o handler ainda recebe closed() depois da requisição em andamento
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            erro("Erro ao fechar conexão NIO: " + e.getMessage());
+        }
+        loop.wakeupIfOther(); // O socket só é liberado quando o Selector tira o canal do registro
+        transport.connectionClosed();
+        schedule();
+    }
+
+    // Chamado de dentro do handler: 'session' continua o atendimento numa thread própria, pelo mesmo Communicator,
+    // e o pool de trabalho não recebe mais requisições desta conexão. Quando 'session' termina a conexão volta
+    // para o pool, que só avisa o closed() se ela tiver sido fechada
+    public void handOff(Runnable session) {
+        detached = true;
+        Thread thread = new Thread(() -> {
+            try {
+                session.run();
+            } catch (RuntimeException e) {
+                erro(transport.getName() + ": erro na sessão da conexão: " + e.getMessage());
+                close();
+            } finally {
+                detached = false;
+                schedule();
+            }
+        }, transport.getName() + "-nio-session-" + channel.socket().getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Laço de eventos
+
+    void registered(SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable(ByteBuffer scratch) {
+        while (!closed) {
+            scratch.clear();
+            int read;
+            try {
+                read = channel.read(scratch);
+            } catch (IOException e) {
+                read = -1; // Conexão derrubada pelo outro lado: mesmo tratamento do fim de fluxo
+            }
+            if (read < 0) {
+                endOfStream();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            scratch.flip();
+            if (!received(scratch) || read < scratch.capacity()) {
+                return;
+            }
+        }
+    }
+
+    void onWritable() {
+        synchronized (this) {
+            if (pendingWrite != null) {
+                try {
+                    channel.write(pendingWrite);
+                } catch (IOException e) {
+                    pendingWrite = null;
+                    notifyAll();
+                    close();
+                    return;
+                }
+                if (!pendingWrite.hasRemaining()) {
+                    pendingWrite = null;
+                    notifyAll();
+                }
+            }
+            updateInterest();
+        }
+    }
+
+    // Sem HELLO dentro do prazo: par antigo, que espera o menu antes de falar
+    boolean expireHello(long now) {
+        if (protocol != null || closed) {
+            return true;
+        }
+        if (now < helloDeadline) {
+            return false;
+        }
+        synchronized (this) {
+            negotiated(WireProtocol.JSON);
+        }
+        schedule();
+        return true;
+    }
+
+    // Guarda os bytes lidos, avança a negociação e a separação dos quadros; false se a conexão foi fechada
+    private boolean received(ByteBuffer bytes) {
+        boolean ready;
+        synchronized (this) {
+            append(bytes);
+            boolean wasNegotiating = protocol == null;
+            if (wasNegotiating) {
+                negotiate();
+            }
+            if (protocol != null && !scan()) {
+                warn(transport.getName() + ": quadro inválido, conexão encerrada");
+                close();
+                return false;
+            }
+            if (writePos - readPos > INBOUND_LIMIT && !frameEnds.isEmpty()) {
+                readPaused = true;
+                updateInterest();
+            }
+            notifyAll();
+            ready = protocol != null && (wasNegotiating || requestReady());
+        }
+        if (ready) {
+            schedule();
+        }
+        return true;
+    }
+
+    private void endOfStream() {
+        synchronized (this) {
+            eof = true;
+            notifyAll();
+            updateInterest();
+        }
+        if (protocol == null) {
+            close();
+        } else {
+            schedule(); // Atende o que já chegou e fecha
+        }
+    }
+
+    private void append(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (writePos + length - base > buffer.length) {
+            long keep = Math.min(readPos, scanPos);
+            int live = (int) (writePos - keep);
+            byte[] target = live + length <= buffer.length / 2 ? buffer
+                    : new byte[Math.max(buffer.length * 2, live + length)];
+            System.arraycopy(buffer, (int) (keep - base), target, 0, live);
+            buffer = target;
+            base = keep;
+        }
+        bytes.get(buffer, (int) (writePos - base), length);
+        writePos += length;
+    }
+
+    // Responde o HELLO no próprio laço. Bytes que não começam com "HELLO " são a primeira mensagem de um par antigo
+    private void negotiate() {
+        int available = (int) (writePos - readPos);
+        int offset = (int) (readPos - base);
+        for (int i = 0; i < Math.min(available, HELLO_PREFIX.length); i++) {
+            if (buffer[offset + i] != HELLO_PREFIX[i]) {
+                negotiated(WireProtocol.JSON);
+                return;
+            }
+        }
+
+        int limit = Math.min(available, WireProtocol.MAX_HELLO_BYTES);
+        for (int i = HELLO_PREFIX.length; i < limit; i++) {
+            if (buffer[offset + i] == '\n') {
+                String hello = new String(buffer, offset, i, StandardCharsets.UTF_8).strip();
+                readPos += i + 1;
+                WireProtocol chosen = WireProtocol.answer(hello);
+                writeFromLoop((WireProtocol.HELLO + " " + chosen.name().toLowerCase() + "\n").getBytes(StandardCharsets.UTF_8));
+                negotiated(chosen);
+                return;
+            }
+        }
+        if (available >= WireProtocol.MAX_HELLO_BYTES) {
+            negotiated(WireProtocol.JSON);
+        }
+    }
+
+    private void negotiated(WireProtocol chosen) {
+        protocol = chosen;
+        scanPos = readPos;
+        lineSearchPos = readPos;
+        scan();
+    }
+
+    // Separa os quadros completos a partir de scanPos; false se o fluxo não segue o protocolo
+    private boolean scan() {
+        while (true) {
+            long available = writePos - scanPos;
+            if (protocol == WireProtocol.BINARY) {
+                if (available < Integer.BYTES) {
+                    return true;
+                }
+                int i = (int) (scanPos - base);
+                int length = ((buffer[i] & 0xFF) << 24) | ((buffer[i + 1] & 0xFF) << 16)
+                        | ((buffer[i + 2] & 0xFF) << 8) | (buffer[i + 3] & 0xFF);
+                if (length < 1 || length > BinaryMessageHandler.MAX_FRAME_BYTES) {
+                    return false;
+                }
+                if (available < Integer.BYTES + (long) length) {
+                    return true;
+                }
+                scanPos += Integer.BYTES + length;
+            } else {
+                int end = (int) (writePos - base);
+                int newline = -1;
+                for (int i = (int) (lineSearchPos - base); i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline < 0) {
+                    lineSearchPos = writePos;
+                    return available <= BinaryMessageHandler.MAX_FRAME_BYTES;
+                }
+                scanPos = base + newline + 1;
+                lineSearchPos = scanPos;
+            }
+            frameEnds.addLast(scanPos);
+        }
+    }
+
+    // A próxima requisição (comando + mensagens dele) já chegou inteira (chamado com o lock)
+    private boolean requestReady() {
+        if (frameEnds.isEmpty()) {
+            return false;
+        }
+        if (requestAt != readPos) {
+            requestAt = readPos;
+            requestFrames = 1 + payloadsOf(readPos, frameEnds.peekFirst());
+        }
+        return frameEnds.size() >= requestFrames;
+    }
+
+    // Mensagens que seguem o comando do quadro [start, end); 0 se o quadro não for um comando conhecido
+    private int payloadsOf(long start, long end) {
+        int from = (int) (start - base);
+        int to = (int) (end - base);
+        Command command = null;
+        if (protocol == WireProtocol.BINARY) {
+            if (to - from > Integer.BYTES + 1 && buffer[from + Integer.BYTES] == BinaryMessageHandler.COMMAND) {
+                command = Command.fromOpcode(buffer[from + Integer.BYTES + 1]);
+            }
+        } else {
+            String line = new String(buffer, from, to - from, StandardCharsets.UTF_8).strip();
+            if (line.length() > 2 && line.startsWith("\"") && line.endsWith("\"")) {
+                try {
+                    command = Command.valueOf(line.substring(1, line.length() - 1));
+                } catch (IllegalArgumentException e) {
+                    // Não é um comando: a mensagem sozinha é a requisição (ex.: GET_PROXY no Localizador)
+                }
+            }
+        }
+        return command == null ? 0 : command.getPayloads();
+    }
+
+    private void writeFromLoop(byte[] bytes) {
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        try {
+            channel.write(data);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (data.hasRemaining()) {
+            pendingWrite = data;
+            updateInterest();
+        }
+    }
+
+    // Interesse do canal conforme o estado (chamado com o lock)
+    private void updateInterest() {
+        if (key == null || closed) {
+            return;
+        }
+        int ops = (readPaused || eof ? 0 : SelectionKey.OP_READ) | (pendingWrite != null ? SelectionKey.OP_WRITE : 0);
+        try {
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+                loop.wakeupIfOther();
+            }
+        } catch (CancelledKeyException e) {
+            // Canal já fechado
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Pool de trabalho
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                transport.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false); // Transporte encerrado
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            if (!opened && !closed) {
+                opened = true;
+                communicator = new Communicator(channel.socket(), transport.getName(), protocol, input, output);
+                transport.getHandler().opened(this);
+            }
+            for (int served = 0; served < MAX_REQUESTS_PER_RUN && !closed && !detached && hasRequest(); served++) {
+                transport.getHandler().request(this);
+            }
+            if (detached) {
+                return; // A thread do handOff lê o resto e devolve a conexão quando terminar
+            }
+            if (!closed && isDrained()) {
+                communicator.disconnect(); // O outro lado fechou e não há mais requisições
+            }
+            if (closed && opened && !closeNotified) {
+                closeNotified = true;
+                transport.getHandler().closed(this);
+            }
+        } catch (RuntimeException e) {
+            erro(transport.getName() + ": erro ao atender conexão: " + e.getMessage());
+            close();
+        } finally {
+            scheduled.set(false);
+            if (hasWork()) {
+                schedule();
+            }
+        }
+    }
+
+    private synchronized boolean hasRequest() {
+        return requestReady();
+    }
+
+    private synchronized boolean isDrained() {
+        return eof && !requestReady();
+    }
+
+    private boolean hasWork() {
+        if (detached) {
+            return false;
+        }
+        if (closed) {
+            return opened && !closeNotified;
+        }
+        return protocol != null && (!opened || hasRequest() || isDrained());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Fluxos do Communicator
+
+    private class Input extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            synchronized (NioConnection.this) {
+                long timeout = transport.getReadTimeoutMillis();
+                long deadline = System.currentTimeMillis() + timeout;
+                while (readPos == writePos) {
+                    if (eof || closed) {
+                        return -1;
+                    }
+                    long remaining = timeout > 0 ? deadline - System.currentTimeMillis() : 0;
+                    if (timeout > 0 && remaining <= 0) {
+                        throw new SocketTimeoutException("Sem dados do cliente em " + timeout + "ms");
+                    }
+                    try {
+                        NioConnection.this.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Leitura interrompida", e);
+                    }
+                }
+
+                long limit = frameEnds.isEmpty() ? writePos : frameEnds.peekFirst();
+                int count = (int) Math.min(length, limit - readPos);
+                System.arraycopy(buffer, (int) (readPos - base), target, offset, count);
+                readPos += count;
+                atBoundary = !frameEnds.isEmpty() && readPos == frameEnds.peekFirst();
+                if (atBoundary) {
+                    frameEnds.pollFirst();
+                }
+                if (readPaused && writePos - readPos <= INBOUND_LIMIT / 2) {
+                    readPaused = false;
+                    updateInterest();
+                }
+                return count;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (NioConnection.this) {
+                if (atBoundary) {
+                    return 0;
+                }
+                long limit = frameEnds.isEmpty() ? writePos : frameEnds.peekFirst();
+                return (int) (limit - readPos);
+            }
+        }
+
+        @Override
+        public void close() {
+            NioConnection.this.close();
+        }
+    }
+
+    private class Output extends OutputStream {
+        private byte[] pending = new byte[0];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            reserve(1);
+            pending[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            reserve(length);
+            System.arraycopy(bytes, offset, pending, count, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer data = ByteBuffer.wrap(pending, 0, count);
+            count = 0;
+            send(data);
+            if (pending.length > 64 * 1024) {
+                pending = new byte[0]; // Uma resposta grande não fica presa à conexão ociosa
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                flush();
+            } catch (IOException e) {
+                // A conexão vai ser fechada de qualquer forma
+            }
+            NioConnection.this.close();
+        }
+
+        private void reserve(int length) {
+            if (count + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(Math.max(512, pending.length * 2), count + length));
+            }
+        }
+    }
+
+    // Escreve direto no canal; o que sobrar o laço escreve quando o canal aceitar, e este método espera
+    private void send(ByteBuffer data) throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IOException("Conexão fechada");
+            }
+            while (data.hasRemaining() && channel.write(data) > 0) {
+                // O canal aceitou tudo o que cabia no buffer do socket
+            }
+            if (!data.hasRemaining()) {
+                return;
+            }
+
+            synchronized (this) {
+                pendingWrite = data;
+                updateInterest();
+                long deadline = System.currentTimeMillis() + WRITE_TIMEOUT_MILLIS;
+                while (pendingWrite != null && !closed) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        close();
+                        throw new SocketTimeoutException("Cliente não leu a resposta em " + WRITE_TIMEOUT_MILLIS + "ms");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Escrita interrompida", e);
+                    }
+                }
+                if (pendingWrite != null) {
+                    throw new IOException("Conexão fechada");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.example.utils.common.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+import org.example.utils.Loggable;
+import org.example.utils.common.interfaces.ConnectionHandler;
+
+/*
+ * Transporte não bloqueante (-Dtransport=nio) para o Servidor, o Proxy e o Localizador, no lugar de
+ * ServerSocket.accept() com uma thread por conexão:
+ *
+ *  - N laços de eventos ("<nome>-nio-loop-i"), cada um com o seu Selector. O primeiro também aceita as conexões
+ *    e as distribui em rodízio entre os laços;
+ *  - cada laço lê os bytes das suas conexões, responde o HELLO e separa os quadros (NioConnection), sem nunca
+ *    bloquear nem rodar código das ações;
+ *  - as requisições completas rodam num pool fixo de trabalhadores ("<nome>-nio-worker-i"), no estilo bloqueante
+ *    de sempre (ConnectionHandler), uma por vez para cada conexão.
+ *
+ * Threads ficam proporcionais ao trabalho em andamento, e não ao número de conexões abertas.
+ */
+
+public class NioTransport implements Loggable, AutoCloseable {
+    private static final long HELLO_TICK_MILLIS = 50;               // Revisão dos HELLOs pendentes
+
+    @Getter
+    private final String name;
+    @Getter
+    private final ConnectionHandler handler;
+    @Getter
+    private final long readTimeoutMillis;                           // Espera pelos dados de uma requisição (0 = sem limite)
+    private final long helloTimeoutMillis;
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    public NioTransport(String name, InetSocketAddress address, int backlog, int loopCount, int workerCount,
+                        long readTimeoutMillis, long helloTimeoutMillis, ConnectionHandler handler) throws IOException {
+        this.name = name;
+        this.handler = handler;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.helloTimeoutMillis = helloTimeoutMillis;
+
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-nio-worker-" + workerIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(address, backlog);
+        server.configureBlocking(false);
+
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    public static NioTransport fromSystemProperties(String name, String host, int port, ConnectionHandler handler) throws IOException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return new NioTransport(name, new InetSocketAddress(host, port),
+                Integer.getInteger("nio.backlog", 1024),                        // -Dnio.backlog=N
+                Integer.getInteger("nio.loops", Math.max(1, cpus / 2)),         // -Dnio.loops=N laços de eventos
+                Integer.getInteger("nio.workers", Math.max(16, cpus * 4)),      // -Dnio.workers=N requisições ao mesmo tempo
+                Long.getLong("nio.read.timeout", 0),                            // -Dnio.read.timeout=ms (0 = sem limite)
+                Long.getLong("protocol.hello.timeout", 100),                    // -Dprotocol.hello.timeout=ms
+                handler);
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getLoopCount() {
+        return loops.length;
+    }
+
+    public int getWorkerCount() {
+        return workers.getMaximumPoolSize();
+    }
+
+    // Bloqueia até o transporte ser fechado (o Servidor fica preso aqui como ficava no accept)
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            erro(name + ": erro ao fechar o socket do servidor: " + e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdown(); // As notificações de fechamento ainda rodam
+        try {
+            workers.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        terminated.countDown();
+        info(name + ": transporte NIO encerrado");
+    }
+
+    void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Laço de eventos
+
+    final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();  // Aceitas, ainda sem registrar
+        private final List<NioConnection> negotiating = new ArrayList<>();           // Esperando o HELLO
+        private final ByteBuffer scratch = ByteBuffer.allocateDirect(64 * 1024);
+
+        EventLoop(int id) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name + "-nio-loop-" + id);
+            thread.setDaemon(true);
+        }
+
+        void wakeupIfOther() {
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    registerIncoming(); // Antes do select: as aceitas pelo próprio laço não o acordam
+                    selector.select(negotiating.isEmpty() ? 0 : HELLO_TICK_MILLIS);
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (key.isAcceptable()) {
+                                accept();
+                            } else if (key.attachment() instanceof NioConnection connection) {
+                                if (key.isWritable()) {
+                                    connection.onWritable();
+                                }
+                                if (key.isValid() && key.isReadable()) {
+                                    connection.onReadable(scratch);
+                                }
+                            }
+                        } catch (CancelledKeyException e) {
+                            // Conexão fechada por um trabalhador enquanto o laço a atendia
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    negotiating.removeIf(connection -> connection.expireHello(now));
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    erro(name + ": erro no laço de eventos: " + e.getMessage());
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // Cada flush já é uma mensagem inteira
+                connections.incrementAndGet();
+                EventLoop target = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                target.incoming.add(channel);
+                target.wakeupIfOther();
+            }
+        }
+
+        private void registerIncoming() {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                NioConnection connection = new NioConnection(NioTransport.this, this, channel, helloTimeoutMillis);
+                try {
+                    connection.registered(channel.register(selector, SelectionKey.OP_READ, connection));
+                    negotiating.add(connection);
+                } catch (IOException e) {
+                    erro(name + ": erro ao registrar conexão: " + e.getMessage());
+                    connection.close();
+                }
+            }
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection connection) {
+                    connection.close();
+                }
+            }
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Encerrando
+                }
+                connections.decrementAndGet();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                erro(name + ": erro ao fechar o Selector: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.utils.common.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Contadores da cache. Todos são LongAdder/sem lock porque são atualizados por todas as threads do Proxy
+ * a cada requisição, e um AtomicLong compartilhado viraria ponto de disputa entre os segmentos.
+ *
+ * Além dos totais, guarda a taxa de acerto em janelas deslizantes (uma queda recente aparece mesmo depois
+ * de horas de HITs acumulados) e histogramas de latência da busca na cache e da busca no servidor.
+ */
+public class CacheStats {
+    private static final int MAX_WINDOW_SECONDS = 15 * 60;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+    private final SlidingWindowCounter window = new SlidingWindowCounter(MAX_WINDOW_SECONDS);
+
+    // --------------------------------------------------------------------------------
+    // Registro
+
+    public void recordLookup(boolean hit, long nanos) {
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        window.record(hit);
+        lookupLatency.record(nanos);
+    }
+
+    public void recordInsert() {
+        inserts.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordInvalidation() {
+        invalidations.increment();
+    }
+
+    public void recordExpirations(int count) {
+        expirations.add(count);
+    }
+
+    public void recordOffHeapHit() {
+        offHeapHits.increment();
+    }
+
+    // Uma ida ao servidor depois de um MISS; found = false quando a OS não existe ou a busca falhou
+    public void recordLoad(boolean found, long nanos) {
+        if (found) {
+            loads.increment();
+        } else {
+            loadFailures.increment();
+        }
+        totalLoadNanos.add(nanos);
+        fetchLatency.record(nanos);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Consulta
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public double getHitRatio(int windowSeconds) {
+        return window.hitRatio(windowSeconds);
+    }
+
+    public long getInserts() {
+        return inserts.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getOffHeapHits() {
+        return offHeapHits.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public double getAverageLoadMillis() {
+        long total = loads.sum() + loadFailures.sum();
+        return total == 0 ? 0.0 : totalLoadNanos.sum() / 1_000_000.0 / total;
+    }
+
+    public LatencyHistogram getLookupLatency() {
+        return lookupLatency;
+    }
+
+    public LatencyHistogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    // Preenche a parte dos contadores; a cache completa com política, capacidade e tamanho
+    public CacheStatsReport.CacheStatsReportBuilder report() {
+        return CacheStatsReport.builder()
+                .hits(getHits())
+                .misses(getMisses())
+                .hitRatio(getHitRatio())
+                .hitRatio1m(getHitRatio(60))
+                .hitRatio5m(getHitRatio(5 * 60))
+                .hitRatio15m(getHitRatio(15 * 60))
+                .inserts(getInserts())
+                .evictions(getEvictions())
+                .invalidations(getInvalidations())
+                .expirations(getExpirations())
+                .offHeapHits(getOffHeapHits())
+                .loads(getLoads())
+                .loadFailures(getLoadFailures())
+                .averageLoadMillis(getAverageLoadMillis())
+                .lookupLatency(lookupLatency.summary())
+                .fetchLatency(fetchLatency.summary());
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.utils.common.stats;
+
+import org.example.utils.JsonSerializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fotografia das estatísticas da cache, é a resposta do Proxy ao comando STATS
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsReport implements JsonSerializable {
+    private String policy;
+    private int capacity;
+    private int size;
+    private int offHeapSize;
+    private long hits;
+    private long misses;
+    private double hitRatio;            // Desde o início do Proxy
+    private double hitRatio1m;          // Últimos 60 segundos
+    private double hitRatio5m;
+    private double hitRatio15m;
+    private long inserts;
+    private long evictions;
+    private long invalidations;
+    private long expirations;
+    private long offHeapHits;
+    private long loads;                 // Buscas no servidor que trouxeram a OS
+    private long loadFailures;          // Buscas no servidor que falharam ou não encontraram a OS
+    private double averageLoadMillis;
+    private LatencySummary lookupLatency;
+    private LatencySummary fetchLatency;
+}
@@ -0,0 +1,103 @@
+package org.example.utils.common.stats;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Histograma de latências em nanossegundos com baldes log-lineares (estilo HdrHistogram simplificado).
+ *
+ * Cada potência de 2 é dividida em 16 sub-baldes, então o percentil informado tem erro relativo de no máximo
+ * 1/16 (~6%), com memória fixa (960 contadores) e registro sem lock, que pode ser chamado de várias threads.
+ * Cada balde é um LongAdder: as latências se concentram em poucos baldes, que seriam disputados por todas as threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / n;
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    // Limite superior do balde que contém o percentil pedido (0 < percentile <= 100)
+    public long percentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public LatencySummary summary() {
+        return new LatencySummary(count(), toMicros(meanNanos()), toMicros(percentileNanos(50)),
+                toMicros(percentileNanos(90)), toMicros(percentileNanos(99)), toMicros(percentileNanos(99.9)),
+                toMicros(maxNanos()));
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
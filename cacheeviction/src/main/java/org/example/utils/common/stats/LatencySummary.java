@@ -0,0 +1,27 @@
+package org.example.utils.common.stats;
+
+import org.example.utils.JsonSerializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resumo de um LatencyHistogram em microssegundos, enviado no STATS
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencySummary implements JsonSerializable {
+    private long count;
+    private double meanMicros;
+    private double p50Micros;
+    private double p90Micros;
+    private double p99Micros;
+    private double p999Micros;
+    private double maxMicros;
+
+    @Override
+    public String toString() {
+        return String.format("n=%d média=%.1fµs p50=%.1fµs p90=%.1fµs p99=%.1fµs p99.9=%.1fµs máx=%.1fµs",
+                count, meanMicros, p50Micros, p90Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
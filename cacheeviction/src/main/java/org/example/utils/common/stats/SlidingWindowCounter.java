@@ -0,0 +1,82 @@
+package org.example.utils.common.stats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Conta HITs e MISSes em fatias de 1 segundo num anel, permitindo calcular a taxa de acerto dos últimos
+ * N segundos (1, 5 e 15 minutos, por exemplo) sem guardar cada evento.
+ *
+ * Cada fatia tem os próprios LongAdder, então as threads que registram no mesmo segundo não disputam um
+ * contador. Quando o anel dá a volta a fatia é trocada por uma nova (CAS na referência), e não zerada: um
+ * incremento atrasado só pode cair na fatia de uma volta anterior, que já saiu da janela.
+ */
+public class SlidingWindowCounter {
+    private final int slots;
+    private final AtomicReferenceArray<Slot> ring;
+    private final long origin = System.nanoTime();
+
+    public SlidingWindowCounter(int maxWindowSeconds) {
+        if (maxWindowSeconds <= 0) {
+            throw new IllegalArgumentException("A janela deve ser positiva: " + maxWindowSeconds);
+        }
+        this.slots = maxWindowSeconds;
+        this.ring = new AtomicReferenceArray<>(slots);
+    }
+
+    public void record(boolean hit) {
+        long second = currentSecond();
+        int index = (int) (second % slots);
+
+        Slot slot = ring.get(index);
+        while (slot == null || slot.epoch < second) { // Fatia de uma volta anterior (ou ainda não usada)
+            Slot fresh = new Slot(second);
+            if (ring.compareAndSet(index, slot, fresh)) {
+                slot = fresh;
+            } else {
+                slot = ring.get(index);
+            }
+        }
+        if (slot.epoch != second) { // Thread que parou mais de uma volta inteira: o segundo já saiu da janela
+            return;
+        }
+
+        if (hit) {
+            slot.hits.increment();
+        } else {
+            slot.misses.increment();
+        }
+    }
+
+    // Taxa de acerto dos últimos windowSeconds segundos (limitado ao tamanho do anel); 0 se não houve acessos
+    public double hitRatio(int windowSeconds) {
+        long now = currentSecond();
+        long oldest = now - Math.min(windowSeconds, slots) + 1;
+        long h = 0;
+        long m = 0;
+
+        for (int i = 0; i < slots; i++) {
+            Slot slot = ring.get(i);
+            if (slot != null && slot.epoch >= oldest && slot.epoch <= now) {
+                h += slot.hits.sum();
+                m += slot.misses.sum();
+            }
+        }
+
+        return h + m == 0 ? 0.0 : (double) h / (h + m);
+    }
+
+    private long currentSecond() {
+        return (System.nanoTime() - origin) / 1_000_000_000L;
+    }
+
+    private static final class Slot {
+        final long epoch;   // Segundo a que a fatia pertence
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
+        Slot(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
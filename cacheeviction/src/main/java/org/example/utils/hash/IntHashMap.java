@@ -0,0 +1,165 @@
+package org.example.utils.hash;
+
+import java.util.Arrays;
+
+/*
+ * A IntHashMap é uma tabela hash de endereçamento aberto (sondagem linear) com chaves int primitivas.
+ * Diferente do HashMap<Integer, V>, ela não cria objetos Integer para as chaves nem nós de entrada,
+ * então cada busca é apenas um cálculo de hash e alguns acessos a arrays contíguos.
+ *
+ * Valores nulos não são permitidos: uma posição com valor nulo é considerada vazia.
+ * A remoção usa deslocamento para trás (backward shift), então a tabela nunca acumula lápides.
+ */
+
+public class IntHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntHashMap não aceita valores nulos");
+        }
+
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+
+        V old = (V) values[i];
+        shiftBack(i);
+        size--;
+
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private int indexOf(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Fecha o buraco deixado pela remoção puxando para trás os elementos do mesmo cluster
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+
+            int ideal = hash(keys[i]) & mask;
+            // Só move se a posição ideal do elemento não estiver entre o buraco e a posição atual
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, MIN_CAPACITY) - 1) << 1;
+        return Math.max(capacity, MIN_CAPACITY);
+    }
+
+    // Espalha os bits da chave (códigos sequenciais colidiriam em clusters longos sem isso)
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.utils.hash;
+
+import java.util.Arrays;
+
+/*
+ * Versão da IntHashMap com valores long primitivos: nem a chave nem o valor viram objetos,
+ * então milhões de entradas custam apenas três arrays contíguos no heap.
+ * Usada como índice do OffHeapStore (código -> endereço do registro fora do heap).
+ */
+
+public class IntLongHashMap {
+    public static final long MISSING = Long.MIN_VALUE;  // Retornado quando a chave não existe
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public IntLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        allocate(Math.max(Integer.highestOneBit(Math.max(needed, MIN_CAPACITY) - 1) << 1, MIN_CAPACITY));
+    }
+
+    public long get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? MISSING : values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public long put(int key, long value) {
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                long old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+
+        return MISSING;
+    }
+
+    public long remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return MISSING;
+        }
+
+        long old = values[i];
+        shiftBack(i);
+        size--;
+
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares (mesma sondagem linear e remoção por deslocamento da IntHashMap)
+
+    private int indexOf(int key) {
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) {
+                break;
+            }
+
+            int ideal = hash(keys[i]) & mask;
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        used[hole] = false;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(newCapacity);
+
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (oldUsed[j]) {
+                int i = hash(oldKeys[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.utils.index;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+
+/*
+ * Índice ordenado por código das ordens de serviço do Servidor. O Servidor só conversa com esta interface, e a
+ * estrutura por trás (AVL, AVL persistente, B+tree, skip list) é escolhida na inicialização (OrderIndexType).
+ *
+ * Toda implementação precisa aceitar leituras concorrentes com as escritas. As escritas do Servidor já chegam
+ * serializadas (mesma ordem no índice e no WAL), mas o índice não deve depender disso para ficar consistente.
+ */
+
+public interface OrderIndex extends Iterable<OrderService> {
+
+    // Uma visão ordenada e imutável do índice, usada no checkpoint
+    interface View extends Iterable<OrderService> {
+        int size();
+    }
+
+    void insert(OrderService data) throws NodeAlreadyExistsException;
+
+    OrderService search(int codigo) throws NodeNotFoundException;
+
+    void alter(OrderService ordemServico) throws NodeNotFoundException;
+
+    // Altera várias OS de uma vez. Retorna os códigos que não existem no índice
+    List<Integer> alterAll(List<OrderService> ordens);
+
+    void remove(int codigo) throws InvalidOperationException;
+
+    // Todas as OS em ordem de código
+    List<OrderService> list();
+
+    // Até 'limit' OS com código em [from, to], em ordem de código
+    List<OrderService> listRange(int from, int to, int limit);
+
+    int getQuantityRecords();
+
+    // Maior código presente, ou -1 se o índice estiver vazio
+    int highestCode();
+
+    // Substitui o conteúdo pelas OS de 'sorted' (em ordem estritamente crescente de código)
+    void load(OrderService[] sorted);
+
+    String getName();
+
+    // Cópia ordenada do conteúdo atual. Estruturas persistentes devolvem a própria versão em O(1);
+    // as demais copiam, então quem chama deve impedir escritas durante a chamada se precisar de um instante exato
+    default View snapshot() {
+        List<OrderService> copy = list();
+        return new View() {
+            @Override
+            public int size() {
+                return copy.size();
+            }
+
+            @Override
+            public Iterator<OrderService> iterator() {
+                return copy.iterator();
+            }
+        };
+    }
+
+    @Override
+    default Iterator<OrderService> iterator() {
+        return list().iterator();
+    }
+
+    // Mesma validação para todas as cargas em lote
+    static void checkSorted(OrderService[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1].getCode() >= sorted[i].getCode()) {
+                throw new IllegalArgumentException("As OS precisam estar em ordem crescente de código: "
+                        + sorted[i - 1].getCode() + " antes de " + sorted[i].getCode());
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.utils.index;
+
+import org.example.utils.tree.BPlusTree;
+import org.example.utils.tree.PersistentTreeAVL;
+import org.example.utils.tree.TreeAVL;
+
+/*
+ * Estruturas disponíveis para o índice do Servidor (-Dserver.index=...):
+ *  - AVL: TreeAVL, nós mutáveis com buscas otimistas (StampedLock);
+ *  - PERSISTENT_AVL: PersistentTreeAVL, cópia de caminho e snapshots O(1) para listagens e checkpoints (padrão);
+ *  - BPLUS_TREE: B+tree com chaves int em vetores primitivos por nó, boa localidade de cache com milhões de OS;
+ *  - SKIP_LIST: ConcurrentSkipListMap, sem locks nas leituras nem nas escritas.
+ */
+
+public enum OrderIndexType {
+    AVL, PERSISTENT_AVL, BPLUS_TREE, SKIP_LIST;
+
+    public OrderIndex create() {
+        return switch (this) {
+            case AVL -> new TreeAVL();
+            case PERSISTENT_AVL -> new PersistentTreeAVL();
+            case BPLUS_TREE -> new BPlusTree();
+            case SKIP_LIST -> new SkipListIndex();
+        };
+    }
+
+    // Aceita o nome com ou sem separadores, ex.: "avl", "persistent-avl", "bplustree", "skip_list"
+    public static OrderIndexType fromName(String name) {
+        String normalized = name.replaceAll("[-_+\\s]", "").toUpperCase();
+        if (normalized.equals("BTREE") || normalized.equals("BPTREE")) {
+            return BPLUS_TREE;
+        }
+        for (OrderIndexType type : values()) {
+            if (type.name().replace("_", "").equals(normalized)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Índice desconhecido: " + name);
+    }
+}
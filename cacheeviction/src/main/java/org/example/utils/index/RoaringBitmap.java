@@ -0,0 +1,346 @@
+package org.example.utils.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * Conjunto de inteiros comprimido no estilo "roaring bitmap", usado nas listas de códigos do índice de texto.
+ *
+ * Os 16 bits altos do código escolhem um contêiner e os 16 baixos vão dentro dele. Cada contêiner cobre 65536
+ * códigos seguidos e tem uma de duas formas, trocada conforme a quantidade:
+ *  - ArrayContainer: vetor ordenado de char (2 bytes por código), enquanto tiver até 4096 códigos;
+ *  - BitmapContainer: 1024 longs (8 KB fixos), um bit por código possível, acima disso.
+ * Um token raro custa poucos bytes e um token comum vira um bitmap denso, sem nunca passar de 8 KB por faixa.
+ * A interseção entre listas é feita contêiner a contêiner (AND de palavras quando os dois são bitmaps).
+ *
+ * Os códigos são percorridos em ordem crescente sem sinal; os códigos de OS não são negativos, então é a ordem
+ * de código. Não é thread-safe: quem usa (TextIndex) sincroniza.
+ */
+
+public class RoaringBitmap {
+    private static final int ARRAY_MAX = 4096;  // Acima disso o bitmap (8 KB) ocupa menos que o vetor
+
+    private char[] keys = new char[4];          // 16 bits altos, ordenados
+    private Container[] containers = new Container[4];
+    private int count;                          // Contêineres em uso
+    private int cardinality;
+
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        int pos = Arrays.binarySearch(keys, 0, count, high);
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                containers = Arrays.copyOf(containers, count * 2);
+            }
+            System.arraycopy(keys, pos, keys, pos + 1, count - pos);
+            System.arraycopy(containers, pos, containers, pos + 1, count - pos);
+            keys[pos] = high;
+            containers[pos] = new ArrayContainer();
+            count++;
+        }
+        int before = containers[pos].cardinality;
+        containers[pos] = containers[pos].add((char) value);
+        if (containers[pos].cardinality == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int pos = Arrays.binarySearch(keys, 0, count, (char) (value >>> 16));
+        if (pos < 0) {
+            return false;
+        }
+        int before = containers[pos].cardinality;
+        containers[pos] = containers[pos].remove((char) value);
+        if (containers[pos].cardinality == before) {
+            return false;
+        }
+        cardinality--;
+        if (containers[pos].cardinality == 0) { // Contêiner vazio sai
+            System.arraycopy(keys, pos + 1, keys, pos, count - pos - 1);
+            System.arraycopy(containers, pos + 1, containers, pos, count - pos - 1);
+            containers[--count] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int pos = Arrays.binarySearch(keys, 0, count, (char) (value >>> 16));
+        return pos >= 0 && containers[pos].contains((char) value);
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    // Bytes ocupados pelos contêineres (aproximado, sem cabeçalhos de objeto)
+    public long getSizeInBytes() {
+        long bytes = keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < count; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // Interseção, sem alterar nenhum dos dois
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0, j = 0;
+        while (i < a.count && j < b.count) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.append(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        for (int i = 0; i < count; i++) {
+            copy.append(keys[i], containers[i].copy());
+        }
+        return copy;
+    }
+
+    // Percorre os códigos em ordem crescente
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] next = {0};
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    private void append(char high, Container container) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            containers = Arrays.copyOf(containers, count * 2);
+        }
+        keys[count] = high;
+        containers[count++] = container;
+        cardinality += container.cardinality;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Contêineres (add e remove devolvem o contêiner a usar dali em diante, que pode ter mudado de forma)
+
+    private abstract static class Container {
+        int cardinality;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int pos = Arrays.binarySearch(values, 0, cardinality, value);
+            if (pos >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) { // Vai passar do limite: vira bitmap
+                return toBitmap().add(value);
+            }
+            pos = -pos - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+            values[pos] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int pos = Arrays.binarySearch(values, 0, cardinality, value);
+            if (pos >= 0) {
+                System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int size = 0;
+            if (other instanceof ArrayContainer array) { // Intercalação dos dois vetores ordenados
+                int i = 0, j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[size++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[size++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, size);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return values.length * 2L;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | 1L << value;
+            if (words[value >>> 6] != before) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (words[value >>> 6] != before) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this; // Ficou esparso: volta a ser vetor
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & bitmap.words[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return words.length * 8L;
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int size = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[size++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, size);
+        }
+    }
+}
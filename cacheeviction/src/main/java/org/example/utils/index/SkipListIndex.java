@@ -0,0 +1,119 @@
+package org.example.utils.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+
+/*
+ * Índice sobre um ConcurrentSkipListMap: buscas, escritas e percursos sem lock nenhum.
+ *
+ * O size() do mapa é O(n), então a quantidade fica num contador próprio. Listagens e faixas são fracamente
+ * consistentes: refletem as escritas que aconteceram antes de começar e podem ou não ver as concorrentes.
+ */
+
+public class SkipListIndex implements OrderIndex {
+    private volatile ConcurrentSkipListMap<Integer, OrderService> map = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public void insert(OrderService data) throws NodeAlreadyExistsException {
+        if (map.putIfAbsent(data.getCode(), data) != null) {
+            throw new NodeAlreadyExistsException("O nó com o código " + data.getCode() + " já existe na árvore.");
+        }
+        size.incrementAndGet();
+    }
+
+    @Override
+    public OrderService search(int codigo) throws NodeNotFoundException {
+        OrderService found = map.get(codigo);
+        if (found == null) {
+            throw new NodeNotFoundException("O nó com o código " + codigo + " não existe na árvore.");
+        }
+        return found;
+    }
+
+    @Override
+    public void alter(OrderService ordemServico) throws NodeNotFoundException {
+        if (map.replace(ordemServico.getCode(), ordemServico) == null) {
+            throw new NodeNotFoundException("O nó com o código " + ordemServico.getCode() + " não existe na árvore.");
+        }
+    }
+
+    @Override
+    public List<Integer> alterAll(List<OrderService> ordens) {
+        List<Integer> notFound = new ArrayList<>();
+        for (OrderService ordemServico : ordens) {
+            if (map.replace(ordemServico.getCode(), ordemServico) == null) {
+                notFound.add(ordemServico.getCode());
+            }
+        }
+        return notFound;
+    }
+
+    @Override
+    public void remove(int codigo) throws InvalidOperationException {
+        if (map.remove(codigo) == null) {
+            throw new InvalidOperationException("Árvore vazia ou nó não encontrado.");
+        }
+        size.decrementAndGet();
+    }
+
+    @Override
+    public List<OrderService> list() {
+        return new ArrayList<>(map.values());
+    }
+
+    @Override
+    public List<OrderService> listRange(int from, int to, int limit) {
+        List<OrderService> range = new ArrayList<>();
+        if (from > to) {
+            return range;
+        }
+        Iterator<OrderService> iterator = map.subMap(from, true, to, true).values().iterator();
+        while (iterator.hasNext() && range.size() < limit) {
+            range.add(iterator.next());
+        }
+        return range;
+    }
+
+    @Override
+    public int getQuantityRecords() {
+        return size.get();
+    }
+
+    @Override
+    public int highestCode() {
+        Map.Entry<Integer, OrderService> last = map.lastEntry();
+        return last == null ? -1 : last.getKey();
+    }
+
+    // Monta um mapa novo (inserções sempre no fim, sem busca) e publica de uma vez
+    @Override
+    public synchronized void load(OrderService[] sorted) {
+        OrderIndex.checkSorted(sorted);
+        ConcurrentSkipListMap<Integer, OrderService> loaded = new ConcurrentSkipListMap<>();
+        for (OrderService order : sorted) {
+            loaded.put(order.getCode(), order);
+        }
+        map = loaded;
+        size.set(sorted.length);
+    }
+
+    @Override
+    public Iterator<OrderService> iterator() {
+        return map.values().iterator();
+    }
+
+    @Override
+    public String getName() {
+        return "skip-list";
+    }
+}
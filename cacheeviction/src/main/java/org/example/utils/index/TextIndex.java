@@ -0,0 +1,178 @@
+package org.example.utils.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Pattern;
+
+import org.example.utils.common.OrderService;
+
+/*
+ * Índice invertido do nome e da descrição das OS: cada termo aponta para o conjunto de códigos que o contém,
+ * guardado num RoaringBitmap. Uma busca com vários termos devolve as OS que têm todos eles (interseção das
+ * listas, começando pela menor), sem percorrer a árvore.
+ *
+ * Os termos são as palavras do texto em minúsculas e sem acento ("Manutenção" e "manutencao" são o mesmo).
+ * O índice é atualizado junto com a árvore em cada cadastro, alteração e remoção; uma alteração só mexe nos
+ * termos que entraram ou saíram.
+ *
+ * Concorrência: StampedLock, buscas em modo leitura e atualizações em modo escrita.
+ */
+
+public class TextIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<String, RoaringBitmap> postings = new HashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    public void add(OrderService order) {
+        long stamp = lock.writeLock();
+        try {
+            for (String term : terms(order)) {
+                postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(order.getCode());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addAll(OrderService[] orders) {
+        long stamp = lock.writeLock();
+        try {
+            for (OrderService order : orders) {
+                for (String term : terms(order)) {
+                    postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(order.getCode());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            postings.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(OrderService order) {
+        long stamp = lock.writeLock();
+        try {
+            for (String term : terms(order)) {
+                removeTerm(term, order.getCode());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Troca a versão antiga da OS pela nova mexendo só nos termos que mudaram
+    public void replace(OrderService previous, OrderService updated) {
+        Set<String> before = terms(previous);
+        Set<String> after = terms(updated);
+        long stamp = lock.writeLock();
+        try {
+            for (String term : before) {
+                if (!after.contains(term)) {
+                    removeTerm(term, previous.getCode());
+                }
+            }
+            for (String term : after) {
+                if (!before.contains(term)) {
+                    postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(updated.getCode());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Códigos das OS que têm todos os termos da consulta, em ordem crescente. Consulta sem termos não encontra nada
+    public int[] search(String query) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+
+        long stamp = lock.readLock();
+        try {
+            List<RoaringBitmap> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                RoaringBitmap list = postings.get(term);
+                if (list == null) {
+                    return new int[0]; // Um termo que nenhuma OS tem: a interseção é vazia
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+
+            RoaringBitmap result = lists.get(0);
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result = RoaringBitmap.and(result, lists.get(i));
+            }
+            return result.toArray();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Confere se a OS ainda tem todos os termos da consulta (a OS pode ter mudado depois da busca no índice)
+    public static boolean matches(OrderService order, String query) {
+        return terms(order).containsAll(tokenize(query));
+    }
+
+    public int getTermCount() {
+        long stamp = lock.readLock();
+        try {
+            return postings.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getSizeInBytes() {
+        long stamp = lock.readLock();
+        try {
+            return postings.values().stream().mapToLong(RoaringBitmap::getSizeInBytes).sum();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        Arrays.stream(SEPARATORS.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .forEach(terms::add);
+        return terms;
+    }
+
+    private static Set<String> terms(OrderService order) {
+        Set<String> terms = tokenize(order.getName());
+        terms.addAll(tokenize(order.getDescription()));
+        return terms;
+    }
+
+    private void removeTerm(String term, int code) {
+        RoaringBitmap list = postings.get(term);
+        if (list != null && list.remove(code) && list.isEmpty()) {
+            postings.remove(term); // Termo sem nenhuma OS sai do índice
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.utils.listsAA;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.ElementNotFoundException;
+import org.example.utils.hash.IntHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A LinkedListHashAA é a mesma lista duplamente encadeada autoajustável (Move-To-Front) da LinkedListAAMF,
+ * mas com um índice hash (código -> nó) ao lado da lista.
+ * Na LinkedListAAMF toda busca, alteração e remoção percorre a lista nó a nó, custando O(n).
+ * Aqui o índice encontra o nó direto e, como a lista é duplamente encadeada, o nó pode ser desligado
+ * ou movido para o início sem percorrer nada: busca, move-to-front, alteração, remoção e remoção do último são O(1).
+ *
+ * Como o índice é por código, a lista não guarda dois elementos com o mesmo código:
+ * inserir um código que já existe substitui o dado e move o nó para a posição de inserção.
+ */
+
+public class LinkedListHashAA {
+    static class Node {
+        OrderService data;
+        Node next;
+        Node prev;
+
+        Node(OrderService data) {
+            this.data = data;
+            this.next = null;
+            this.prev = null;
+        }
+    }
+
+    private Node head;
+    private Node tail;
+    private final IntHashMap<Node> index;
+
+    public LinkedListHashAA() {
+        this(16);
+    }
+
+    public LinkedListHashAA(int expectedSize) {
+        head = null;
+        tail = null;
+        index = new IntHashMap<>(expectedSize);
+    }
+
+    public void insertFirst(OrderService e) {
+        Node node = index.get(e.getCode());
+
+        if (node != null) { // Código já existe: atualiza e move para o início
+            node.data = e;
+            moveToFront(node);
+            return;
+        }
+
+        node = new Node(e);
+        linkFirst(node);
+        index.put(e.getCode(), node);
+    }
+
+    public void insertLast(OrderService e) {
+        Node node = index.get(e.getCode());
+
+        if (node != null) { // Código já existe: atualiza e move para o final
+            node.data = e;
+            unlink(node);
+            linkLast(node);
+            return;
+        }
+
+        node = new Node(e);
+        linkLast(node);
+        index.put(e.getCode(), node);
+    }
+
+    public OrderService peekFirst() throws ElementNotFoundException {
+        if (head == null) {
+            throw new ElementNotFoundException("Lista vazia");
+        }
+
+        return head.data;
+    }
+
+    public OrderService peekLast() throws ElementNotFoundException {
+        if (tail == null) {
+            throw new ElementNotFoundException("Lista vazia");
+        }
+
+        return tail.data;
+    }
+
+    public OrderService removeFirst() throws ElementNotFoundException {
+        if (head == null) {
+            throw new ElementNotFoundException("Lista vazia");
+        }
+
+        return removeNode(head);
+    }
+
+    public OrderService removeLast() throws ElementNotFoundException {
+        if (tail == null) {
+            throw new ElementNotFoundException("Lista vazia");
+        }
+
+        return removeNode(tail);
+    }
+
+    public OrderService remove(int code) throws ElementNotFoundException {
+        Node node = index.get(code);
+
+        if (node == null) {
+            throw new ElementNotFoundException("Elemento não encontrado");
+        }
+
+        return removeNode(node);
+    }
+
+    public OrderService search(int code) throws ElementNotFoundException {
+        Node node = index.get(code);
+
+        if (node == null) {
+            throw new ElementNotFoundException("Elemento não encontrado");
+        }
+
+        moveToFront(node);
+
+        return node.data;
+    }
+
+    public OrderService search(OrderService e) throws ElementNotFoundException {
+        return search(e.getCode());
+    }
+
+    // Consulta sem autoajuste (não move o nó para o início)
+    public OrderService get(int code) {
+        Node node = index.get(code);
+        return node == null ? null : node.data;
+    }
+
+    public boolean contains(int code) {
+        return index.containsKey(code);
+    }
+
+    public void alter(OrderService e) throws ElementNotFoundException {
+        Node node = index.get(e.getCode());
+
+        if (node == null) {
+            throw new ElementNotFoundException("Elemento não encontrado");
+        }
+
+        node.data = e; // Altera o valor do nó
+    }
+
+    public List<OrderService> listAll() throws ElementNotFoundException {
+        if (head == null) {
+            throw new ElementNotFoundException("Lista vazia");
+        }
+
+        List<OrderService> list = new ArrayList<>(size());
+        Node current = head;
+
+        while (current != null) {
+            list.add(current.data);
+            current = current.next;
+        }
+
+        return list;
+    }
+
+    // Lista no máximo 'limit' elementos a partir do início, sem lançar exceção se a lista estiver vazia
+    public List<OrderService> listFirst(int limit) {
+        List<OrderService> list = new ArrayList<>(Math.min(limit, size()));
+        Node current = head;
+
+        while (current != null && list.size() < limit) {
+            list.add(current.data);
+            current = current.next;
+        }
+
+        return list;
+    }
+
+    public void show() {
+        show(Integer.MAX_VALUE);
+    }
+
+    // Mostra no máximo 'limit' elementos a partir do início (listas grandes poluiriam o console)
+    public void show(int limit) {
+        if (head == null) {
+            System.out.println("Lista vazia");
+            return;
+        }
+
+        Node current = head;
+        int i = 0; // Índice do elemento na lista
+
+        while (current != null && i < limit) {
+            OrderService os = current.data; // Acessa os dados da ordem de serviço
+            System.out.printf("%d: [Código: %d, Nome: %s, Descrição: %s, Hora: %s]%n", i, os.getCode(), os.getName(), os.getDescription(), os.getRequestTime());
+
+            current = current.next; // Move para o próximo nó
+            i++;
+        }
+
+        if (current != null) {
+            System.out.printf("... mais %d elementos%n", size() - i);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Manipulação dos ponteiros
+
+    private void moveToFront(Node node) {
+        if (node == head) {
+            return;
+        }
+
+        unlink(node);
+        linkFirst(node);
+    }
+
+    private OrderService removeNode(Node node) {
+        unlink(node);
+        index.remove(node.data.getCode());
+        return node.data;
+    }
+
+    private void linkFirst(Node node) {
+        node.prev = null;
+        node.next = head;
+
+        if (head == null) {
+            tail = node;
+        } else {
+            head.prev = node;
+        }
+
+        head = node;
+    }
+
+    private void linkLast(Node node) {
+        node.next = null;
+        node.prev = tail;
+
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+
+        node.prev = null;
+        node.next = null;
+    }
+}
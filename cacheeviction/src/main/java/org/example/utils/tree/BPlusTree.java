@@ -0,0 +1,488 @@
+package org.example.utils.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+import org.example.utils.index.OrderIndex;
+
+/*
+ * B+tree de ordens de serviço com chaves int em vetores primitivos.
+ *
+ * Cada nó guarda até MAX_KEYS chaves num int[] contíguo: a busca dentro do nó é uma busca binária numa mesma
+ * linha de cache (ou poucas), em vez de um salto de ponteiro por nível como na AVL. Com 64 chaves por nó, um
+ * milhão de OS cabem em 4 níveis. As OS ficam só nas folhas, que são encadeadas em ordem: listagens e faixas
+ * descem uma vez até a primeira folha e depois andam pela lista, sem pilha.
+ *
+ * Todo nó, menos a raiz, mantém pelo menos MIN_KEYS chaves: a remoção pega emprestado de um irmão ou junta
+ * os dois. Os vetores têm uma posição a mais para o nó estourar antes de ser dividido.
+ *
+ * Concorrência: StampedLock, leituras em modo leitura (concorrem entre si) e escritas em modo escrita.
+ */
+public class BPlusTree implements OrderIndex {
+    private static final int MAX_KEYS = 64;
+    private static final int MIN_KEYS = MAX_KEYS / 2;
+
+    private abstract static class Node {
+        final int[] keys = new int[MAX_KEYS + 1];
+        int count;
+    }
+
+    private static final class Leaf extends Node {
+        final OrderService[] values = new OrderService[MAX_KEYS + 1];
+        Leaf next;                      // Próxima folha em ordem de código
+    }
+
+    // keys[i] separa children[i] (códigos menores) de children[i + 1] (códigos maiores ou iguais)
+    private static final class Inner extends Node {
+        final Node[] children = new Node[MAX_KEYS + 2];
+    }
+
+    // Resultado da divisão de um nó: a chave que sobe e o novo irmão da direita
+    private record Split(int key, Node right) {
+    }
+
+    private Node root = new Leaf();
+    private volatile int size;
+    private final StampedLock lock = new StampedLock();
+
+    // --------------------------------------------------------------------------------
+    // Leituras
+
+    @Override
+    public OrderService search(int codigo) throws NodeNotFoundException {
+        long stamp = lock.readLock();
+        try {
+            Leaf leaf = findLeaf(codigo);
+            int pos = Arrays.binarySearch(leaf.keys, 0, leaf.count, codigo);
+            if (pos < 0) {
+                throw new NodeNotFoundException("O nó com o código " + codigo + " não existe na árvore.");
+            }
+            return leaf.values[pos];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<OrderService> list() {
+        long stamp = lock.readLock();
+        try {
+            List<OrderService> list = new ArrayList<>(size);
+            for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+                list.addAll(Arrays.asList(leaf.values).subList(0, leaf.count));
+            }
+            return list;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<OrderService> listRange(int from, int to, int limit) {
+        List<OrderService> range = new ArrayList<>();
+        if (from > to) {
+            return range;
+        }
+        long stamp = lock.readLock();
+        try {
+            Leaf leaf = findLeaf(from);
+            int pos = lowerBound(leaf.keys, leaf.count, from);
+            while (leaf != null && range.size() < limit) {
+                if (pos == leaf.count) {
+                    leaf = leaf.next;
+                    pos = 0;
+                    continue;
+                }
+                if (leaf.keys[pos] > to) {
+                    break;
+                }
+                range.add(leaf.values[pos++]);
+            }
+            return range;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int getQuantityRecords() {
+        return size;
+    }
+
+    @Override
+    public int highestCode() {
+        long stamp = lock.readLock();
+        try {
+            Node node = root;
+            while (node instanceof Inner inner) {
+                node = inner.children[inner.count];
+            }
+            return node.count == 0 ? -1 : node.keys[node.count - 1];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int getHeight() {
+        long stamp = lock.readLock();
+        try {
+            int height = 0;
+            for (Node node = root; node instanceof Inner inner; node = inner.children[0]) {
+                height++;
+            }
+            return height;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "b+tree";
+    }
+
+    // --------------------------------------------------------------------------------
+    // Escritas
+
+    @Override
+    public void insert(OrderService data) throws NodeAlreadyExistsException {
+        long stamp = lock.writeLock();
+        try {
+            Split split = insert(root, data);
+            if (split != null) { // A raiz dividiu: a árvore cresce um nível
+                Inner newRoot = new Inner();
+                newRoot.keys[0] = split.key();
+                newRoot.children[0] = root;
+                newRoot.children[1] = split.right();
+                newRoot.count = 1;
+                root = newRoot;
+            }
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(int codigo) throws InvalidOperationException {
+        long stamp = lock.writeLock();
+        try {
+            remove(root, codigo);
+            if (root instanceof Inner inner && inner.count == 0) { // A raiz ficou com um filho só
+                root = inner.children[0];
+            }
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void alter(OrderService ordemServico) throws NodeNotFoundException {
+        long stamp = lock.writeLock();
+        try {
+            if (!replace(ordemServico)) {
+                throw new NodeNotFoundException("O nó com o código " + ordemServico.getCode() + " não existe na árvore.");
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Altera várias OS com uma única aquisição do lock de escrita. Retorna os códigos que não existem na árvore
+    @Override
+    public List<Integer> alterAll(List<OrderService> ordens) {
+        List<Integer> notFound = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (OrderService ordemServico : ordens) {
+                if (!replace(ordemServico)) {
+                    notFound.add(ordemServico.getCode());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return notFound;
+    }
+
+    // Monta a árvore de baixo para cima em O(n): folhas cheias e distribuídas por igual (todas com pelo menos
+    // MIN_KEYS), depois cada nível interno sobre o anterior
+    @Override
+    public void load(OrderService[] sorted) {
+        OrderIndex.checkSorted(sorted);
+
+        int leaves = Math.max(1, (sorted.length + MAX_KEYS - 1) / MAX_KEYS);
+        Node[] level = new Node[leaves];
+        int[] mins = new int[leaves];       // Menor código de cada nó do nível
+        Leaf previous = null;
+        for (int i = 0, from = 0; i < leaves; i++) {
+            int to = (int) ((long) sorted.length * (i + 1) / leaves);
+            Leaf leaf = new Leaf();
+            for (int j = from; j < to; j++) {
+                leaf.keys[j - from] = sorted[j].getCode();
+                leaf.values[j - from] = sorted[j];
+            }
+            leaf.count = to - from;
+            if (previous != null) {
+                previous.next = leaf;
+            }
+            mins[i] = leaf.count == 0 ? 0 : leaf.keys[0];
+            level[i] = previous = leaf;
+            from = to;
+        }
+
+        while (level.length > 1) {
+            int parents = (level.length + MAX_KEYS) / (MAX_KEYS + 1);
+            Node[] upper = new Node[parents];
+            int[] upperMins = new int[parents];
+            for (int i = 0, from = 0; i < parents; i++) {
+                int to = (int) ((long) level.length * (i + 1) / parents);
+                Inner inner = new Inner();
+                for (int j = from; j < to; j++) {
+                    inner.children[j - from] = level[j];
+                    if (j > from) {
+                        inner.keys[j - from - 1] = mins[j];
+                    }
+                }
+                inner.count = to - from - 1;
+                upper[i] = inner;
+                upperMins[i] = mins[from];
+                from = to;
+            }
+            level = upper;
+            mins = upperMins;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            root = level[0];
+            size = sorted.length;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    private Leaf findLeaf(int codigo) {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[upperBound(inner.keys, inner.count, codigo)];
+        }
+        return (Leaf) node;
+    }
+
+    private Leaf firstLeaf() {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[0];
+        }
+        return (Leaf) node;
+    }
+
+    private boolean replace(OrderService data) {
+        Leaf leaf = findLeaf(data.getCode());
+        int pos = Arrays.binarySearch(leaf.keys, 0, leaf.count, data.getCode());
+        if (pos < 0) {
+            return false;
+        }
+        leaf.values[pos] = data;
+        return true;
+    }
+
+    private Split insert(Node node, OrderService data) throws NodeAlreadyExistsException {
+        if (node instanceof Leaf leaf) {
+            int pos = Arrays.binarySearch(leaf.keys, 0, leaf.count, data.getCode());
+            if (pos >= 0) {
+                throw new NodeAlreadyExistsException("O nó com o código " + data.getCode() + " já existe na árvore.");
+            }
+            pos = -pos - 1;
+            System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.count - pos);
+            System.arraycopy(leaf.values, pos, leaf.values, pos + 1, leaf.count - pos);
+            leaf.keys[pos] = data.getCode();
+            leaf.values[pos] = data;
+            leaf.count++;
+            return leaf.count > MAX_KEYS ? splitLeaf(leaf) : null;
+        }
+
+        Inner inner = (Inner) node;
+        int index = upperBound(inner.keys, inner.count, data.getCode());
+        Split split = insert(inner.children[index], data);
+        if (split == null) {
+            return null;
+        }
+        System.arraycopy(inner.keys, index, inner.keys, index + 1, inner.count - index);
+        System.arraycopy(inner.children, index + 1, inner.children, index + 2, inner.count - index);
+        inner.keys[index] = split.key();
+        inner.children[index + 1] = split.right();
+        inner.count++;
+        return inner.count > MAX_KEYS ? splitInner(inner) : null;
+    }
+
+    private Split splitLeaf(Leaf leaf) {
+        int middle = leaf.count / 2;
+        Leaf right = new Leaf();
+        right.count = leaf.count - middle;
+        System.arraycopy(leaf.keys, middle, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, middle, right.values, 0, right.count);
+        Arrays.fill(leaf.values, middle, leaf.count, null);
+        leaf.count = middle;
+        right.next = leaf.next;
+        leaf.next = right;
+        return new Split(right.keys[0], right);
+    }
+
+    // A chave do meio sobe para o pai e não fica em nenhum dos dois lados
+    private Split splitInner(Inner inner) {
+        int middle = inner.count / 2;
+        Inner right = new Inner();
+        right.count = inner.count - middle - 1;
+        System.arraycopy(inner.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, middle + 1, right.children, 0, right.count + 1);
+        Arrays.fill(inner.children, middle + 1, inner.count + 1, null);
+        int key = inner.keys[middle];
+        inner.count = middle;
+        return new Split(key, right);
+    }
+
+    private void remove(Node node, int codigo) throws InvalidOperationException {
+        if (node instanceof Leaf leaf) {
+            int pos = Arrays.binarySearch(leaf.keys, 0, leaf.count, codigo);
+            if (pos < 0) {
+                throw new InvalidOperationException("Árvore vazia ou nó não encontrado.");
+            }
+            System.arraycopy(leaf.keys, pos + 1, leaf.keys, pos, leaf.count - pos - 1);
+            System.arraycopy(leaf.values, pos + 1, leaf.values, pos, leaf.count - pos - 1);
+            leaf.values[--leaf.count] = null;
+            return;
+        }
+
+        Inner inner = (Inner) node;
+        int index = upperBound(inner.keys, inner.count, codigo);
+        remove(inner.children[index], codigo);
+        if (inner.children[index].count < MIN_KEYS) {
+            rebalance(inner, index);
+        }
+    }
+
+    // O filho 'index' ficou abaixo do mínimo: pega uma chave de um irmão que tenha sobra, ou junta com um deles
+    private void rebalance(Inner parent, int index) {
+        Node child = parent.children[index];
+        Node left = index > 0 ? parent.children[index - 1] : null;
+        Node right = index < parent.count ? parent.children[index + 1] : null;
+
+        if (left != null && left.count > MIN_KEYS) {
+            borrowFromLeft(parent, index, left, child);
+        } else if (right != null && right.count > MIN_KEYS) {
+            borrowFromRight(parent, index, child, right);
+        } else if (left != null) {
+            merge(parent, index - 1, left, child);
+        } else {
+            merge(parent, index, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int index, Node left, Node child) {
+        System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+        if (child instanceof Leaf leaf) {
+            Leaf from = (Leaf) left;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            leaf.keys[0] = from.keys[from.count - 1];
+            leaf.values[0] = from.values[from.count - 1];
+            from.values[from.count - 1] = null;
+            parent.keys[index - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner from = (Inner) left;
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.count + 1);
+            inner.keys[0] = parent.keys[index - 1];
+            inner.children[0] = from.children[from.count];
+            from.children[from.count] = null;
+            parent.keys[index - 1] = from.keys[from.count - 1];
+        }
+        left.count--;
+        child.count++;
+    }
+
+    private void borrowFromRight(Inner parent, int index, Node child, Node right) {
+        if (child instanceof Leaf leaf) {
+            Leaf from = (Leaf) right;
+            leaf.keys[leaf.count] = from.keys[0];
+            leaf.values[leaf.count] = from.values[0];
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            System.arraycopy(from.values, 1, from.values, 0, from.count - 1);
+            from.values[from.count - 1] = null;
+            parent.keys[index] = from.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner from = (Inner) right;
+            inner.keys[inner.count] = parent.keys[index];
+            inner.children[inner.count + 1] = from.children[0];
+            parent.keys[index] = from.keys[0];
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            System.arraycopy(from.children, 1, from.children, 0, from.count);
+            from.children[from.count] = null;
+        }
+        right.count--;
+        child.count++;
+    }
+
+    // Junta children[separator + 1] em children[separator] e tira a chave separadora do pai
+    private void merge(Inner parent, int separator, Node left, Node right) {
+        if (left instanceof Leaf leaf) {
+            Leaf from = (Leaf) right;
+            System.arraycopy(from.keys, 0, leaf.keys, leaf.count, from.count);
+            System.arraycopy(from.values, 0, leaf.values, leaf.count, from.count);
+            leaf.count += from.count;
+            leaf.next = from.next;
+        } else {
+            Inner inner = (Inner) left;
+            Inner from = (Inner) right;
+            inner.keys[inner.count] = parent.keys[separator];
+            System.arraycopy(from.keys, 0, inner.keys, inner.count + 1, from.count);
+            System.arraycopy(from.children, 0, inner.children, inner.count + 1, from.count + 1);
+            inner.count += from.count + 1;
+        }
+
+        System.arraycopy(parent.keys, separator + 1, parent.keys, separator, parent.count - separator - 1);
+        System.arraycopy(parent.children, separator + 2, parent.children, separator + 1, parent.count - separator - 1);
+        parent.children[parent.count] = null;
+        parent.count--;
+    }
+
+    // Posição do primeiro código >= 'codigo'
+    private static int lowerBound(int[] keys, int count, int codigo) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < codigo) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Posição do primeiro código > 'codigo' (é o filho que pode conter 'codigo' num nó interno)
+    private static int upperBound(int[] keys, int count, int codigo) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= codigo) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,452 @@
+package org.example.utils.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.example.utils.common.OrderService;
+import org.example.utils.exceptions.InvalidOperationException;
+import org.example.utils.exceptions.NodeAlreadyExistsException;
+import org.example.utils.exceptions.NodeNotFoundException;
+import org.example.utils.index.OrderIndex;
+
+/*
+ * Árvore AVL persistente (imutável) de ordens de serviço.
+ *
+ * Os nós nunca são alterados depois de criados: uma inserção, remoção ou alteração copia apenas o caminho da
+ * raiz até o nó mexido (O(log n) nós, incluindo as rotações) e publica a nova versão numa única escrita volátil.
+ * As escritas são serializadas entre si, mas nunca bloqueiam as leituras.
+ *
+ * snapshot() devolve a versão atual em O(1): é só a referência da raiz. Uma listagem, um backup ou a replicação
+ * percorrem essa versão congelada sem lock nenhum, e ela continua consistente (nenhuma escrita feita depois
+ * aparece nela, nenhuma escrita feita antes falta) enquanto os escritores seguem publicando versões novas.
+ *
+ * Como na TreeAVL, cada nó guarda o tamanho da subárvore: quantidade O(1), rank e select O(log n).
+ */
+public class PersistentTreeAVL implements OrderIndex {
+
+    private static final class Node {
+        final OrderService data;
+        final Node left, right;
+        final int height;
+        final int size;                 // Quantidade de nós da subárvore
+
+        Node(OrderService data, Node left, Node right) {
+            this.data = data;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    // Uma versão imutável da árvore
+    public static final class Snapshot implements OrderIndex.View {
+        private final Node root;
+
+        private Snapshot(Node root) {
+            this.root = root;
+        }
+
+        public OrderService search(int codigo) throws NodeNotFoundException {
+            Node node = root;
+            while (node != null) {
+                if (codigo < node.data.getCode()) {
+                    node = node.left;
+                } else if (codigo > node.data.getCode()) {
+                    node = node.right;
+                } else {
+                    return node.data;
+                }
+            }
+            throw new NodeNotFoundException("O nó com o código " + codigo + " não existe na árvore.");
+        }
+
+        public boolean contains(int codigo) {
+            Node node = root;
+            while (node != null && node.data.getCode() != codigo) {
+                node = codigo < node.data.getCode() ? node.left : node.right;
+            }
+            return node != null;
+        }
+
+        // Em ordem de código
+        public List<OrderService> list() {
+            return list(0, Integer.MAX_VALUE);
+        }
+
+        // Até 'limit' OS em ordem de código a partir da posição 'offset', sem visitar as anteriores
+        public List<OrderService> list(int offset, int limit) {
+            List<OrderService> list = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+            Iterator<OrderService> iterator = iterator(offset);
+            while (iterator.hasNext() && list.size() < limit) {
+                list.add(iterator.next());
+            }
+            return list;
+        }
+
+        // Quantidade de OS com código menor que 'codigo' (a posição que ele tem ou teria na listagem)
+        public int rank(int codigo) {
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                if (codigo <= node.data.getCode()) {
+                    node = node.left;
+                } else {
+                    rank += PersistentTreeAVL.size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return rank;
+        }
+
+        // A k-ésima OS em ordem de código (k começa em 0)
+        public OrderService select(int k) throws NodeNotFoundException {
+            Node node = root;
+            while (node != null) {
+                int leftSize = PersistentTreeAVL.size(node.left);
+                if (k < leftSize) {
+                    node = node.left;
+                } else if (k > leftSize) {
+                    k -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    return node.data;
+                }
+            }
+            throw new NodeNotFoundException("Não existe a posição " + k + " na árvore (" + size() + " nós).");
+        }
+
+        public int size() {
+            return PersistentTreeAVL.size(root);
+        }
+
+        public int getHeight() {
+            return height(root);
+        }
+
+        public boolean isEmpty() {
+            return root == null;
+        }
+
+        @Override
+        public Iterator<OrderService> iterator() {
+            return new InOrderIterator(root, 0);
+        }
+
+        // Percurso em ordem começando na posição 'offset', em O(log n) até o primeiro elemento
+        public Iterator<OrderService> iterator(int offset) {
+            return new InOrderIterator(root, Math.max(0, offset));
+        }
+
+        // Percurso em ordem das OS com código em [from, to]; memória O(altura), não importa o tamanho da faixa
+        public Iterator<OrderService> rangeIterator(int from, int to) {
+            return new RangeIterator(root, from, to);
+        }
+    }
+
+    private volatile Snapshot current = new Snapshot(null);     // Versão publicada
+    private final Object writeLock = new Object();              // Serializa só os escritores
+
+    // --------------------------------------------------------------------------------
+    // Leituras (sem lock, sempre sobre uma versão inteira)
+
+    @Override
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    @Override
+    public OrderService search(int codigo) throws NodeNotFoundException {
+        return current.search(codigo);
+    }
+
+    @Override
+    public List<OrderService> list() {
+        return current.list();
+    }
+
+    @Override
+    public int getQuantityRecords() {
+        return current.size();
+    }
+
+    public int rank(int codigo) {
+        return current.rank(codigo);
+    }
+
+    public OrderService select(int k) throws NodeNotFoundException {
+        return current.select(k);
+    }
+
+    public List<OrderService> list(int offset, int limit) {
+        return current.list(offset, limit);
+    }
+
+    public int getHeight() {
+        return current.getHeight();
+    }
+
+    @Override
+    public List<OrderService> listRange(int from, int to, int limit) {
+        List<OrderService> range = new ArrayList<>();
+        Iterator<OrderService> iterator = current.rangeIterator(from, to);
+        while (iterator.hasNext() && range.size() < limit) {
+            range.add(iterator.next());
+        }
+        return range;
+    }
+
+    @Override
+    public int highestCode() {
+        Node node = current.root;
+        if (node == null) {
+            return -1;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.data.getCode();
+    }
+
+    @Override
+    public String getName() {
+        return "persistent-avl";
+    }
+
+    @Override
+    public Iterator<OrderService> iterator() {
+        return current.iterator();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Escritas (cópia do caminho + publicação da nova raiz)
+
+    @Override
+    public void insert(OrderService data) throws NodeAlreadyExistsException {
+        synchronized (writeLock) {
+            Snapshot version = current;
+            current = new Snapshot(insert(version.root, data));
+        }
+    }
+
+    @Override
+    public void remove(int codigo) throws InvalidOperationException {
+        synchronized (writeLock) {
+            Snapshot version = current;
+            current = new Snapshot(remove(version.root, codigo));
+        }
+    }
+
+    @Override
+    public void alter(OrderService ordemServico) throws NodeNotFoundException {
+        synchronized (writeLock) {
+            Snapshot version = current;
+            current = new Snapshot(replace(version.root, ordemServico));
+        }
+    }
+
+    // Substitui o conteúdo pelas OS de 'sorted' (em ordem estritamente crescente de código), montando a árvore
+    // balanceada em O(n) a partir do meio de cada faixa, sem inserções nem rotações. Usado na carga do checkpoint
+    @Override
+    public void load(OrderService[] sorted) {
+        OrderIndex.checkSorted(sorted);
+        synchronized (writeLock) {
+            current = new Snapshot(build(sorted, 0, sorted.length - 1));
+        }
+    }
+
+    // Altera várias OS e publica uma única versão com o lote inteiro. Retorna os códigos que não existem na árvore
+    @Override
+    public List<Integer> alterAll(List<OrderService> ordens) {
+        List<Integer> notFound = new ArrayList<>();
+        synchronized (writeLock) {
+            Snapshot version = current;
+            Node root = version.root;
+            for (OrderService ordemServico : ordens) {
+                try {
+                    root = replace(root, ordemServico);
+                } catch (NodeNotFoundException e) {
+                    notFound.add(ordemServico.getCode());
+                }
+            }
+            current = new Snapshot(root);
+        }
+        return notFound;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Métodos auxiliares
+
+    // Árvore perfeitamente balanceada com sorted[from..to]: as alturas das subárvores diferem no máximo em 1
+    private static Node build(OrderService[] sorted, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(sorted[middle], build(sorted, from, middle - 1), build(sorted, middle + 1, to));
+    }
+
+    private static Node insert(Node root, OrderService data) throws NodeAlreadyExistsException {
+        if (root == null) return new Node(data, null, null);
+
+        if (data.getCode() < root.data.getCode()) return balance(root.data, insert(root.left, data), root.right);
+        if (data.getCode() > root.data.getCode()) return balance(root.data, root.left, insert(root.right, data));
+
+        // Node com mesmo código já existe
+        throw new NodeAlreadyExistsException("O nó com o código " + data.getCode() + " já existe na árvore.");
+    }
+
+    private static Node remove(Node root, int codigo) throws InvalidOperationException {
+        if (root == null) {
+            throw new InvalidOperationException("Árvore vazia ou nó não encontrado.");
+        }
+
+        if (codigo < root.data.getCode()) return balance(root.data, remove(root.left, codigo), root.right);
+        if (codigo > root.data.getCode()) return balance(root.data, root.left, remove(root.right, codigo));
+
+        // Encontrou o node a ser removido
+        if (root.left == null) return root.right;
+        if (root.right == null) return root.left;
+
+        Node successor = minorKey(root.right); // Mesmo critério da TreeAVL: o menor da direita sobe
+        return balance(successor.data, root.left, removeMin(root.right));
+    }
+
+    private static Node removeMin(Node root) {
+        if (root.left == null) return root.right;
+        return balance(root.data, removeMin(root.left), root.right);
+    }
+
+    private static Node replace(Node root, OrderService data) throws NodeNotFoundException {
+        if (root == null) {
+            throw new NodeNotFoundException("O nó com o código " + data.getCode() + " não existe na árvore.");
+        }
+
+        if (data.getCode() < root.data.getCode()) return new Node(root.data, replace(root.left, data), root.right);
+        if (data.getCode() > root.data.getCode()) return new Node(root.data, root.left, replace(root.right, data));
+        return new Node(data, root.left, root.right); // A forma não muda, não precisa balancear
+    }
+
+    // Cria o nó (data, left, right) já balanceado; as rotações também criam nós novos
+    private static Node balance(OrderService data, Node left, Node right) {
+        int fb = height(left) - height(right);
+
+        if (fb > 1) { // Rotação a direita
+            if (height(left.left) >= height(left.right)) { // Simples
+                return new Node(left.data, left.left, new Node(data, left.right, right));
+            }
+            Node pivot = left.right;                       // Dupla
+            return new Node(pivot.data, new Node(left.data, left.left, pivot.left), new Node(data, pivot.right, right));
+        } else if (fb < -1) { // Rotação a esquerda
+            if (height(right.right) >= height(right.left)) { // Simples
+                return new Node(right.data, new Node(data, left, right.left), right.right);
+            }
+            Node pivot = right.left;                         // Dupla
+            return new Node(pivot.data, new Node(data, left, pivot.left), new Node(right.data, pivot.right, right.right));
+        }
+
+        return new Node(data, left, right);
+    }
+
+    private static Node minorKey(Node root) {
+        Node aux = root;
+        while (aux.left != null) aux = aux.left;
+        return aux;
+    }
+
+    private static int height(Node node) {
+        return node == null ? -1 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    // Percurso em ordem limitado a [from, to]: desce só pelos caminhos que podem ter códigos da faixa
+    private static final class RangeIterator implements Iterator<OrderService> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private final int from;
+        private final int to;
+
+        RangeIterator(Node root, int from, int to) {
+            this.from = from;
+            this.to = to;
+            pushFrom(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && stack.peek().data.getCode() <= to;
+        }
+
+        @Override
+        public OrderService next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            pushFrom(node.right);
+            return node.data;
+        }
+
+        // Empilha o caminho até o menor código >= from, ignorando as subárvores esquerdas abaixo da faixa
+        private void pushFrom(Node node) {
+            while (node != null) {
+                if (node.data.getCode() < from) {
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+        }
+    }
+
+    // Percurso em ordem com pilha explícita, sobre uma versão que não muda
+    private static final class InOrderIterator implements Iterator<OrderService> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+
+        // Desce até a posição 'offset' empilhando só os ancestrais que ainda vêm depois dela
+        InOrderIterator(Node root, int offset) {
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (offset < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (offset > leftSize) {
+                    offset -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public OrderService next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            pushLeft(node.right);
+            return node.data;
+        }
+
+        private void pushLeft(Node node) {
+            for (; node != null; node = node.left) {
+                stack.push(node);
+            }
+        }
+    }
+}
@@ -1,16 +1,40 @@
 package org.example.utils.tree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
 
 import org.example.utils.common.OrderService;
 import org.example.utils.exceptions.InvalidOperationException;
 import org.example.utils.exceptions.NodeAlreadyExistsException;
 import org.example.utils.exceptions.NodeNotFoundException;
+import org.example.utils.index.OrderIndex;
+
+/*
+ * Árvore AVL de ordens de serviço, segura para várias threads.
+ *
+ * As escritas (insert, remove, alter) são serializadas por um StampedLock em modo escrita, porque uma inserção
+ * pode rotacionar vários nós. As buscas não bloqueiam: percorrem a árvore com uma leitura otimista e só validam
+ * o carimbo no final. Se uma escrita aconteceu no meio, a busca pode ter visto uma subárvore meio rotacionada,
+ * então o resultado é descartado e a busca é refeita com o lock de leitura. Como a validação só confirma depois
+ * de terminar, a descida otimista tem um limite de passos (uma rotação concorrente poderia formar um ciclo
+ * momentâneo) e nunca lança a exceção de "não encontrado" sem validar antes.
+ *
+ * Listagens percorrem a árvore inteira e usam o lock de leitura direto: concorrem com outras leituras, só
+ * esperam as escritas.
+ *
+ * Cada nó guarda o tamanho da sua subárvore (mantido nas inserções, remoções e rotações), então a quantidade de
+ * registros é O(1) e rank(código) / select(k) são O(log n): dá para pegar a k-ésima OS ou uma página a partir
+ * de um deslocamento sem percorrer a árvore desde o início.
+ */
+public class TreeAVL implements OrderIndex {
+    private static final int MAX_OPTIMISTIC_STEPS = 64; // Uma AVL com 2^31 nós tem altura < 45
 
-public class TreeAVL {
     private static class Node {
         int height;
+        int size = 1;                   // Quantidade de nós da subárvore
         Node left, right;
         OrderService data;
 
@@ -22,6 +46,7 @@ public class TreeAVL {
     private Node root;                  // Raiz da árvore
     private boolean rotated;            // Atributo para indicar se houve rotação
     private RotationType rotationType;  // Atributo para indicar o tipo de rotação
+    private final StampedLock lock = new StampedLock();
 
     public TreeAVL() {
         this.root = null;
@@ -30,11 +55,29 @@ public class TreeAVL {
     }
 
     public int getHeight() {
-        return height(root);
+        long stamp = lock.tryOptimisticRead();
+        Node node = root;
+        int height = node == null ? -1 : node.height;
+        if (lock.validate(stamp)) {
+            return height;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return height(root);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
+    @Override
     public void insert(OrderService data) throws NodeAlreadyExistsException {
-        root = insert(root, data);
+        long stamp = lock.writeLock();
+        try {
+            root = insert(root, data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     private Node insert(Node root, OrderService data) throws NodeAlreadyExistsException {
@@ -47,12 +90,45 @@ public class TreeAVL {
             throw new NodeAlreadyExistsException("O nó com o código " + data.getCode() + " já existe na árvore.");
 
         root.height = newHeight(root);
+        root.size = newSize(root);
 
         return balance(root);
     }
 
+    // Substitui o conteúdo pelas OS de 'sorted' (em ordem estritamente crescente de código), montando a árvore
+    // balanceada em O(n) sem inserções nem rotações
+    @Override
+    public void load(OrderService[] sorted) {
+        OrderIndex.checkSorted(sorted);
+        long stamp = lock.writeLock();
+        try {
+            root = build(sorted, 0, sorted.length - 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Node build(OrderService[] sorted, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = new Node(sorted[middle]);
+        node.left = build(sorted, from, middle - 1);
+        node.right = build(sorted, middle + 1, to);
+        node.height = newHeight(node);
+        node.size = newSize(node);
+        return node;
+    }
+
+    @Override
     public void remove(int codigo) throws InvalidOperationException {
-        root = remove(root, codigo);
+        long stamp = lock.writeLock();
+        try {
+            root = remove(root, codigo);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     private Node remove(Node root, int codigo) throws InvalidOperationException {
@@ -87,12 +163,48 @@ public class TreeAVL {
         }
 
         root.height = newHeight(root);
+        root.size = newSize(root);
 
         return balance(root);
     }
 
+    @Override
     public OrderService search(int codigo) throws NodeNotFoundException {
-        return search(root, codigo);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Node node = root;
+            OrderService found = null;
+            int steps = 0;
+
+            while (node != null && steps++ < MAX_OPTIMISTIC_STEPS) {
+                OrderService data = node.data;
+                if (data == null) { // Nó ainda não publicado por completo: a validação abaixo vai falhar
+                    break;
+                }
+                if (codigo < data.getCode()) {
+                    node = node.left;
+                } else if (codigo > data.getCode()) {
+                    node = node.right;
+                } else {
+                    found = data;
+                    break;
+                }
+            }
+
+            if (lock.validate(stamp) && (found != null || node == null)) { // Nenhuma escrita durante a descida
+                if (found == null) {
+                    throw new NodeNotFoundException("O nó com o código " + codigo + " não existe na árvore.");
+                }
+                return found;
+            }
+        }
+
+        stamp = lock.readLock(); // Uma escrita interferiu: refaz com o lock de leitura
+        try {
+            return search(root, codigo);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     private OrderService search(Node root, int codigo) throws NodeNotFoundException {
@@ -110,7 +222,12 @@ public class TreeAVL {
     }
 
     public void ordem() {
-        this.ordem(root);
+        long stamp = lock.readLock();
+        try {
+            this.ordem(root);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     private void ordem(Node root) {
@@ -121,14 +238,20 @@ public class TreeAVL {
         }
     }
 
+    @Override
     public List<OrderService> list() {
-        List<OrderService> list = new ArrayList<>();
-        if (root == null) {
+        long stamp = lock.readLock();
+        try {
+            List<OrderService> list = new ArrayList<>(size(root));
+            if (root == null) {
+                return list;
+            }
+
+            list(root, list);
             return list;
+        } finally {
+            lock.unlockRead(stamp);
         }
-
-        list(root, list);
-        return list;
     }
 
     private void list(Node node, List<OrderService> list) {
@@ -139,18 +262,182 @@ public class TreeAVL {
         }
     }
 
+    @Override
     public int getQuantityRecords() {
-        return getQuantityRecords(root);
+        long stamp = lock.tryOptimisticRead();
+        Node node = root;
+        int size = node == null ? 0 : node.size;
+        if (lock.validate(stamp)) {
+            return size;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return size(root);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
-    private int getQuantityRecords(Node node) {
-        if (node == null) {
-            return 0;
+    @Override
+    public int highestCode() {
+        long stamp = lock.readLock();
+        try {
+            Node node = root;
+            if (node == null) {
+                return -1;
+            }
+            while (node.right != null) {
+                node = node.right;
+            }
+            return node.data.getCode();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "avl";
+    }
+
+    // Quantidade de OS com código menor que 'codigo' (a posição que ele tem ou teria na listagem)
+    public int rank(int codigo) {
+        long stamp = lock.readLock();
+        try {
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                if (codigo <= node.data.getCode()) {
+                    node = node.left;
+                } else {
+                    rank += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return rank;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // A k-ésima OS em ordem de código (k começa em 0)
+    public OrderService select(int k) throws NodeNotFoundException {
+        long stamp = lock.readLock();
+        try {
+            Node node = selectNode(root, k);
+            if (node == null) {
+                throw new NodeNotFoundException("Não existe a posição " + k + " na árvore (" + size(root) + " nós).");
+            }
+            return node.data;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Até 'limit' OS em ordem de código a partir da posição 'offset', sem visitar as anteriores
+    public List<OrderService> list(int offset, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<OrderService> page = new ArrayList<>();
+            page(root, Math.max(0, offset), limit, page);
+            return page;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Até 'limit' OS com código em [from, to], em ordem, com um percurso iterativo que pula o que está fora da faixa
+    @Override
+    public List<OrderService> listRange(int from, int to, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<OrderService> range = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+
+            while ((node != null || !stack.isEmpty()) && range.size() < limit) {
+                if (node != null) {
+                    if (node.data.getCode() < from) {   // Nada à esquerda está na faixa
+                        node = node.right;
+                    } else {
+                        stack.push(node);
+                        node = node.left;
+                    }
+                } else {
+                    node = stack.pop();
+                    if (node.data.getCode() > to) {
+                        break;
+                    }
+                    range.add(node.data);
+                    node = node.right;
+                }
+            }
+            return range;
+        } finally {
+            lock.unlockRead(stamp);
         }
-        return 1 + getQuantityRecords(node.left) + getQuantityRecords(node.right);
     }
 
+    private void page(Node node, int offset, int limit, List<OrderService> page) {
+        if (node == null || page.size() >= limit) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (offset < leftSize) {                // A página começa na subárvore esquerda
+            page(node.left, offset, limit, page);
+        }
+        if (offset <= leftSize && page.size() < limit) {
+            page.add(node.data);
+        }
+        page(node.right, Math.max(0, offset - leftSize - 1), limit, page);
+    }
+
+    private Node selectNode(Node node, int k) {
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    @Override
     public void alter(OrderService ordemServico) throws NodeNotFoundException {
+        long stamp = lock.writeLock();
+        try {
+            alterNode(ordemServico);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Altera várias OS com uma única aquisição do lock de escrita. Retorna os códigos que não existem na árvore
+    @Override
+    public List<Integer> alterAll(List<OrderService> ordens) {
+        List<Integer> notFound = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (OrderService ordemServico : ordens) {
+                try {
+                    alterNode(ordemServico);
+                } catch (NodeNotFoundException e) {
+                    notFound.add(ordemServico.getCode());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return notFound;
+    }
+
+    private void alterNode(OrderService ordemServico) throws NodeNotFoundException {
         // Primeiro, buscamos o nó correspondente ao código
         Node node = searchNode(root, ordemServico.getCode());
 
@@ -210,6 +497,8 @@ public class TreeAVL {
 
         oldRoot.height = newHeight(oldRoot);
         newRoot.height = newHeight(newRoot);
+        oldRoot.size = newSize(oldRoot);
+        newRoot.size = newSize(newRoot);
 
         this.rotated = true; // Indica que houve rotação
 
@@ -225,6 +514,8 @@ public class TreeAVL {
 
         oldRoot.height = newHeight(oldRoot);
         newRoot.height = newHeight(newRoot);
+        oldRoot.size = newSize(oldRoot);
+        newRoot.size = newSize(newRoot);
 
         this.rotated = true; // Indica que houve rotação
 
@@ -239,6 +530,14 @@ public class TreeAVL {
         return 1 + Math.max(height(node.left), height(node.right));
     }
 
+    private int newSize(Node node) {
+        return 1 + size(node.left) + size(node.right);
+    }
+
+    private int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
     private Node minorKey(Node root) {
         if (root == null) return null;
 
@@ -261,14 +560,24 @@ public class TreeAVL {
     }
 
     public boolean wasRotated() {
-        boolean wasRotated = this.rotated;
-        this.rotated = false; // Resetar o valor
-        return wasRotated;
+        long stamp = lock.writeLock();
+        try {
+            boolean wasRotated = this.rotated;
+            this.rotated = false; // Resetar o valor
+            return wasRotated;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     public String getRotationType() {
-        RotationType rotation = this.rotationType;
-        this.rotationType = RotationType.NONE; // Resetar o valor
-        return rotation.toString();
+        long stamp = lock.writeLock();
+        try {
+            RotationType rotation = this.rotationType;
+            this.rotationType = RotationType.NONE; // Resetar o valor
+            return rotation.toString();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 }
\ No newline at end of file